@@ -4,6 +4,7 @@ plugins {
     id("application")
     id("io.sentry.jvm.gradle") version "5.12.1"
     id("com.diffplug.spotless") version "7.2.1"
+    id("me.champeau.jmh") version "0.7.3"
 }
 
 group = "es.redactado"
@@ -43,10 +44,47 @@ dependencies {
     implementation("com.h2database:h2:2.3.232")
 }
 
+// ./gradlew jmh runs every benchmark; -PjmhIncludes=Repository runs the matching ones only.
+// Results go to build/results/jmh/results.json, to compare against a previous run.
+jmh {
+    jmhVersion = "1.37"
+    resultFormat = "JSON"
+    resultsFile = layout.buildDirectory.file("results/jmh/results.json")
+    providers.gradleProperty("jmhIncludes").orNull?.let { includes.add(it) }
+}
+
 application {
     mainClass.set("es.redactado.Main")
 }
 
+tasks.register<JavaExec>("runCoordinator") {
+    group = "application"
+    description = "Runs the shard cluster coordinator"
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass.set("es.redactado.cluster.ClusterCoordinator")
+}
+
+tasks.register<JavaExec>("runLoadHarness") {
+    group = "application"
+    description = "Replays synthetic interactions through the command pipeline, without Discord"
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass.set("es.redactado.loadtest.LoadHarness")
+}
+
+tasks.register<JavaExec>("runOcr") {
+    group = "application"
+    description = "Runs OCR on local image files, e.g. --args=\"fixtures/a.png\""
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass.set("es.redactado.ocr.OcrCli")
+}
+
+tasks.register<JavaExec>("runWebhookStandIn") {
+    group = "application"
+    description = "Sends a burst through the webhook dispatcher to a local Discord stand-in"
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass.set("es.redactado.webhook.LocalWebhookServer")
+}
+
 spotless {
     //ratchetFrom("origin/main") // Uncomment in case of working in a feature branch (makes changes only to files on that branch)
 
@@ -0,0 +1,39 @@
+package es.redactado.benchmark;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import io.github.cdimascio.dotenv.Dotenv;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * Configuration for benchmarks. The values are written to a temporary .env file and loaded the
+ * same way {@code BotModule} loads the real one, so every component reads its settings and
+ * defaults exactly as in production.
+ */
+final class BenchmarkEnv {
+    private BenchmarkEnv() {}
+
+    static Dotenv of(Map<String, String> values) {
+        try {
+            Path directory = Files.createTempDirectory("benchmark-env");
+            StringBuilder contents = new StringBuilder();
+            values.forEach((key, value) -> contents.append(key).append('=').append(value).append('\n'));
+            Path file = Files.writeString(directory.resolve(".env"), contents);
+            file.toFile().deleteOnExit();
+            directory.toFile().deleteOnExit();
+            return Dotenv.configure().directory(directory.toString()).load();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** An injector for the command and metrics graph, without JDA or the database. */
+    static Injector injector(Map<String, String> values) {
+        Dotenv dotenv = of(values);
+        return Guice.createInjector(binder -> binder.bind(Dotenv.class).toInstance(dotenv));
+    }
+}
@@ -0,0 +1,51 @@
+package es.redactado.benchmark;
+
+import es.redactado.command.handler.CommandRegister;
+import es.redactado.command.type.BaseSlashCommand;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import net.dv8tion.jda.api.interactions.commands.build.CommandData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of {@code CommandRegister.getAllCommandsData()} when the Caffeine cache holds the list and
+ * right after a command change invalidated it, when every command's data is built again.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommandDataCacheBenchmark {
+    private CommandRegister commandRegister;
+    private BaseSlashCommand command;
+
+    @Setup
+    public void setUp() {
+        commandRegister = BenchmarkEnv.injector(Map.of()).getInstance(CommandRegister.class);
+        command = commandRegister.getSlashCommand("ping");
+    }
+
+    @Benchmark
+    public List<CommandData> cached() {
+        return commandRegister.getAllCommandsData();
+    }
+
+    @Benchmark
+    public List<CommandData> afterInvalidation() {
+        // Swapping a command in place invalidates every command data cache
+        commandRegister.replaceCommand(command);
+        return commandRegister.getAllCommandsData();
+    }
+}
@@ -0,0 +1,66 @@
+package es.redactado.benchmark;
+
+import es.redactado.command.handler.CommandRegister;
+import es.redactado.command.type.BaseSlashCommand;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Compares the command lookup done per interaction by {@code CommandListener}. {@code
+ * legacyLookup} reproduces the previous path: two capturing suppliers, a {@code containsKey}
+ * followed by a {@code get} on a mutable {@link HashMap}. {@code dispatchTableLookup} is the
+ * current single lookup on the immutable dispatch table.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class CommandDispatchBenchmark {
+    @Param({"ping", "missing"})
+    public String commandName;
+
+    private CommandRegister commandRegister;
+    private Map<String, BaseSlashCommand> legacyMap;
+
+    @Setup
+    public void setUp() {
+        commandRegister = BenchmarkEnv.injector(Map.of()).getInstance(CommandRegister.class);
+        legacyMap = new HashMap<>(commandRegister.getSlashCommandMap());
+    }
+
+    @Benchmark
+    public void legacyLookup(Blackhole blackhole) {
+        String name = commandName;
+        Supplier<Boolean> exists = () -> legacyMap.containsKey(name);
+        Supplier<BaseSlashCommand> execution = () -> legacyMap.get(name);
+        if (exists.get()) {
+            blackhole.consume(execution.get());
+        }
+    }
+
+    @Benchmark
+    public void dispatchTableLookup(Blackhole blackhole) {
+        BaseSlashCommand command = commandRegister.getSlashCommand(commandName);
+        if (command != null) {
+            blackhole.consume(command);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package es.redactado.benchmark;
+
+import com.google.inject.Injector;
+import es.redactado.command.handler.CommandListener;
+import es.redactado.command.handler.CommandRegister;
+import es.redactado.command.type.BaseSlashCommand;
+import es.redactado.command.type.RateLimit;
+import es.redactado.loadtest.SimulatedRest;
+import es.redactado.loadtest.SyntheticInteractions;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
+import net.dv8tion.jda.api.interactions.commands.build.Commands;
+import net.dv8tion.jda.api.interactions.commands.build.SlashCommandData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures what the gateway thread pays per slash interaction in {@code CommandListener}: command
+ * lookup, rate limit check, metrics and the hand-off to {@code CommandExecutionController}. The
+ * handlers themselves do nothing, so the executor keeps up and nothing is shed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class CommandListenerBenchmark {
+    // Events are reused round-robin, which also keeps the pending ack map bounded
+    private static final int EVENTS = 1024;
+
+    @Param({"bench", "bench-limited"})
+    public String commandName;
+
+    private CommandListener listener;
+    private SlashCommandInteractionEvent[] events;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Setup
+    public void setUp() {
+        Injector injector = BenchmarkEnv.injector(Map.of("COMMAND_MAX_QUEUED", "1000000"));
+        CommandRegister commandRegister = injector.getInstance(CommandRegister.class);
+        commandRegister.replaceCommand(new NoopCommand("bench", RateLimit.NONE));
+        // Generous enough to never reject, so only the bucket bookkeeping is measured
+        commandRegister.replaceCommand(
+                new NoopCommand(
+                        "bench-limited", RateLimit.perUser(1_000_000, Duration.ofSeconds(1))));
+        listener = injector.getInstance(CommandListener.class);
+
+        SyntheticInteractions interactions =
+                new SyntheticInteractions(new SimulatedRest(0, TimeUnit.MILLISECONDS));
+        events = new SlashCommandInteractionEvent[EVENTS];
+        for (int i = 0; i < EVENTS; i++) {
+            events[i] = interactions.slashEvent(commandName, i + 1, i % 64, 1, 1, null);
+        }
+    }
+
+    @Benchmark
+    public void dispatch(Cursor cursor) {
+        listener.onSlashCommandInteraction(events[cursor.next++ & (EVENTS - 1)]);
+    }
+
+    private record NoopCommand(String name, RateLimit rateLimit) implements BaseSlashCommand {
+        @Override
+        public SlashCommandData getCommandData() {
+            return Commands.slash(name, "Benchmark command");
+        }
+
+        @Override
+        public void handle(SlashCommandInteractionEvent event) {}
+
+        @Override
+        public RateLimit getRateLimit() {
+            return rateLimit;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package es.redactado.benchmark;
+
+import es.redactado.database.id.SnowflakeIdGenerator;
+import es.redactado.database.model.BaseDomain;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.hibernate.jpa.HibernatePersistenceConfiguration;
+import org.hibernate.tool.schema.Action;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares insert throughput of IDENTITY ids against pre-assigned snowflake ids on file-based
+ * databases. With IDENTITY Hibernate has to run each INSERT on its own to read the key back, while
+ * snowflake ids let the whole transaction go out as JDBC batches.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IdGenerationInsertBenchmark {
+    private static final int ROWS_PER_TRANSACTION = 1000;
+
+    @Param({"H2", "SQLITE"})
+    public String database;
+
+    private Path directory;
+    private SessionFactory sessionFactory;
+
+    @Entity(name = "IdentityRow")
+    public static class IdentityRow {
+        @Id
+        @GeneratedValue(strategy = GenerationType.IDENTITY)
+        private Long id;
+
+        private String payload;
+    }
+
+    @Entity(name = "SnowflakeRow")
+    public static class SnowflakeRow extends BaseDomain {
+        private String payload;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("id-benchmark");
+
+        HibernatePersistenceConfiguration configuration =
+                new HibernatePersistenceConfiguration("IdBenchmark")
+                        .managedClass(IdentityRow.class)
+                        .managedClass(SnowflakeRow.class);
+
+        if (database.equals("SQLITE")) {
+            configuration.jdbcUrl("jdbc:sqlite:" + directory.resolve("bench.db"));
+            configuration.property("hibernate.connection.driver_class", "org.sqlite.JDBC");
+            configuration.property(
+                    "hibernate.dialect", "org.hibernate.community.dialect.SQLiteDialect");
+        } else {
+            configuration.jdbcUrl("jdbc:h2:file:" + directory.resolve("bench"));
+            configuration.property("hibernate.connection.driver_class", "org.h2.Driver");
+            configuration.property("hibernate.dialect", "org.hibernate.dialect.H2Dialect");
+        }
+
+        // Same batching settings as DatabaseManager
+        configuration.property("hibernate.jdbc.batch_size", "50");
+        configuration.property("hibernate.order_inserts", "true");
+        configuration.property("hibernate.order_updates", "true");
+        configuration.property(SnowflakeIdGenerator.WORKER_ID_SETTING, "1");
+        configuration.schemaToolingAction(Action.CREATE_DROP);
+
+        sessionFactory = configuration.createEntityManagerFactory();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        sessionFactory.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS_PER_TRANSACTION)
+    public void identityInsert() {
+        insert(
+                () -> {
+                    IdentityRow row = new IdentityRow();
+                    row.payload = "identity";
+                    return row;
+                });
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS_PER_TRANSACTION)
+    public void snowflakeInsert() {
+        insert(
+                () -> {
+                    SnowflakeRow row = new SnowflakeRow();
+                    row.payload = "snowflake";
+                    return row;
+                });
+    }
+
+    private void insert(Supplier<Object> rowFactory) {
+        try (Session session = sessionFactory.openSession()) {
+            Transaction transaction = session.beginTransaction();
+            for (int i = 0; i < ROWS_PER_TRANSACTION; i++) {
+                session.persist(rowFactory.get());
+            }
+            transaction.commit();
+        }
+    }
+}
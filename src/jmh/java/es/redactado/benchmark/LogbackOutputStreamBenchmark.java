@@ -0,0 +1,69 @@
+package es.redactado.benchmark;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import es.redactado.LogbackOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of the System.out bridge per printed line. {@code FORMATTED} is a line already
+ * written by logback's console appender and copied through, {@code ANSI} is a colored line that
+ * gets stripped and logged again, {@code BLANK} is a bare line separator.
+ *
+ * <p>The logger has no appenders and stdout is discarded, so only the bridge itself is measured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LogbackOutputStreamBenchmark {
+    @Param({"FORMATTED", "ANSI", "BLANK"})
+    public String line;
+
+    private LogbackOutputStream stream;
+    private byte[] bytes;
+
+    @Setup
+    public void setUp() {
+        Logger logger = new LoggerContext().getLogger("System.out");
+        logger.setLevel(Level.INFO);
+        stream =
+                new LogbackOutputStream(logger, new PrintStream(OutputStream.nullOutputStream()));
+
+        String separator = System.lineSeparator();
+        String text =
+                switch (line) {
+                    case "FORMATTED" ->
+                            "12:34:56.789 INFO  [main] es.redactado.Main - Bot is ready" + separator;
+                    case "ANSI" ->
+                            "\u001B[1;32mReady\u001B[0m in \u001B[33m1234\u001B[0m ms" + separator;
+                    case "BLANK" -> separator;
+                    default -> throw new IllegalArgumentException("Unknown line: " + line);
+                };
+        bytes = text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public void printAndFlush() throws IOException {
+        stream.write(bytes);
+        stream.flush();
+    }
+}
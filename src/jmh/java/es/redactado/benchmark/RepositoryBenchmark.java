@@ -0,0 +1,129 @@
+package es.redactado.benchmark;
+
+import es.redactado.database.DatabaseManager;
+import es.redactado.database.model.BaseDomain;
+import es.redactado.database.repository.AbstractRepository;
+import jakarta.persistence.Entity;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link AbstractRepository} operations through a real {@link DatabaseManager}, so Hikari,
+ * batching, the second-level cache and, on SQLite, the single writer queue are configured exactly
+ * as in production. {@code H2} runs in memory, {@code SQLITE} on a WAL file in a temp directory.
+ *
+ * <p>The table is filled once per trial; {@code save} updates existing rows so {@code findAll}
+ * always reads {@code rows} entities.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RepositoryBenchmark {
+    @Param({"H2", "SQLITE"})
+    public String database;
+
+    @Param({"100"})
+    public int rows;
+
+    private Path directory;
+    private DatabaseManager databaseManager;
+    private BenchmarkRowRepository repository;
+    private long[] ids;
+
+    @Entity(name = "BenchmarkRow")
+    public static class BenchmarkRow extends BaseDomain {
+        private String payload;
+
+        public void setPayload(String payload) {
+            this.payload = payload;
+        }
+    }
+
+    static class BenchmarkRowRepository extends AbstractRepository<BenchmarkRow, Long> {
+        BenchmarkRowRepository(DatabaseManager databaseManager) {
+            super(databaseManager);
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("repository-benchmark");
+        databaseManager =
+                new DatabaseManager(
+                        BenchmarkEnv.of(
+                                Map.of(
+                                        "DB_TYPE", database,
+                                        "DB_PATH", directory.toString(),
+                                        "DB_NAME", "bench",
+                                        "H2_IN_MEMORY", "true")),
+                        List.of(BenchmarkRow.class));
+        databaseManager.disableShutdownHook();
+        repository = new BenchmarkRowRepository(databaseManager);
+
+        ids = new long[rows];
+        databaseManager.write(
+                session -> {
+                    for (int i = 0; i < rows; i++) {
+                        BenchmarkRow row = new BenchmarkRow();
+                        row.setPayload("row " + i);
+                        session.persist(row);
+                        ids[i] = row.getId();
+                    }
+                    return null;
+                });
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        databaseManager.shutdown();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public BenchmarkRow save() {
+        BenchmarkRow row = new BenchmarkRow();
+        row.setId(randomId());
+        row.setPayload("updated");
+        return repository.save(row);
+    }
+
+    @Benchmark
+    public Optional<BenchmarkRow> findById() {
+        return repository.findById(randomId());
+    }
+
+    @Benchmark
+    public List<BenchmarkRow> findAll() {
+        return repository.findAll();
+    }
+
+    private long randomId() {
+        return ids[ThreadLocalRandom.current().nextInt(ids.length)];
+    }
+}
@@ -6,10 +6,21 @@ import org.slf4j.LoggerFactory;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.PrintStream;
-import java.text.Normalizer;
+import java.nio.charset.StandardCharsets;
 
+/**
+ * System.out bridge. Lines already formatted by logback's console appender are copied straight
+ * to the real stdout; anything else printed is logged through the "System.out" logger.
+ *
+ * <p>Every console log line passes through here, so the common case works on the raw bytes: no
+ * String, no regex, no allocation.
+ */
 public class LogbackOutputStream extends ByteArrayOutputStream {
+    private static final byte ESC = 0x1B;
+    private static final byte[] HIBERNATE_PREFIX = "[Hibernate]".getBytes(StandardCharsets.US_ASCII);
+
     private final String lineSeparator = System.lineSeparator();
+    private final byte[] lineSeparatorBytes = lineSeparator.getBytes(StandardCharsets.US_ASCII);
     private final Logger logger;
     private final PrintStream originalOut;
 
@@ -21,36 +32,105 @@ public class LogbackOutputStream extends ByteArrayOutputStream {
 
     @Override
     public void flush() throws IOException {
-        String record = this.toString();
-        super.reset();
-
-        if (!record.isEmpty() && !record.equals(lineSeparator)) {
-            String recordWithoutColor =
-                    Normalizer.normalize(record, Normalizer.Form.NFD)
-                            .replaceAll("\u001B\\[[;\\d]*m", "");
-            if (recordWithoutColor.startsWith("[Hibernate]")) {
-                String[] lines = record.split(lineSeparator);
-                originalOut.print("--- [ Database Altered ] ---" + lineSeparator);
-                for (int i = 1; i < lines.length; i++) {
-                    originalOut.print("| " + lines[i] + lineSeparator);
-                }
-                originalOut.print("--- [ End of Database Alteration] ---" + lineSeparator);
-                return;
+        int length = count;
+        if (length == 0 || isLineSeparator(length)) {
+            reset();
+            return;
+        }
+
+        // Detect if already parsed by logback (starts with XX:XX:XX.XXX, being X a digit)
+        if (buf[0] >= '0' && buf[0] <= '9') {
+            originalOut.write(buf, 0, length);
+            reset();
+            return;
+        }
+
+        if (startsWithIgnoringAnsi(HIBERNATE_PREFIX, length)) {
+            String[] lines = toString().split(lineSeparator);
+            reset();
+            originalOut.print("--- [ Database Altered ] ---" + lineSeparator);
+            for (int i = 1; i < lines.length; i++) {
+                originalOut.print("| " + lines[i] + lineSeparator);
             }
+            originalOut.print("--- [ End of Database Alteration] ---" + lineSeparator);
+            return;
+        }
 
-            // Detect if already parsed by logback (starts with XX:XX:XX.XXX, being X a digit)
-            if (record.charAt(0) >= '0' && record.charAt(0) <= '9') {
-                originalOut.print(record);
+        // Log the record using logback, without colors and the trailing line separator
+        if (endsWithLineSeparator(length)) {
+            length -= lineSeparatorBytes.length;
+        }
+        length = stripAnsi(buf, length);
+        String logMessage = new String(buf, 0, length);
+        reset();
+        logger.info(logMessage);
+    }
+
+    /**
+     * Removes ANSI escape sequences ({@code ESC [ params letter}) in place and returns the new
+     * length. Scans the bytes once, without regex or allocation.
+     */
+    static int stripAnsi(byte[] bytes, int length) {
+        int write = 0;
+        int read = 0;
+        while (read < length) {
+            int skipped = ansiSequenceLength(bytes, read, length);
+            if (skipped > 0) {
+                read += skipped;
             } else {
-                // Log the record using logback, removing the additional line separator
-                // at the end of the record
-                String logMessage =
-                        record.endsWith(lineSeparator)
-                                ? record.substring(0, record.length() - lineSeparator.length())
-                                : record;
-                logger.info(logMessage);
+                bytes[write++] = bytes[read++];
+            }
+        }
+        return write;
+    }
+
+    /** Length of the escape sequence starting at {@code index}, or 0 if there is none. */
+    private static int ansiSequenceLength(byte[] bytes, int index, int length) {
+        if (bytes[index] != ESC || index + 1 >= length || bytes[index + 1] != '[') {
+            return 0;
+        }
+        for (int i = index + 2; i < length; i++) {
+            byte b = bytes[i];
+            // Parameters are digits and ';', the final byte is a letter
+            if ((b >= 'A' && b <= 'Z') || (b >= 'a' && b <= 'z')) {
+                return i - index + 1;
+            }
+            if ((b < '0' || b > '9') && b != ';') {
+                return 0;
+            }
+        }
+        return 0;
+    }
+
+    private boolean startsWithIgnoringAnsi(byte[] prefix, int length) {
+        int read = 0;
+        int matched = 0;
+        while (read < length && matched < prefix.length) {
+            int skipped = ansiSequenceLength(buf, read, length);
+            if (skipped > 0) {
+                read += skipped;
+            } else if (buf[read++] != prefix[matched++]) {
+                return false;
+            }
+        }
+        return matched == prefix.length;
+    }
+
+    private boolean isLineSeparator(int length) {
+        return length == lineSeparatorBytes.length && endsWithLineSeparator(length);
+    }
+
+    private boolean endsWithLineSeparator(int length) {
+        if (length < lineSeparatorBytes.length) {
+            return false;
+        }
+        int offset = length - lineSeparatorBytes.length;
+        for (int i = 0; i < lineSeparatorBytes.length; i++) {
+            if (buf[offset + i] != lineSeparatorBytes[i]) {
+                return false;
             }
         }
+        return true;
     }
 
     public static void redirectSystemOutToLogger() {
@@ -2,32 +2,40 @@ package es.redactado;
 
 import com.google.inject.Guice;
 import com.google.inject.Injector;
+import es.redactado.cluster.ClusterNode;
+import es.redactado.cluster.ShardAssignment;
 import es.redactado.command.handler.CommandListener;
 import es.redactado.command.handler.CommandRegister;
+import es.redactado.command.handler.CommandSynchronizer;
+import es.redactado.event.TypedEventManager;
+import es.redactado.gateway.GatewaySessionController;
+import es.redactado.gateway.GatewaySessionStore;
+import es.redactado.jfr.FlightRecording;
+import es.redactado.lifecycle.GracefulShutdown;
+import es.redactado.metrics.CacheFootprint;
+import es.redactado.metrics.CommandMetrics;
+import es.redactado.rest.RestLanes;
 import io.github.cdimascio.dotenv.Dotenv;
 import io.sentry.Sentry;
 import javax.annotation.Nonnull;
 import net.dv8tion.jda.api.events.ExceptionEvent;
-import net.dv8tion.jda.api.events.GenericEvent;
+import net.dv8tion.jda.api.events.guild.GuildReadyEvent;
 import net.dv8tion.jda.api.events.session.ReadyEvent;
+import net.dv8tion.jda.api.events.session.SessionResumeEvent;
 import net.dv8tion.jda.api.hooks.ListenerAdapter;
-import net.dv8tion.jda.api.interactions.commands.build.CommandData;
 import net.dv8tion.jda.api.requests.GatewayIntent;
 import net.dv8tion.jda.api.sharding.DefaultShardManagerBuilder;
 import net.dv8tion.jda.api.sharding.ShardManager;
-import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.PrintStream;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 
 import static es.redactado.LogbackOutputStream.redirectSystemOutToLogger;
 import static es.redactado.config.Bot.AUTO_RECONNECT;
-import static es.redactado.config.Bot.GATEWAY_INTENTS;
 import static es.redactado.config.Listeners.LISTENERS;
 
 public class Main extends ListenerAdapter {
@@ -35,6 +43,7 @@ public class Main extends ListenerAdapter {
     private Injector injector;
     private ShardManager api;
     private CommandRegister commandRegister;
+    private CommandSynchronizer commandSynchronizer;
 
     public static void main(String[] args) {
         new Main().run();
@@ -52,13 +61,16 @@ public class Main extends ListenerAdapter {
 
         // 2. Create the Guice injector and get CommandRegister early
         injector = Guice.createInjector(new BotModule(this));
+        // Before anything else runs, so the recording covers startup too
+        injector.getInstance(FlightRecording.class).start();
         commandRegister = injector.getInstance(CommandRegister.class);
+        commandSynchronizer = injector.getInstance(CommandSynchronizer.class);
 
         // 3. Pre-instantiate all listeners
-        List<ListenerAdapter> readyListeners = new ArrayList<>();
-        for (Class<? extends ListenerAdapter> cls : LISTENERS) {
+        List<Object> readyListeners = new ArrayList<>();
+        for (Class<?> cls : LISTENERS) {
             try {
-                ListenerAdapter listener = injector.getInstance(cls);
+                Object listener = injector.getInstance(cls);
                 readyListeners.add(listener);
                 logger.info("Initializing listener: {}", cls.getSimpleName());
             } catch (Exception e) {
@@ -71,23 +83,19 @@ public class Main extends ListenerAdapter {
             @Override
             public void onReady(@Nonnull ReadyEvent event) {
                 logger.info("Bot is ready! Connected as {}", event.getJDA().getSelfUser().getAsTag());
-                logger.info("Registering commands...");
-                Collection<CommandData> commands = commandRegister.getAllCommandsData();
-                logger.info("Registering a total of {} commands", commands.size());
-                event.getJDA()
-                        .updateCommands()
-                        .addCommands(commands)
-                        .queue(
-                                success -> logger.info("Commands registered successfully"),
-                                error   -> logger.error("Failed to register commands: {}", error.getMessage())
-                        );
+                // Uploads only when the command set changed, and only once for all shards
+                commandSynchronizer.onReady(event.getJDA());
             }
 
             @Override
-            public void onGenericEvent(@NotNull GenericEvent event) {
-                if (logger.isTraceEnabled()) {
-                    logger.trace("Received event: {}", event.getClass().getSimpleName());
-                }
+            public void onSessionResume(@Nonnull SessionResumeEvent event) {
+                // A shard resumed from a saved session never gets a ReadyEvent
+                commandSynchronizer.onReady(event.getJDA());
+            }
+
+            @Override
+            public void onGuildReady(@Nonnull GuildReadyEvent event) {
+                commandSynchronizer.onGuildReady(event.getGuild());
             }
 
             @Override
@@ -98,20 +106,54 @@ public class Main extends ListenerAdapter {
         };
 
         // 5. Build ShardManager: token, reconnect, intents, add connectionListener
-        DefaultShardManagerBuilder builder = DefaultShardManagerBuilder
-                .createDefault(injector.getInstance(Dotenv.class).get("DISCORD_TOKEN"))
+        // Intents, member caching, chunking and cache flags come from the selected cache profile
+        CacheFootprint cacheFootprint = injector.getInstance(CacheFootprint.class);
+        logger.info("Using gateway cache profile {}", cacheFootprint.getProfile());
+        DefaultShardManagerBuilder builder = cacheFootprint.getProfile()
+                .createBuilder(injector.getInstance(Dotenv.class).get("DISCORD_TOKEN"))
                 .setAutoReconnect(AUTO_RECONNECT)
-                .enableIntents(GATEWAY_INTENTS)
-                .addEventListeners(connectionListener);
+                // Typed dispatch: each event only reaches the handlers declared for its type
+                .setEventManagerProvider(shardId -> new TypedEventManager())
+                // Interaction responses ahead of user-facing sends ahead of background REST work
+                .setRestConfig(injector.getInstance(RestLanes.class).createRestConfig())
+                .addEventListeners(connectionListener)
+                .addEventListeners(injector.getInstance(CommandListener.class))
+                .addEventListeners(injector.getInstance(CommandMetrics.class))
+                .addEventListeners(cacheFootprint);
 
         // 6. Register all pre-instantiated listeners
-        for (ListenerAdapter listener : readyListeners) {
+        for (Object listener : readyListeners) {
             builder.addEventListeners(listener);
             logger.info("Registered listener: {}", listener.getClass().getSimpleName());
         }
 
-        // 7. Build the ShardManager and log startup
+        // 7. Connect hooks: cluster identify permits and resuming saved sessions
+        GatewaySessionController sessionController = new GatewaySessionController();
+        GatewaySessionStore sessionStore = injector.getInstance(GatewaySessionStore.class);
+        int shardsTotal = -1;
+        ClusterNode clusterNode = null;
+        if (Boolean.parseBoolean(injector.getInstance(Dotenv.class).get("CLUSTER_ENABLED", "false"))) {
+            // The coordinator decides which shards this process runs
+            clusterNode = injector.getInstance(ClusterNode.class);
+            ShardAssignment assignment = clusterNode.join();
+            logger.info("Running shards {} of {}", assignment.shards(), assignment.shardsTotal());
+            shardsTotal = assignment.shardsTotal();
+            builder.setShardsTotal(shardsTotal).setShards(assignment.shards());
+            ClusterNode node = clusterNode;
+            sessionController.addHook(session -> node.awaitIdentify(session.getShardInfo().getShardId()));
+        }
+        sessionStore.load(shardsTotal);
+        sessionController.addHook(sessionStore::seed);
+        builder.setSessionController(sessionController)
+                // GracefulShutdown closes the shards; JDA's hook would end their sessions
+                .setEnableShutdownHook(false);
+
+        // 8. Build the ShardManager and log startup
         api = builder.build();
+        if (clusterNode != null) {
+            clusterNode.attach(api);
+        }
+        injector.getInstance(GracefulShutdown.class).install(api);
         logger.info("Bot is starting up...");
     }
 
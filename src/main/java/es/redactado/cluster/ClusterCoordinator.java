@@ -0,0 +1,352 @@
+package es.redactado.cluster;
+
+import io.github.cdimascio.dotenv.Dotenv;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Hands out shard ranges to bot nodes and paces their identifies.
+ *
+ * <p>Runs as its own small process ({@code gradle runCoordinator}) that nodes reach over TCP,
+ * loopback by default. It owns three decisions:
+ *
+ * <ul>
+ *   <li><b>Assignment</b>: shards are split into contiguous ranges over the live nodes, ordered
+ *       by node id, so a restarted node with the same {@code CLUSTER_NODE_ID} gets its old range
+ *       back.
+ *   <li><b>Rebalancing</b>: joins and leaves are debounced by {@code CLUSTER_REBALANCE_DELAY_MS},
+ *       so a quick restart does not move shards at all. When shards do move, the nodes losing
+ *       them are told first and the new owners only start them once those have acknowledged, so
+ *       a shard never runs twice.
+ *   <li><b>Identify buckets</b>: Discord allows one identify per bucket ({@code shardId %
+ *       max_concurrency}) every 5 seconds across the whole bot, so nodes ask here before each
+ *       identify instead of pacing themselves.
+ * </ul>
+ *
+ * <p>All state is owned by a single loop thread; socket readers only post messages to it.
+ */
+public class ClusterCoordinator {
+    private static final Logger logger = LoggerFactory.getLogger(ClusterCoordinator.class);
+    private static final long IDENTIFY_INTERVAL_MS = 5_000;
+    private static final long RELEASE_TIMEOUT_MS = 30_000;
+
+    private final InetAddress bindAddress;
+    private final int port;
+    private final int shardsTotal;
+    private final int maxConcurrency;
+    private final long rebalanceDelayMs;
+    private final ScheduledExecutorService loop =
+            Executors.newSingleThreadScheduledExecutor(
+                    Thread.ofPlatform().name("cluster-coordinator").factory());
+
+    // Owned by the loop thread
+    private final Map<String, NodeConnection> nodes = new TreeMap<>();
+    private final Set<String> awaitingRelease = new HashSet<>();
+    private final long[] nextIdentifyAt;
+    private Map<String, Set<Integer>> pendingTarget;
+    private ScheduledFuture<?> pendingRebalance;
+    private ScheduledFuture<?> releaseTimeout;
+    private int generation;
+    private int releaseGeneration;
+
+    private ServerSocket serverSocket;
+
+    public ClusterCoordinator(Dotenv dotenv) throws IOException {
+        this.bindAddress =
+                InetAddress.getByName(dotenv.get("CLUSTER_COORDINATOR_BIND", "127.0.0.1"));
+        this.port = Integer.parseInt(dotenv.get("CLUSTER_COORDINATOR_PORT", "7660"));
+        this.shardsTotal = Integer.parseInt(dotenv.get("CLUSTER_SHARDS_TOTAL", "1"));
+        this.maxConcurrency = Integer.parseInt(dotenv.get("CLUSTER_MAX_CONCURRENCY", "1"));
+        this.rebalanceDelayMs = Long.parseLong(dotenv.get("CLUSTER_REBALANCE_DELAY_MS", "10000"));
+        this.nextIdentifyAt = new long[maxConcurrency];
+    }
+
+    public static void main(String[] args) throws IOException {
+        ClusterCoordinator coordinator = new ClusterCoordinator(Dotenv.configure().load());
+        coordinator.start();
+        Runtime.getRuntime()
+                .addShutdownHook(new Thread(coordinator::shutdown, "cluster-coordinator-shutdown"));
+    }
+
+    public void start() throws IOException {
+        serverSocket = new ServerSocket(port, 50, bindAddress);
+        Thread.ofPlatform().name("cluster-coordinator-accept").start(this::acceptLoop);
+        logger.info(
+                "Cluster coordinator listening on {}:{} for {} shards (max concurrency {})",
+                bindAddress.getHostAddress(),
+                port,
+                shardsTotal,
+                maxConcurrency);
+    }
+
+    public void shutdown() {
+        try {
+            if (serverSocket != null) {
+                serverSocket.close();
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to close coordinator socket", e);
+        }
+        loop.execute(
+                () -> {
+                    nodes.values().forEach(NodeConnection::close);
+                    nodes.clear();
+                });
+        loop.shutdown();
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setSoTimeout(ClusterProtocol.HEARTBEAT_TIMEOUT_MS);
+                socket.setTcpNoDelay(true);
+                NodeConnection connection = new NodeConnection(socket);
+                Thread.ofVirtual().name("cluster-node-reader").start(() -> read(connection));
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    logger.warn("Failed to accept cluster node", e);
+                }
+            }
+        }
+    }
+
+    private void read(NodeConnection connection) {
+        try (BufferedReader reader =
+                new BufferedReader(
+                        new InputStreamReader(
+                                connection.socket.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String message = line;
+                loop.execute(() -> onMessage(connection, message));
+            }
+        } catch (IOException e) {
+            logger.debug("Cluster node connection closed: {}", e.getMessage());
+        } finally {
+            loop.execute(() -> onDisconnect(connection));
+        }
+    }
+
+    private void onMessage(NodeConnection connection, String line) {
+        String[] parts = line.split(" ");
+        try {
+            switch (parts[0]) {
+                case ClusterProtocol.JOIN ->
+                        onJoin(connection, parts[1], ClusterProtocol.decodeShards(parts[2]));
+                case ClusterProtocol.IDENTIFY -> onIdentify(connection, Integer.parseInt(parts[1]));
+                case ClusterProtocol.ACK -> onAck(connection, Integer.parseInt(parts[1]));
+                case ClusterProtocol.PING -> connection.send(ClusterProtocol.PONG);
+                default -> logger.warn("Unknown message from node {}: {}", connection.nodeId, line);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Invalid message from node {}: {}", connection.nodeId, line, e);
+        }
+    }
+
+    private void onJoin(NodeConnection connection, String nodeId, Set<Integer> running) {
+        // Nodes report what they already run, which survives a coordinator restart
+        connection.nodeId = nodeId;
+        connection.shards = running;
+        NodeConnection previous = nodes.put(nodeId, connection);
+        if (previous != null) {
+            logger.info("Node {} reconnected, replacing its previous connection", nodeId);
+            previous.close();
+        } else {
+            logger.info("Node {} joined ({} nodes), running {}", nodeId, nodes.size(), running);
+        }
+        scheduleRebalance();
+    }
+
+    private void onDisconnect(NodeConnection connection) {
+        connection.close();
+        if (connection.nodeId == null || !nodes.remove(connection.nodeId, connection)) {
+            return;
+        }
+        logger.info(
+                "Node {} left ({} nodes), shards {} are unowned until rebalance",
+                connection.nodeId,
+                nodes.size(),
+                connection.shards);
+        if (awaitingRelease.remove(connection.nodeId) && awaitingRelease.isEmpty()) {
+            finishRebalance();
+        }
+        scheduleRebalance();
+    }
+
+    private void onIdentify(NodeConnection connection, int shardId) {
+        int bucket = shardId % maxConcurrency;
+        long now = System.currentTimeMillis();
+        long at = Math.max(now, nextIdentifyAt[bucket]);
+        nextIdentifyAt[bucket] = at + IDENTIFY_INTERVAL_MS;
+
+        String message = ClusterProtocol.IDENTIFY_OK + " " + shardId;
+        if (at == now) {
+            connection.send(message);
+        } else {
+            loop.schedule(() -> connection.send(message), at - now, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void onAck(NodeConnection connection, int ackedGeneration) {
+        if (ackedGeneration == releaseGeneration
+                && awaitingRelease.remove(connection.nodeId)
+                && awaitingRelease.isEmpty()) {
+            finishRebalance();
+        }
+    }
+
+    private void scheduleRebalance() {
+        if (pendingRebalance != null) {
+            pendingRebalance.cancel(false);
+        }
+        pendingRebalance = loop.schedule(this::rebalance, rebalanceDelayMs, TimeUnit.MILLISECONDS);
+    }
+
+    /** First phase: every node drops the shards it is about to lose. */
+    private void rebalance() {
+        pendingRebalance = null;
+        if (nodes.isEmpty()) {
+            return;
+        }
+        if (releaseTimeout != null) {
+            releaseTimeout.cancel(false);
+        }
+        pendingTarget = splitShards(List.copyOf(nodes.keySet()), shardsTotal);
+        awaitingRelease.clear();
+        releaseGeneration = ++generation;
+
+        for (NodeConnection node : nodes.values()) {
+            Set<Integer> kept = new TreeSet<>(node.shards);
+            kept.retainAll(pendingTarget.get(node.nodeId));
+            if (!kept.equals(node.shards)) {
+                node.assign(releaseGeneration, kept);
+                awaitingRelease.add(node.nodeId);
+            }
+        }
+
+        if (awaitingRelease.isEmpty()) {
+            finishRebalance();
+        } else {
+            releaseTimeout =
+                    loop.schedule(
+                            () -> {
+                                logger.warn(
+                                        "Nodes {} did not release their shards in time, reassigning anyway",
+                                        awaitingRelease);
+                                finishRebalance();
+                            },
+                            RELEASE_TIMEOUT_MS,
+                            TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /** Second phase: every node gets its full target range. */
+    private void finishRebalance() {
+        if (pendingTarget == null) {
+            return;
+        }
+        if (releaseTimeout != null) {
+            releaseTimeout.cancel(false);
+            releaseTimeout = null;
+        }
+        awaitingRelease.clear();
+        int assignGeneration = ++generation;
+        for (NodeConnection node : nodes.values()) {
+            // Nodes that joined after the split wait for the rebalance their join scheduled
+            Set<Integer> target = pendingTarget.get(node.nodeId);
+            if (target != null && !target.equals(node.shards)) {
+                node.assign(assignGeneration, target);
+            }
+        }
+        logger.info("Shard assignment {}: {}", assignGeneration, pendingTarget);
+        pendingTarget = null;
+    }
+
+    /**
+     * Contiguous ranges, the first {@code total % nodes} nodes taking one extra shard. Consecutive
+     * ids fall into different identify buckets, so every node can identify in parallel.
+     */
+    static Map<String, Set<Integer>> splitShards(List<String> nodeIds, int total) {
+        Map<String, Set<Integer>> ranges = new LinkedHashMap<>();
+        int base = total / nodeIds.size();
+        int extra = total % nodeIds.size();
+        int next = 0;
+        for (int i = 0; i < nodeIds.size(); i++) {
+            int size = base + (i < extra ? 1 : 0);
+            Set<Integer> range = new TreeSet<>();
+            for (int shard = next; shard < next + size; shard++) {
+                range.add(shard);
+            }
+            ranges.put(nodeIds.get(i), range);
+            next += size;
+        }
+        return ranges;
+    }
+
+    private final class NodeConnection {
+        private final Socket socket;
+        private final BufferedWriter writer;
+        private String nodeId;
+        private Set<Integer> shards = Set.of();
+
+        private NodeConnection(Socket socket) throws IOException {
+            this.socket = socket;
+            this.writer =
+                    new BufferedWriter(
+                            new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+        }
+
+        private void assign(int assignGeneration, Set<Integer> assigned) {
+            shards = Collections.unmodifiableSet(new TreeSet<>(assigned));
+            send(
+                    ClusterProtocol.ASSIGN
+                            + " "
+                            + assignGeneration
+                            + " "
+                            + shardsTotal
+                            + " "
+                            + ClusterProtocol.encodeShards(shards));
+        }
+
+        private synchronized void send(String message) {
+            try {
+                writer.write(message);
+                writer.write('\n');
+                writer.flush();
+            } catch (IOException e) {
+                logger.warn("Failed to send to node {}, dropping it", nodeId, e);
+                close();
+            }
+        }
+
+        private void close() {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // Already closed
+            }
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package es.redactado.cluster;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import io.github.cdimascio.dotenv.Dotenv;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import net.dv8tion.jda.api.sharding.ShardManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * This process's membership in the shard cluster.
+ *
+ * <p>{@link #join()} blocks until the {@link ClusterCoordinator} assigns shards, which {@code
+ * Main} passes to {@code setShardsTotal}/{@code setShards}. After {@link #attach(ShardManager)},
+ * later assignments start and stop shards on the running manager. If the coordinator goes away
+ * the node keeps its shards and reconnects in the background.
+ */
+@Singleton
+public class ClusterNode {
+    private static final Logger logger = LoggerFactory.getLogger(ClusterNode.class);
+    private static final long RECONNECT_DELAY_MS = 5_000;
+
+    private final String nodeId;
+    private final String coordinatorHost;
+    private final int coordinatorPort;
+    private final ScheduledExecutorService scheduler =
+            Executors.newSingleThreadScheduledExecutor(
+                    Thread.ofPlatform().name("cluster-node").daemon(true).factory());
+    private final CompletableFuture<ShardAssignment> firstAssignment = new CompletableFuture<>();
+    private final Map<Integer, CompletableFuture<Void>> identifyPermits = new ConcurrentHashMap<>();
+
+    private volatile Socket socket;
+    private volatile BufferedWriter writer;
+    private volatile boolean closed;
+
+    // Written under this; running is also read by the reconnect path
+    private ShardManager shardManager;
+    private ShardAssignment deferred;
+    private volatile Set<Integer> running = Set.of();
+    private int shardsTotal = -1;
+
+    @Inject
+    public ClusterNode(Dotenv dotenv) {
+        // Set a stable id to get the same shards back after a restart
+        String configuredId = dotenv.get("CLUSTER_NODE_ID", "").trim();
+        this.nodeId = configuredId.isEmpty() ? defaultNodeId() : configuredId;
+        this.coordinatorHost = dotenv.get("CLUSTER_COORDINATOR_HOST", "127.0.0.1");
+        this.coordinatorPort = Integer.parseInt(dotenv.get("CLUSTER_COORDINATOR_PORT", "7660"));
+    }
+
+    /** Connects to the coordinator and waits for the first non-empty shard assignment. */
+    public ShardAssignment join() {
+        scheduler.scheduleWithFixedDelay(
+                () -> send(ClusterProtocol.PING),
+                ClusterProtocol.HEARTBEAT_INTERVAL_MS,
+                ClusterProtocol.HEARTBEAT_INTERVAL_MS,
+                TimeUnit.MILLISECONDS);
+        connect();
+        logger.info("Node {} waiting for a shard assignment", nodeId);
+        try {
+            return firstAssignment.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for shards", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to join the cluster", e.getCause());
+        }
+    }
+
+    /** Hands the built manager over, so later assignments are applied to it. */
+    public synchronized void attach(ShardManager shardManager) {
+        this.shardManager = shardManager;
+        if (deferred != null) {
+            apply(deferred);
+            deferred = null;
+        }
+    }
+
+    /**
+     * Blocks until the coordinator allows {@code shardId} to identify, since the identify limit
+     * applies to the bot across all processes. Meant as a {@code GatewaySessionController} hook.
+     */
+    public void awaitIdentify(int shardId) throws InterruptedException {
+        CompletableFuture<Void> permit = new CompletableFuture<>();
+        identifyPermits.put(shardId, permit);
+        if (!send(ClusterProtocol.IDENTIFY + " " + shardId)) {
+            // No coordinator: fall back to the local per-bucket pacing of the session controller
+            identifyPermits.remove(shardId, permit);
+            return;
+        }
+        try {
+            permit.get();
+        } catch (ExecutionException e) {
+            // Completed exceptionally only when the connection is lost
+        }
+    }
+
+    public void leave() {
+        closed = true;
+        scheduler.shutdownNow();
+        closeSocket();
+    }
+
+    private void connect() {
+        if (closed) {
+            return;
+        }
+        try {
+            Socket connected = new Socket(coordinatorHost, coordinatorPort);
+            connected.setTcpNoDelay(true);
+            socket = connected;
+            writer =
+                    new BufferedWriter(
+                            new OutputStreamWriter(
+                                    connected.getOutputStream(), StandardCharsets.UTF_8));
+            send(ClusterProtocol.JOIN + " " + nodeId + " " + ClusterProtocol.encodeShards(running));
+            Thread.ofVirtual().name("cluster-node-reader").start(() -> read(connected));
+            logger.info("Node {} connected to coordinator {}:{}", nodeId, coordinatorHost, coordinatorPort);
+        } catch (IOException e) {
+            logger.warn(
+                    "Cannot reach cluster coordinator {}:{}, retrying: {}",
+                    coordinatorHost,
+                    coordinatorPort,
+                    e.getMessage());
+            scheduler.schedule(this::connect, RECONNECT_DELAY_MS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void read(Socket connected) {
+        try (BufferedReader reader =
+                new BufferedReader(
+                        new InputStreamReader(connected.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                onMessage(line);
+            }
+        } catch (IOException e) {
+            logger.debug("Coordinator connection closed: {}", e.getMessage());
+        }
+        if (closed) {
+            return;
+        }
+        logger.warn("Lost the cluster coordinator, keeping shards {} and reconnecting", running);
+        identifyPermits.values().forEach(permit -> permit.completeExceptionally(new IOException()));
+        identifyPermits.clear();
+        scheduler.schedule(this::connect, RECONNECT_DELAY_MS, TimeUnit.MILLISECONDS);
+    }
+
+    private void onMessage(String line) {
+        String[] parts = line.split(" ");
+        try {
+            switch (parts[0]) {
+                case ClusterProtocol.ASSIGN ->
+                        onAssign(
+                                new ShardAssignment(
+                                        Integer.parseInt(parts[1]),
+                                        Integer.parseInt(parts[2]),
+                                        ClusterProtocol.decodeShards(parts[3])));
+                case ClusterProtocol.IDENTIFY_OK -> {
+                    CompletableFuture<Void> permit =
+                            identifyPermits.remove(Integer.parseInt(parts[1]));
+                    if (permit != null) {
+                        permit.complete(null);
+                    }
+                }
+                case ClusterProtocol.PONG -> {}
+                default -> logger.warn("Unknown message from coordinator: {}", line);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Invalid message from coordinator: {}", line, e);
+        }
+    }
+
+    private synchronized void onAssign(ShardAssignment assignment) {
+        if (shardsTotal != -1 && assignment.shardsTotal() != shardsTotal) {
+            logger.error(
+                    "Coordinator now expects {} shards but this node runs with {}, restart it to follow",
+                    assignment.shardsTotal(),
+                    shardsTotal);
+            return;
+        }
+
+        if (shardManager != null) {
+            apply(assignment);
+        } else if (firstAssignment.isDone()) {
+            // The manager is being built from the first assignment, catch up once it is attached
+            deferred = assignment;
+        } else {
+            // Empty assignments (more nodes than shards) keep join() waiting
+            if (!assignment.shards().isEmpty()) {
+                shardsTotal = assignment.shardsTotal();
+                running = assignment.shards();
+                firstAssignment.complete(assignment);
+            }
+            send(ClusterProtocol.ACK + " " + assignment.generation());
+        }
+    }
+
+    private void apply(ShardAssignment assignment) {
+        Set<Integer> stopped = new TreeSet<>(running);
+        stopped.removeAll(assignment.shards());
+        Set<Integer> started = new TreeSet<>(assignment.shards());
+        started.removeAll(running);
+        for (int shard : stopped) {
+            shardManager.shutdown(shard);
+        }
+        for (int shard : started) {
+            shardManager.start(shard);
+        }
+        running = assignment.shards();
+        if (!stopped.isEmpty() || !started.isEmpty()) {
+            logger.info(
+                    "Assignment {}: stopped shards {}, started shards {}",
+                    assignment.generation(),
+                    stopped,
+                    started);
+        }
+        send(ClusterProtocol.ACK + " " + assignment.generation());
+    }
+
+    private boolean send(String message) {
+        BufferedWriter current = writer;
+        if (current == null) {
+            return false;
+        }
+        try {
+            synchronized (current) {
+                current.write(message);
+                current.write('\n');
+                current.flush();
+            }
+            return true;
+        } catch (IOException e) {
+            closeSocket();
+            return false;
+        }
+    }
+
+    private void closeSocket() {
+        writer = null;
+        Socket current = socket;
+        if (current != null) {
+            try {
+                current.close();
+            } catch (IOException ignored) {
+                // Already closed
+            }
+        }
+    }
+
+    private static String defaultNodeId() {
+        try {
+            return InetAddress.getLocalHost().getHostName() + "-" + ProcessHandle.current().pid();
+        } catch (IOException e) {
+            return "node-" + ProcessHandle.current().pid();
+        }
+    }
+}
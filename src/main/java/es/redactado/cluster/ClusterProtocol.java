@@ -0,0 +1,56 @@
+package es.redactado.cluster;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.TreeSet;
+
+/**
+ * Line-based text protocol between nodes and the coordinator, one space-separated message per
+ * line.
+ *
+ * <pre>
+ * node -> coordinator   JOIN nodeId runningShards | IDENTIFY shardId | ACK generation | PING
+ * coordinator -> node   ASSIGN generation shardsTotal shards | IDENTIFY_OK shardId | PONG
+ * </pre>
+ *
+ * Shard lists are comma separated, or {@code -} when empty.
+ */
+final class ClusterProtocol {
+    static final String JOIN = "JOIN";
+    static final String IDENTIFY = "IDENTIFY";
+    static final String ACK = "ACK";
+    static final String PING = "PING";
+    static final String ASSIGN = "ASSIGN";
+    static final String IDENTIFY_OK = "IDENTIFY_OK";
+    static final String PONG = "PONG";
+
+    /** The coordinator drops a node that sent nothing for this long; nodes ping 3 times as often. */
+    static final int HEARTBEAT_TIMEOUT_MS = 15_000;
+
+    static final int HEARTBEAT_INTERVAL_MS = HEARTBEAT_TIMEOUT_MS / 3;
+
+    private ClusterProtocol() {}
+
+    static String encodeShards(Set<Integer> shards) {
+        if (shards.isEmpty()) {
+            return "-";
+        }
+        StringJoiner joiner = new StringJoiner(",");
+        for (int shard : shards) {
+            joiner.add(Integer.toString(shard));
+        }
+        return joiner.toString();
+    }
+
+    static Set<Integer> decodeShards(String value) {
+        if (value.equals("-")) {
+            return Collections.emptySortedSet();
+        }
+        Set<Integer> shards = new TreeSet<>();
+        for (String shard : value.split(",")) {
+            shards.add(Integer.parseInt(shard));
+        }
+        return Collections.unmodifiableSet(shards);
+    }
+}
@@ -0,0 +1,12 @@
+package es.redactado.cluster;
+
+import java.util.Set;
+
+/**
+ * Shards a node should run, as handed out by the {@link ClusterCoordinator}.
+ *
+ * @param generation increases with every assignment the coordinator sends
+ * @param shardsTotal shard count of the whole bot, the same on every node
+ * @param shards shard ids owned by this node, sorted
+ */
+public record ShardAssignment(int generation, int shardsTotal, Set<Integer> shards) {}
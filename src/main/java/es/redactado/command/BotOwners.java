@@ -0,0 +1,80 @@
+package es.redactado.command;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import io.github.cdimascio.dotenv.Dotenv;
+import java.util.HashSet;
+import java.util.Set;
+import net.dv8tion.jda.api.entities.ApplicationInfo;
+import net.dv8tion.jda.api.entities.ApplicationTeam;
+import net.dv8tion.jda.api.entities.TeamMember;
+import net.dv8tion.jda.api.entities.User;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The people allowed to run bot-wide diagnostics such as {@code /stats} and {@code /jfr-dump}.
+ *
+ * <p>Guild permissions are not enough for those: the administrator of any guild the bot is in
+ * would see, or could grant others, data about every guild and the host. Owners are the users in
+ * {@code OWNER_IDS} (comma separated), or the application's owner and team members when it is
+ * empty.
+ */
+@Singleton
+public class BotOwners {
+    private static final Logger logger = LoggerFactory.getLogger(BotOwners.class);
+
+    private final Set<Long> configured;
+    private volatile Set<Long> applicationOwners;
+
+    @Inject
+    public BotOwners(Dotenv dotenv) {
+        this.configured = parseIds(dotenv.get("OWNER_IDS", ""));
+    }
+
+    /**
+     * Whether {@code user} is an owner. Without {@code OWNER_IDS} the first call blocks on
+     * retrieving the application info, so call it from a command handler, not a JDA thread.
+     */
+    public boolean isOwner(User user) {
+        if (!configured.isEmpty()) {
+            return configured.contains(user.getIdLong());
+        }
+        Set<Long> owners = applicationOwners;
+        if (owners == null) {
+            owners = retrieveApplicationOwners(user);
+        }
+        return owners.contains(user.getIdLong());
+    }
+
+    private Set<Long> retrieveApplicationOwners(User user) {
+        try {
+            ApplicationInfo info = user.getJDA().retrieveApplicationInfo().complete();
+            Set<Long> owners = new HashSet<>();
+            owners.add(info.getOwner().getIdLong());
+            ApplicationTeam team = info.getTeam();
+            if (team != null) {
+                for (TeamMember member : team.getMembers()) {
+                    owners.add(member.getUser().getIdLong());
+                }
+            }
+            applicationOwners = Set.copyOf(owners);
+            return applicationOwners;
+        } catch (RuntimeException e) {
+            // Deny, and try again on the next call
+            logger.warn("Failed to retrieve the application owners", e);
+            return Set.of();
+        }
+    }
+
+    private static Set<Long> parseIds(String value) {
+        Set<Long> ids = new HashSet<>();
+        for (String id : value.split(",")) {
+            String trimmed = id.trim();
+            if (!trimmed.isEmpty()) {
+                ids.add(Long.parseLong(trimmed));
+            }
+        }
+        return Set.copyOf(ids);
+    }
+}
@@ -0,0 +1,91 @@
+package es.redactado.command;
+
+import com.google.inject.Inject;
+import es.redactado.command.handler.CommandExecutionController;
+import es.redactado.command.type.BaseSlashCommand;
+import es.redactado.command.type.RateLimit;
+import es.redactado.jfr.FlightRecording;
+import io.sentry.Sentry;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import net.dv8tion.jda.api.Permission;
+import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
+import net.dv8tion.jda.api.interactions.InteractionContextType;
+import net.dv8tion.jda.api.interactions.commands.DefaultMemberPermissions;
+import net.dv8tion.jda.api.interactions.commands.build.Commands;
+import net.dv8tion.jda.api.interactions.commands.build.SlashCommandData;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Owner-only dump of the running flight recordings to {@code JFR_DUMP_DIR}. The file stays on the
+ * host: recordings hold environment variables, system properties and JVM arguments, so they are
+ * never uploaded to Discord.
+ */
+public class JfrDumpCommand implements BaseSlashCommand {
+    private static final Logger logger = LoggerFactory.getLogger(JfrDumpCommand.class);
+
+    private final FlightRecording flightRecording;
+    private final BotOwners owners;
+    private final CommandExecutionController executionController;
+
+    @Inject
+    public JfrDumpCommand(
+            FlightRecording flightRecording,
+            BotOwners owners,
+            CommandExecutionController executionController) {
+        this.flightRecording = flightRecording;
+        this.owners = owners;
+        this.executionController = executionController;
+    }
+
+    @Override
+    public SlashCommandData getCommandData() {
+        return Commands.slash("jfr-dump", "Dump the flight recording to diagnose a latency spike")
+                .setNSFW(false)
+                .setContexts(InteractionContextType.GUILD)
+                .setDefaultPermissions(DefaultMemberPermissions.enabledFor(Permission.ADMINISTRATOR));
+    }
+
+    @Override
+    public RateLimit getRateLimit() {
+        return RateLimit.perUser(1, Duration.ofMinutes(1));
+    }
+
+    @Override
+    public boolean isEphemeral() {
+        return true;
+    }
+
+    @Override
+    public void handle(SlashCommandInteractionEvent event) {
+        executionController.deferReply(event, true);
+        if (!owners.isOwner(event.getUser())) {
+            event.getHook().sendMessage("`⛔` Only the bot owners can use this command.").queue();
+            return;
+        }
+        Path file;
+        long size;
+        try {
+            file = flightRecording.dump();
+            size = Files.size(file);
+        } catch (IllegalStateException e) {
+            event.getHook().sendMessage("`⚠️` " + e.getMessage()).queue();
+            return;
+        } catch (IOException e) {
+            logger.error("Failed to dump flight recording", e);
+            Sentry.captureException(e);
+            event.getHook().sendMessage("`❌` Could not write the recording, see the logs").queue();
+            return;
+        }
+
+        event.getHook()
+                .sendMessage(
+                        String.format(
+                                "`🎞️` Flight recording `%s` written (%d KiB)",
+                                file.getFileName(), size / 1024))
+                .queue();
+    }
+}
@@ -0,0 +1,149 @@
+package es.redactado.command;
+
+import com.google.inject.Inject;
+import es.redactado.command.handler.CommandExecutionController;
+import es.redactado.command.type.BaseMessageContextCommand;
+import es.redactado.command.type.RateLimit;
+import es.redactado.ocr.AttachmentDownloader;
+import es.redactado.ocr.OcrEngine;
+import io.sentry.Sentry;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.events.interaction.command.MessageContextInteractionEvent;
+import net.dv8tion.jda.api.interactions.InteractionContextType;
+import net.dv8tion.jda.api.interactions.commands.build.CommandData;
+import net.dv8tion.jda.api.interactions.commands.build.Commands;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/** Message context command that reads the text in a message's images. */
+public class OcrCommand implements BaseMessageContextCommand {
+    private static final Logger logger = LoggerFactory.getLogger(OcrCommand.class);
+    private static final int MAX_IMAGES = 4;
+    private static final int MAX_MESSAGE_LENGTH = 2000;
+    // The code fence around an image's text and the line break after it
+    private static final int FENCE_LENGTH = "```\n\n```\n".length();
+
+    private final OcrEngine engine;
+    private final AttachmentDownloader downloader;
+    private final CommandExecutionController executionController;
+
+    @Inject
+    public OcrCommand(
+            OcrEngine engine,
+            AttachmentDownloader downloader,
+            CommandExecutionController executionController) {
+        this.engine = engine;
+        this.downloader = downloader;
+        this.executionController = executionController;
+    }
+
+    @Override
+    public CommandData getCommandData() {
+        return Commands.message("Extract text").setContexts(InteractionContextType.GUILD);
+    }
+
+    @Override
+    public RateLimit getRateLimit() {
+        return RateLimit.perUser(3, Duration.ofSeconds(30));
+    }
+
+    @Override
+    public void handle(MessageContextInteractionEvent event) {
+        List<Message.Attachment> images =
+                event.getTarget().getAttachments().stream()
+                        .filter(Message.Attachment::isImage)
+                        .limit(MAX_IMAGES)
+                        .toList();
+        if (images.isEmpty()) {
+            String message = "`🖼️` That message has no images to read.";
+            if (executionController.claimAcknowledgement(event)) {
+                event.reply(message).setEphemeral(true).queue();
+            } else {
+                event.getHook().sendMessage(message).queue();
+            }
+            return;
+        }
+        executionController.deferReply(event, false);
+
+        List<String> headers =
+                images.stream()
+                        .map(image -> images.size() > 1 ? "**" + image.getFileName() + "**\n" : "")
+                        .toList();
+        // Each image's text gets an equal share of what the headers and fences leave
+        int headerLength = headers.stream().mapToInt(String::length).sum();
+        int maxTextLength =
+                Math.max(1, (MAX_MESSAGE_LENGTH - headerLength) / images.size() - FENCE_LENGTH);
+
+        // Download everything first so all images wait for OCR workers at the same time
+        StringBuilder reply = new StringBuilder();
+        List<CompletableFuture<String>> results =
+                images.stream().map(image -> recognize(image, maxTextLength)).toList();
+        for (int i = 0; i < images.size(); i++) {
+            reply.append(headers.get(i)).append(results.get(i).join()).append('\n');
+        }
+        event.getHook().sendMessage(reply.toString()).queue();
+    }
+
+    /**
+     * Never completes exceptionally: failures become the text shown for that image. Text longer
+     * than {@code maxTextLength} is cut before it is fenced, so the block always closes.
+     */
+    private CompletableFuture<String> recognize(Message.Attachment attachment, int maxTextLength) {
+        byte[] image;
+        try {
+            image = downloader.download(attachment);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.completedFuture("`⚠️` " + e.getMessage());
+        } catch (IOException e) {
+            logger.warn("Failed to download {}: {}", attachment.getUrl(), e.getMessage());
+            return CompletableFuture.completedFuture("`❌` Could not download this image.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.completedFuture("`❌` Could not download this image.");
+        }
+
+        return engine.recognize(image)
+                .handle(
+                        (result, error) -> {
+                            if (error == null) {
+                                String text = result.text().strip();
+                                if (text.isEmpty()) {
+                                    return "_No text found._";
+                                }
+                                // A zero-width space keeps the text from closing the block
+                                String escaped = text.replace("```", "`​``");
+                                return "```\n" + truncate(escaped, maxTextLength) + "\n```";
+                            }
+                            Throwable cause =
+                                    error instanceof CompletionException ? error.getCause() : error;
+                            if (cause instanceof RejectedExecutionException) {
+                                return "`🚦` OCR is busy right now, please try again in a moment.";
+                            }
+                            if (cause instanceof IllegalArgumentException) {
+                                return "`⚠️` " + cause.getMessage();
+                            }
+                            logger.error("OCR failed for {}", attachment.getUrl(), cause);
+                            Sentry.captureException(cause);
+                            return "`❌` Could not read this image.";
+                        });
+    }
+
+    /** Cuts {@code text} to at most {@code maxLength} characters, never inside a surrogate pair. */
+    private static String truncate(String text, int maxLength) {
+        if (text.length() <= maxLength) {
+            return text;
+        }
+        // Leave room for the ellipsis
+        int end = maxLength - 1;
+        if (end > 0 && Character.isHighSurrogate(text.charAt(end - 1))) {
+            end--;
+        }
+        return text.substring(0, end) + "…";
+    }
+}
@@ -1,12 +1,26 @@
 package es.redactado.command;
 
+import com.google.inject.Inject;
+import es.redactado.command.handler.CommandExecutionController;
 import es.redactado.command.type.BaseSlashCommand;
+import java.util.concurrent.TimeUnit;
+import net.dv8tion.jda.api.JDA;
 import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
 import net.dv8tion.jda.api.interactions.InteractionContextType;
 import net.dv8tion.jda.api.interactions.commands.build.Commands;
 import net.dv8tion.jda.api.interactions.commands.build.SlashCommandData;
+import net.dv8tion.jda.api.sharding.ShardManager;
 
 public class PingCommand implements BaseSlashCommand {
+    /** Above this many shards only the current one and the average are shown. */
+    private static final int MAX_SHARDS_LISTED = 10;
+
+    private final CommandExecutionController executionController;
+
+    @Inject
+    public PingCommand(CommandExecutionController executionController) {
+        this.executionController = executionController;
+    }
 
     @Override
     public SlashCommandData getCommandData() {
@@ -17,26 +31,66 @@ public class PingCommand implements BaseSlashCommand {
 
     @Override
     public void handle(SlashCommandInteractionEvent event) {
-        // Defer the reply to show "Bot is thinking..." indicator
-        event.deferReply().queue();
-
-        // Measure the time it takes for the API to process the command
-        long startTime = System.currentTimeMillis();
-
-        // Calculate response time
-        long responseTime = System.currentTimeMillis() - startTime;
-
-        // Get the gateway ping (WebSocket connection latency)
-        long gatewayPing = event.getJDA().getGatewayPing();
-
-        // Send a detailed response with both response time and gateway ping
-        event.getHook()
-                .sendMessage(
-                        String.format(
-                                "`🏓` Pong!\n"
-                                        + "`⏱️` Response time: %d ms\n"
-                                        + "`🌐` Gateway ping: %d ms",
-                                responseTime, gatewayPing))
-                .queue();
+        long handlerStart = System.nanoTime();
+        String shardPings = describeGatewayPings(event.getJDA());
+        // The handler's own work, up to the first request it sends
+        long handlerMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - handlerStart);
+
+        if (!executionController.claimAcknowledgement(event)) {
+            // Deferred while it waited to run, so there is no round trip of our own to time
+            event.getHook().sendMessage(pong("-", handlerMicros, shardPings)).queue();
+            return;
+        }
+
+        // Defer the reply to show "Bot is thinking..." indicator; the time until Discord
+        // confirms it is a full REST round trip
+        long deferSent = System.nanoTime();
+        event.deferReply()
+                .queue(
+                        hook -> {
+                            long restRoundTrip =
+                                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - deferSent);
+                            hook.sendMessage(pong(restRoundTrip + " ms", handlerMicros, shardPings))
+                                    .queue();
+                        });
+    }
+
+    private static String pong(String restRoundTrip, long handlerMicros, String shardPings) {
+        return String.format(
+                "`🏓` Pong!\n"
+                        + "`⏱️` REST round trip: %s\n"
+                        + "`🛠️` Handler time: %d µs\n"
+                        + "`🌐` Gateway ping: %s",
+                restRoundTrip, handlerMicros, shardPings);
+    }
+
+    private static String describeGatewayPings(JDA jda) {
+        ShardManager shardManager = jda.getShardManager();
+        if (shardManager == null || shardManager.getShardsTotal() <= 1) {
+            return jda.getGatewayPing() + " ms";
+        }
+
+        int currentShard = jda.getShardInfo().getShardId();
+        if (shardManager.getShardsTotal() > MAX_SHARDS_LISTED) {
+            return String.format(
+                    "%d ms (shard %d), %.0f ms average over %d shards",
+                    jda.getGatewayPing(),
+                    currentShard,
+                    shardManager.getAverageGatewayPing(),
+                    shardManager.getShardsTotal());
+        }
+
+        StringBuilder pings = new StringBuilder();
+        for (JDA shard : shardManager.getShardCache()) {
+            int shardId = shard.getShardInfo().getShardId();
+            pings.append("\n  ")
+                    .append(shardId == currentShard ? "▶ " : "")
+                    .append("shard ")
+                    .append(shardId)
+                    .append(": ")
+                    .append(shard.getGatewayPing())
+                    .append(" ms");
+        }
+        return pings.toString();
     }
 }
@@ -0,0 +1,190 @@
+package es.redactado.command;
+
+import com.google.inject.Inject;
+import es.redactado.command.handler.CommandExecutionController;
+import es.redactado.command.type.BaseSlashCommand;
+import es.redactado.database.DatabaseManager;
+import es.redactado.database.DatabaseStatistics;
+import es.redactado.metrics.CacheFootprint;
+import es.redactado.metrics.CommandMetrics;
+import es.redactado.metrics.LatencyHistogram;
+import es.redactado.metrics.RestMetrics;
+import es.redactado.ocr.OcrEngine;
+import es.redactado.rest.RestLane;
+import es.redactado.rest.RestLanes;
+import java.util.List;
+import net.dv8tion.jda.api.Permission;
+import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
+import net.dv8tion.jda.api.interactions.InteractionContextType;
+import net.dv8tion.jda.api.interactions.commands.DefaultMemberPermissions;
+import net.dv8tion.jda.api.interactions.commands.build.Commands;
+import net.dv8tion.jda.api.interactions.commands.build.SlashCommandData;
+import net.dv8tion.jda.api.sharding.ShardManager;
+
+/**
+ * Owner-only overview of command latencies, errors, executor load and cache footprint. The figures
+ * cover every guild, so guild administrators are not enough, see {@link BotOwners}.
+ */
+public class StatsCommand implements BaseSlashCommand {
+    private static final int MAX_COMMANDS_SHOWN = 10;
+
+    private final CommandMetrics metrics;
+    private final CommandExecutionController executionController;
+    private final CacheFootprint cacheFootprint;
+    private final OcrEngine ocrEngine;
+    private final RestLanes restLanes;
+    private final RestMetrics restMetrics;
+    private final DatabaseManager databaseManager;
+    private final BotOwners owners;
+
+    @Inject
+    public StatsCommand(
+            CommandMetrics metrics,
+            CommandExecutionController executionController,
+            CacheFootprint cacheFootprint,
+            OcrEngine ocrEngine,
+            RestLanes restLanes,
+            RestMetrics restMetrics,
+            DatabaseManager databaseManager,
+            BotOwners owners) {
+        this.metrics = metrics;
+        this.executionController = executionController;
+        this.cacheFootprint = cacheFootprint;
+        this.ocrEngine = ocrEngine;
+        this.restLanes = restLanes;
+        this.restMetrics = restMetrics;
+        this.databaseManager = databaseManager;
+        this.owners = owners;
+    }
+
+    @Override
+    public SlashCommandData getCommandData() {
+        return Commands.slash("stats", "Show command latency statistics")
+                .setNSFW(false)
+                .setContexts(InteractionContextType.GUILD)
+                .setDefaultPermissions(DefaultMemberPermissions.enabledFor(Permission.ADMINISTRATOR));
+    }
+
+    @Override
+    public boolean isEphemeral() {
+        return true;
+    }
+
+    @Override
+    public void handle(SlashCommandInteractionEvent event) {
+        executionController.deferReply(event, true);
+        if (!owners.isOwner(event.getUser())) {
+            event.getHook().sendMessage("`⛔` Only the bot owners can use this command.").queue();
+            return;
+        }
+        StringBuilder message = new StringBuilder("`📊` Command statistics (ms, p50/p99/p99.9)\n```\n");
+        message.append(
+                String.format(
+                        "%-12s %7s %5s %5s %-17s %-17s %-11s%n",
+                        "command", "calls", "err", "rej", "execution", "queue wait", "first ack"));
+
+        List<CommandMetrics.Stats.Snapshot> snapshots = metrics.snapshot();
+        for (CommandMetrics.Stats.Snapshot snapshot :
+                snapshots.subList(0, Math.min(MAX_COMMANDS_SHOWN, snapshots.size()))) {
+            message.append(
+                    String.format(
+                            "%-12.12s %7d %5d %5d %-17s %-17s %-11s%n",
+                            snapshot.name(),
+                            snapshot.invocations(),
+                            snapshot.errors(),
+                            snapshot.rejected(),
+                            percentiles(snapshot.execution(), true),
+                            percentiles(snapshot.queueWait(), true),
+                            percentiles(snapshot.timeToFirstAck(), false)));
+        }
+        message.append("```\n");
+        message.append(
+                String.format(
+                        "`⚙️` Running: %d · Queued: %d · Shed: %d · Expired: %d · Auto-deferred: %d",
+                        executionController.getRunning(),
+                        executionController.getQueued(),
+                        executionController.getShedCount(),
+                        executionController.getExpiredCount(),
+                        executionController.getAutoDeferredCount()));
+        ShardManager shardManager = event.getJDA().getShardManager();
+        if (shardManager != null) {
+            CacheFootprint.Report footprint = cacheFootprint.measure(shardManager);
+            message.append(
+                    String.format(
+                            "%n`🧠` Cache %s: %d guilds · ~%d KiB/guild · ~%d members/guild",
+                            footprint.profile(),
+                            footprint.guilds(),
+                            footprint.bytesPerGuild() / 1024,
+                            footprint.membersPerGuild()));
+        }
+        message.append(
+                String.format(
+                        "%n`📡` REST interactions %s ms · Held user/background: %d/%d · Dropped: %d%s",
+                        percentiles(restLanes.getInteractionLatency().snapshot(), false),
+                        restLanes.getHeld(RestLane.USER),
+                        restLanes.getHeld(RestLane.BACKGROUND),
+                        restLanes.getDroppedCount(),
+                        restLanes.isCongested() ? " · congested" : ""));
+        List<RestMetrics.RouteStats.Snapshot> routes = restMetrics.snapshot();
+        if (!routes.isEmpty() && routes.get(0).wait().count() > 0) {
+            RestMetrics.RouteStats.Snapshot busiest = routes.get(0);
+            message.append(
+                    String.format(
+                            "%n`🚏` Busiest route: %s · queued %d · wait %s ms",
+                            busiest.name(),
+                            busiest.queued(),
+                            percentiles(busiest.wait(), false)));
+        }
+        LatencyHistogram.Snapshot ocr = ocrEngine.getRecognitionTime().snapshot();
+        if (ocr.count() > 0 || ocrEngine.getRejectedCount() > 0) {
+            message.append(
+                    String.format(
+                            "%n`🔎` OCR %s ms · Queued: %d · Busy workers: %d · Cache hits: %.0f%% · Rejected: %d",
+                            percentiles(ocr, false),
+                            ocrEngine.getQueueDepth(),
+                            ocrEngine.getActiveWorkers(),
+                            ocrEngine.getCacheStats().hitRate() * 100,
+                            ocrEngine.getRejectedCount()));
+        }
+        DatabaseStatistics.Snapshot database = databaseManager.getStatistics().getLatest();
+        if (database != null && database.pool() != null) {
+            DatabaseStatistics.Pool pool = database.pool();
+            message.append(
+                    String.format(
+                            "%n`🗄️` DB pool %d/%d active · Idle: %d · Waiting: %d · Busy: %.0f%% · Acquire %s ms%s",
+                            pool.active(),
+                            pool.maxSize(),
+                            pool.idle(),
+                            pool.waiting(),
+                            pool.utilisation() * 100,
+                            percentiles(pool.recentAcquire(), false),
+                            databaseManager.getStatistics().isAdaptive() ? " · adaptive" : ""));
+        }
+        if (database != null && database.hibernate() != null) {
+            DatabaseStatistics.Hibernate hibernate = database.hibernate();
+            message.append(
+                    String.format(
+                            "%n`🧮` Queries: %d · Slowest: %d ms · Slow queries: %d · L2 hits: %.0f%%",
+                            hibernate.queries(),
+                            hibernate.maxQueryMillis(),
+                            hibernate.slowQueries().size(),
+                            hibernate.cacheHitRatio() * 100));
+        }
+
+        event.getHook().sendMessage(message.toString()).queue();
+    }
+
+    private static String percentiles(LatencyHistogram.Snapshot snapshot, boolean withP999) {
+        if (snapshot.count() == 0) {
+            return "-";
+        }
+        String value = millis(snapshot.p50()) + "/" + millis(snapshot.p99());
+        return withP999 ? value + "/" + millis(snapshot.p999()) : value;
+    }
+
+    private static String millis(long micros) {
+        return micros >= 10_000
+                ? String.valueOf(micros / 1000)
+                : String.format("%.1f", micros / 1000.0);
+    }
+}
@@ -0,0 +1,63 @@
+package es.redactado.command.handler;
+
+import es.redactado.command.type.BaseMessageContextCommand;
+import es.redactado.command.type.BaseSlashCommand;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Immutable snapshot of every registered command, keyed by name.
+ *
+ * <p>{@link CommandRegister} publishes a new table atomically whenever commands are added,
+ * replaced or removed, so lookups on the interaction path never lock and always see a consistent
+ * set of commands.
+ */
+final class CommandDispatchTable {
+    static final CommandDispatchTable EMPTY = new CommandDispatchTable(Map.of(), Map.of());
+
+    private final Map<String, BaseSlashCommand> slashCommands;
+    private final Map<String, BaseMessageContextCommand> messageContextCommands;
+
+    private CommandDispatchTable(
+            Map<String, BaseSlashCommand> slashCommands,
+            Map<String, BaseMessageContextCommand> messageContextCommands) {
+        this.slashCommands = Map.copyOf(slashCommands);
+        this.messageContextCommands = Map.copyOf(messageContextCommands);
+    }
+
+    BaseSlashCommand slash(String name) {
+        return slashCommands.get(name);
+    }
+
+    BaseMessageContextCommand messageContext(String name) {
+        return messageContextCommands.get(name);
+    }
+
+    Map<String, BaseSlashCommand> slashCommands() {
+        return slashCommands;
+    }
+
+    Map<String, BaseMessageContextCommand> messageContextCommands() {
+        return messageContextCommands;
+    }
+
+    CommandDispatchTable withSlash(String name, BaseSlashCommand command) {
+        Map<String, BaseSlashCommand> copy = new HashMap<>(slashCommands);
+        if (command == null) {
+            copy.remove(name);
+        } else {
+            copy.put(name, command);
+        }
+        return new CommandDispatchTable(copy, messageContextCommands);
+    }
+
+    CommandDispatchTable withMessageContext(String name, BaseMessageContextCommand command) {
+        Map<String, BaseMessageContextCommand> copy = new HashMap<>(messageContextCommands);
+        if (command == null) {
+            copy.remove(name);
+        } else {
+            copy.put(name, command);
+        }
+        return new CommandDispatchTable(slashCommands, copy);
+    }
+}
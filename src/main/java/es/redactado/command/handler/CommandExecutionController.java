@@ -0,0 +1,297 @@
+package es.redactado.command.handler;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import es.redactado.jfr.CommandEvent;
+import es.redactado.metrics.CommandMetrics;
+import io.github.cdimascio.dotenv.Dotenv;
+import io.sentry.Sentry;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import net.dv8tion.jda.api.interactions.callbacks.IReplyCallback;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs command handlers under bounded concurrency.
+ *
+ * <ul>
+ *   <li>A global semaphore ({@code COMMAND_MAX_CONCURRENCY}) and optional per-command semaphores
+ *       cap how many handlers run at once, so a spike can't exhaust Hikari or the REST queue.
+ *   <li>At most {@code COMMAND_MAX_QUEUED} interactions may wait for a permit. Beyond that, new
+ *       interactions are shed with an ephemeral "busy" reply.
+ *   <li>Interactions still waiting when Discord's 3 second window closes are dropped, since
+ *       they can no longer be answered.
+ *   <li>If a handler hasn't acknowledged its interaction within {@code COMMAND_AUTO_DEFER_MS},
+ *       {@code deferReply()} is sent on its behalf, ephemeral if the command asks for it. JDA only
+ *       marks an interaction acknowledged once the request is sent, so handlers acknowledge
+ *       through {@link #claimAcknowledgement} or {@link #deferReply}; whichever side loses the
+ *       claim leaves the interaction alone, and a losing handler answers through the hook.
+ *   <li>Once {@link #stopAccepting()} is called during shutdown, new interactions get a
+ *       "restarting" reply and {@link #awaitIdle} waits for the rest to finish.
+ * </ul>
+ */
+@Singleton
+public class CommandExecutionController {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CommandExecutionController.class);
+
+    /** Discord invalidates an interaction that isn't acknowledged within 3 seconds. */
+    private static final long INTERACTION_WINDOW_NANOS = TimeUnit.SECONDS.toNanos(3);
+
+    private static final long IDLE_POLL_MILLIS = 20;
+
+    private final Executor commandExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final ScheduledExecutorService deferScheduler =
+            Executors.newSingleThreadScheduledExecutor(
+                    Thread.ofPlatform().name("command-auto-defer").daemon(true).factory());
+
+    private final Semaphore globalPermits;
+    private final Map<Object, Semaphore> commandPermits = new ConcurrentHashMap<>();
+    // Acknowledgement claims of the running handlers, keyed by interaction id
+    private final Map<Long, AtomicBoolean> acknowledgements = new ConcurrentHashMap<>();
+    private final int maxQueued;
+    private final long autoDeferNanos;
+
+    private volatile boolean accepting = true;
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger running = new AtomicInteger();
+    private final LongAdder shed = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+    private final LongAdder autoDeferred = new LongAdder();
+
+    private final CommandMetrics metrics;
+
+    @Inject
+    public CommandExecutionController(Dotenv dotenv, CommandMetrics metrics) {
+        this.metrics = metrics;
+        this.globalPermits =
+                new Semaphore(Integer.parseInt(dotenv.get("COMMAND_MAX_CONCURRENCY", "256")), true);
+        this.maxQueued = Integer.parseInt(dotenv.get("COMMAND_MAX_QUEUED", "1000"));
+        this.autoDeferNanos =
+                TimeUnit.MILLISECONDS.toNanos(
+                        Long.parseLong(dotenv.get("COMMAND_AUTO_DEFER_MS", "2000")));
+    }
+
+    /**
+     * Schedules the handler. Returns {@code false} if the interaction was shed because too many
+     * are already waiting or the bot is shutting down; it has then been answered with a reply
+     * saying so.
+     */
+    public boolean submit(
+            Object command,
+            String commandName,
+            String commandType,
+            int maxConcurrency,
+            boolean ephemeral,
+            IReplyCallback interaction,
+            Runnable handler) {
+        long receivedAt = System.nanoTime();
+        CommandMetrics.Stats stats = metrics.statsFor(command, commandName);
+        if (!accepting) {
+            stats.recordRejected();
+            interaction
+                    .reply("`🔄` The bot is restarting, please try again in a few seconds.")
+                    .setEphemeral(true)
+                    .queue(null, error -> {});
+            return false;
+        }
+        if (queued.incrementAndGet() > maxQueued) {
+            queued.decrementAndGet();
+            shed.increment();
+            stats.recordRejected();
+            interaction
+                    .reply("`🚦` The bot is under heavy load right now, please try again in a moment.")
+                    .setEphemeral(true)
+                    .queue(null, error -> {});
+            return false;
+        }
+
+        metrics.expectAck(interaction.getIdLong(), stats, receivedAt);
+        commandExecutor.execute(
+                () ->
+                        run(
+                                command,
+                                commandName,
+                                commandType,
+                                maxConcurrency,
+                                ephemeral,
+                                interaction,
+                                handler,
+                                stats,
+                                receivedAt));
+        return true;
+    }
+
+    private void run(
+            Object command,
+            String commandName,
+            String commandType,
+            int maxConcurrency,
+            boolean ephemeral,
+            IReplyCallback interaction,
+            Runnable handler,
+            CommandMetrics.Stats stats,
+            long receivedAt) {
+        Semaphore perCommand = maxConcurrency > 0 ? permitsFor(command, maxConcurrency) : null;
+        boolean globalAcquired = false;
+        boolean commandAcquired = false;
+        try {
+            long deadline = receivedAt + INTERACTION_WINDOW_NANOS;
+            globalAcquired =
+                    globalPermits.tryAcquire(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            commandAcquired =
+                    globalAcquired
+                            && (perCommand == null
+                                    || perCommand.tryAcquire(
+                                            deadline - System.nanoTime(), TimeUnit.NANOSECONDS));
+            queued.decrementAndGet();
+
+            if (!globalAcquired || !commandAcquired) {
+                // Too late to answer, so running it would only add load
+                expired.increment();
+                stats.recordRejected();
+                LOGGER.warn("Dropping interaction that waited past Discord's response window");
+                return;
+            }
+
+            running.incrementAndGet();
+            long startedAt = System.nanoTime();
+            stats.recordQueueWait(startedAt - receivedAt);
+            AtomicBoolean acknowledged = new AtomicBoolean();
+            acknowledgements.put(interaction.getIdLong(), acknowledged);
+            ScheduledFuture<?> autoDefer =
+                    scheduleAutoDefer(interaction, ephemeral, acknowledged, receivedAt);
+            CommandEvent commandEvent = new CommandEvent();
+            commandEvent.begin();
+            boolean failed = false;
+            try {
+                handler.run();
+            } catch (Exception e) {
+                failed = true;
+                stats.recordError();
+                Sentry.captureException(e);
+            } finally {
+                stats.recordExecution(System.nanoTime() - startedAt);
+                commandEvent.finish(commandName, commandType, startedAt - receivedAt, failed);
+                autoDefer.cancel(false);
+                acknowledgements.remove(interaction.getIdLong());
+                running.decrementAndGet();
+            }
+        } catch (InterruptedException e) {
+            queued.decrementAndGet();
+            Thread.currentThread().interrupt();
+        } finally {
+            if (commandAcquired && perCommand != null) {
+                perCommand.release();
+            }
+            if (globalAcquired) {
+                globalPermits.release();
+            }
+        }
+    }
+
+    /** Makes every further {@link #submit} answer with a "restarting" reply instead of running. */
+    public void stopAccepting() {
+        accepting = false;
+    }
+
+    /**
+     * Waits until no handler is queued or running. Returns {@code false} if some are still busy
+     * when the timeout expires.
+     */
+    public boolean awaitIdle(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (queued.get() > 0 || running.get() > 0) {
+            if (System.nanoTime() >= deadline) {
+                return false;
+            }
+            Thread.sleep(IDLE_POLL_MILLIS);
+        }
+        return true;
+    }
+
+    /**
+     * Claims the right to acknowledge an interaction whose handler is running. Returns {@code
+     * false} if the auto-defer already did, in which case the handler answers through {@code
+     * getHook()} instead of replying.
+     */
+    public boolean claimAcknowledgement(IReplyCallback interaction) {
+        AtomicBoolean acknowledged = acknowledgements.get(interaction.getIdLong());
+        if (acknowledged == null) {
+            // Not run by this controller, nothing else will acknowledge it
+            return !interaction.isAcknowledged();
+        }
+        return acknowledged.compareAndSet(false, true);
+    }
+
+    /**
+     * Defers the reply unless the auto-defer already has. Either way the handler then answers
+     * through {@code getHook()}. If the auto-defer won, the reply is ephemeral only when the
+     * command says so through {@code isEphemeral()}.
+     */
+    public void deferReply(IReplyCallback interaction, boolean ephemeral) {
+        if (claimAcknowledgement(interaction)) {
+            interaction.deferReply(ephemeral).queue();
+        }
+    }
+
+    private ScheduledFuture<?> scheduleAutoDefer(
+            IReplyCallback interaction,
+            boolean ephemeral,
+            AtomicBoolean acknowledged,
+            long receivedAt) {
+        long delay = Math.max(0, receivedAt + autoDeferNanos - System.nanoTime());
+        return deferScheduler.schedule(
+                () -> {
+                    if (acknowledged.compareAndSet(false, true) && !interaction.isAcknowledged()) {
+                        autoDeferred.increment();
+                        interaction
+                                .deferReply(ephemeral)
+                                .queue(
+                                        null,
+                                        error ->
+                                                LOGGER.debug(
+                                                        "Auto-defer failed: {}", error.getMessage()));
+                    }
+                },
+                delay,
+                TimeUnit.NANOSECONDS);
+    }
+
+    private Semaphore permitsFor(Object command, int maxConcurrency) {
+        Semaphore permits = commandPermits.get(command);
+        if (permits == null) {
+            permits = commandPermits.computeIfAbsent(command, key -> new Semaphore(maxConcurrency, true));
+        }
+        return permits;
+    }
+
+    public int getQueued() {
+        return queued.get();
+    }
+
+    public int getRunning() {
+        return running.get();
+    }
+
+    public long getShedCount() {
+        return shed.sum();
+    }
+
+    public long getExpiredCount() {
+        return expired.sum();
+    }
+
+    public long getAutoDeferredCount() {
+        return autoDeferred.sum();
+    }
+}
@@ -1,67 +1,146 @@
 package es.redactado.command.handler;
 
 import com.google.inject.Inject;
-import io.sentry.Sentry;
-import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
-import java.util.function.Supplier;
+import es.redactado.command.ratelimit.CommandRateLimiter;
+import es.redactado.command.type.BaseMessageContextCommand;
+import es.redactado.command.type.BaseSlashCommand;
+import es.redactado.command.type.RateLimit;
+import es.redactado.metrics.CommandMetrics;
 import net.dv8tion.jda.api.events.interaction.command.MessageContextInteractionEvent;
 import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
 import net.dv8tion.jda.api.hooks.ListenerAdapter;
+import net.dv8tion.jda.api.interactions.callbacks.IReplyCallback;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 public class CommandListener extends ListenerAdapter {
     private static final Logger LOGGER = LoggerFactory.getLogger(CommandListener.class);
     private final CommandRegister commandRegister;
-    private final Executor commandExecutor;
+    private final CommandRateLimiter rateLimiter;
+    private final CommandExecutionController executionController;
+    private final CommandMetrics metrics;
 
     @Inject
-    public CommandListener(CommandRegister commandRegister) {
+    public CommandListener(
+            CommandRegister commandRegister,
+            CommandRateLimiter rateLimiter,
+            CommandExecutionController executionController,
+            CommandMetrics metrics) {
         this.commandRegister = commandRegister;
-        this.commandExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        this.rateLimiter = rateLimiter;
+        this.executionController = executionController;
+        this.metrics = metrics;
     }
 
     @Override
     public void onMessageContextInteraction(MessageContextInteractionEvent event) {
         String commandName = event.getInteraction().getName();
-        handleCommand(
-                commandName,
-                "message context",
-                () -> commandRegister.getMessageContextCommandMap().containsKey(commandName),
-                () -> commandRegister.getUserContextCommand(commandName).handle(event));
+        BaseMessageContextCommand command = commandRegister.getUserContextCommand(commandName);
+        if (command == null) {
+            commandNotFound(commandName, "message context");
+            return;
+        }
+        handleCommand(commandName, "message context", new MessageContextTask(command, event));
     }
 
     @Override
     public void onSlashCommandInteraction(SlashCommandInteractionEvent event) {
         String commandName = event.getInteraction().getName();
-        handleCommand(
+        BaseSlashCommand command = commandRegister.getSlashCommand(commandName);
+        if (command == null) {
+            commandNotFound(commandName, "slash");
+            return;
+        }
+        handleCommand(commandName, "slash", new SlashTask(command, event));
+    }
+
+    /**
+     * Applies rate limits and hands an already resolved command to the execution controller,
+     * which enforces concurrency limits, load shedding and auto-defer.
+     */
+    private void handleCommand(String commandName, String commandType, CommandTask task) {
+        if (!rateLimiter.tryAcquire(task.command(), task.rateLimit(), task.interaction())) {
+            metrics.statsFor(task.command(), commandName).recordRejected();
+            return;
+        }
+
+        if (LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Executing {} command: {}", commandType, commandName);
+        }
+        executionController.submit(
+                task.command(),
                 commandName,
-                "slash",
-                () -> commandRegister.getSlashCommandMap().containsKey(commandName),
-                () -> commandRegister.getSlashCommand(commandName).handle(event));
+                commandType,
+                task.maxConcurrency(),
+                task.ephemeral(),
+                task.interaction(),
+                task);
+    }
+
+    private void commandNotFound(String commandName, String commandType) {
+        LOGGER.info("Command not found: {} (type: {})", commandName, commandType);
+    }
+
+    /*
+     * Tasks are plain classes rather than lambdas so dispatch allocates exactly one small object
+     * per interaction, and the command is resolved once before it is handed to the executor.
+     */
+    private sealed interface CommandTask extends Runnable {
+        Object command();
+
+        IReplyCallback interaction();
+
+        RateLimit rateLimit();
+
+        int maxConcurrency();
+
+        boolean ephemeral();
     }
 
-    private void handleCommand(
-            String commandName,
-            String commandType,
-            Supplier<Boolean> commandExists,
-            Runnable commandExecution) {
-
-        LOGGER.debug("Processing {} command: {}", commandType, commandName);
-
-        if (commandExists.get()) {
-            LOGGER.info("Executing {} command: {}", commandType, commandName);
-            commandExecutor.execute(
-                    () -> {
-                        try {
-                            commandExecution.run();
-                        } catch (Exception e) {
-                            Sentry.captureException(e);
-                        }
-                    });
-        } else {
-            LOGGER.info("Command not found: {} (type: {})", commandName, commandType);
+    private record SlashTask(BaseSlashCommand command, SlashCommandInteractionEvent interaction)
+            implements CommandTask {
+        @Override
+        public RateLimit rateLimit() {
+            return command.getRateLimit();
+        }
+
+        @Override
+        public int maxConcurrency() {
+            return command.getMaxConcurrency();
+        }
+
+        @Override
+        public boolean ephemeral() {
+            return command.isEphemeral();
+        }
+
+        @Override
+        public void run() {
+            command.handle(interaction);
+        }
+    }
+
+    private record MessageContextTask(
+            BaseMessageContextCommand command, MessageContextInteractionEvent interaction)
+            implements CommandTask {
+        @Override
+        public RateLimit rateLimit() {
+            return command.getRateLimit();
+        }
+
+        @Override
+        public int maxConcurrency() {
+            return command.getMaxConcurrency();
+        }
+
+        @Override
+        public boolean ephemeral() {
+            return command.isEphemeral();
+        }
+
+        @Override
+        public void run() {
+            command.handle(interaction);
         }
     }
 }
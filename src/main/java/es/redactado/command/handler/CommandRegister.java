@@ -21,17 +21,14 @@ import net.dv8tion.jda.api.interactions.commands.build.SlashCommandData;
  */
 public class CommandRegister {
 
-    private final HashMap<String, BaseSlashCommand> slashCommands;
-    private final HashMap<String, BaseMessageContextCommand> messageContextCommands;
+    // Replaced wholesale on every change; readers never lock
+    private volatile CommandDispatchTable dispatchTable = CommandDispatchTable.EMPTY;
     private final Cache<String, List<SlashCommandData>> slashCommandDataCache;
     private final Cache<String, List<CommandData>> contextCommandDataCache;
     private final Cache<String, List<CommandData>> allCommandsDataCache;
 
     @Inject
     public CommandRegister(Injector injector) {
-        this.slashCommands = new HashMap<>();
-        this.messageContextCommands = new HashMap<>();
-
         this.slashCommandDataCache =
                 Caffeine.newBuilder()
                         .expireAfterWrite(5, TimeUnit.MINUTES)
@@ -78,12 +75,14 @@ public class CommandRegister {
         }
     }
 
+    /** Returns the slash command with the given name, or {@code null} if there is none. */
     public BaseSlashCommand getSlashCommand(String name) {
-        return this.slashCommands.get(name);
+        return this.dispatchTable.slash(name);
     }
 
+    /** Returns the message context command with the given name, or {@code null} if there is none. */
     public BaseMessageContextCommand getUserContextCommand(String name) {
-        return this.messageContextCommands.get(name);
+        return this.dispatchTable.messageContext(name);
     }
 
     public List<SlashCommandData> getCommandsSlashData() {
@@ -91,7 +90,7 @@ public class CommandRegister {
                 "slashCommands",
                 key -> {
                     List<SlashCommandData> commands = new ArrayList<>();
-                    for (BaseSlashCommand command : this.slashCommands.values()) {
+                    for (BaseSlashCommand command : this.dispatchTable.slashCommands().values()) {
                         commands.add(command.getCommandData());
                     }
                     return commands;
@@ -103,7 +102,8 @@ public class CommandRegister {
                 "contextCommands",
                 key -> {
                     List<CommandData> commands = new ArrayList<>();
-                    for (BaseMessageContextCommand command : this.messageContextCommands.values()) {
+                    for (BaseMessageContextCommand command :
+                            this.dispatchTable.messageContextCommands().values()) {
                         commands.add(command.getCommandData());
                     }
                     return commands;
@@ -121,32 +121,66 @@ public class CommandRegister {
                 });
     }
 
-    public HashMap<String, BaseSlashCommand> getSlashCommandMap() {
-        return this.slashCommands;
+    public Map<String, BaseSlashCommand> getSlashCommandMap() {
+        return this.dispatchTable.slashCommands();
     }
 
-    public HashMap<String, BaseMessageContextCommand> getMessageContextCommandMap() {
-        return this.messageContextCommands;
+    public Map<String, BaseMessageContextCommand> getMessageContextCommandMap() {
+        return this.dispatchTable.messageContextCommands();
     }
 
-    public void addCommand(BaseSlashCommand command) {
+    public synchronized void addCommand(BaseSlashCommand command) {
         String commandName = command.getCommandData().getName();
-        if (this.slashCommands.containsKey(commandName)) {
+        if (this.dispatchTable.slash(commandName) != null) {
             throw new IllegalArgumentException(
                     "Command with name " + commandName + " already exists");
         }
-        this.slashCommands.put(commandName, command);
+        this.dispatchTable = this.dispatchTable.withSlash(commandName, command);
         invalidateCache();
     }
 
-    public void addCommand(BaseMessageContextCommand command) {
+    public synchronized void addCommand(BaseMessageContextCommand command) {
         String commandName = command.getCommandData().getName();
-        if (this.messageContextCommands.containsKey(commandName)) {
+        if (this.dispatchTable.messageContext(commandName) != null) {
             throw new IllegalArgumentException(
                     "Command with name " + commandName + " already exists");
         }
-        this.messageContextCommands.put(commandName, command);
+        this.dispatchTable = this.dispatchTable.withMessageContext(commandName, command);
+        invalidateCache();
+    }
+
+    /** Adds the command, or atomically swaps out the one registered under the same name. */
+    public synchronized void replaceCommand(BaseSlashCommand command) {
+        this.dispatchTable =
+                this.dispatchTable.withSlash(command.getCommandData().getName(), command);
+        invalidateCache();
+    }
+
+    /** Adds the command, or atomically swaps out the one registered under the same name. */
+    public synchronized void replaceCommand(BaseMessageContextCommand command) {
+        this.dispatchTable =
+                this.dispatchTable.withMessageContext(command.getCommandData().getName(), command);
+        invalidateCache();
+    }
+
+    /** Removes the slash command; interactions already dispatched to it still complete. */
+    public synchronized boolean removeSlashCommand(String name) {
+        if (this.dispatchTable.slash(name) == null) {
+            return false;
+        }
+        this.dispatchTable = this.dispatchTable.withSlash(name, null);
+        invalidateCache();
+        return true;
+    }
+
+    /** Removes the message context command; interactions already dispatched to it still complete. */
+    public synchronized boolean removeMessageContextCommand(String name) {
+        if (this.dispatchTable.messageContext(name) == null) {
+            return false;
+        }
+        this.dispatchTable = this.dispatchTable.withMessageContext(name, null);
         invalidateCache();
+        return true;
     }
 
     public List<ListenerAdapter> getListeners() {
@@ -155,7 +189,7 @@ public class CommandRegister {
         }
 
         List<ListenerAdapter> listeners = new ArrayList<>();
-        for (BaseSlashCommand command : this.slashCommands.values()) {
+        for (BaseSlashCommand command : this.dispatchTable.slashCommands().values()) {
             if (command instanceof ListenerAdapter) {
                 listeners.add((ListenerAdapter) command);
             }
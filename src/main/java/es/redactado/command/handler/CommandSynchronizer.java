@@ -0,0 +1,243 @@
+package es.redactado.command.handler;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import io.github.cdimascio.dotenv.Dotenv;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.interactions.commands.Command;
+import net.dv8tion.jda.api.interactions.commands.build.CommandData;
+import net.dv8tion.jda.api.requests.RestAction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Uploads application commands only when they actually changed.
+ *
+ * <p>A SHA-256 hash of the canonical JSON of {@link CommandRegister#getAllCommandsData()} is
+ * persisted after every successful sync. On startup, if the hash matches nothing is sent. If not,
+ * the commands registered on Discord are fetched and only the created, changed or removed ones are
+ * uploaded. Global sync runs once per process no matter how many shards become ready.
+ *
+ * <p>With {@code COMMAND_REGISTRATION=GUILD} commands are registered on the guilds listed in
+ * {@code DEV_GUILD_IDS} instead, where updates show up instantly.
+ */
+@Singleton
+public class CommandSynchronizer {
+    private static final Logger logger = LoggerFactory.getLogger(CommandSynchronizer.class);
+
+    /** Above this many changed commands a single bulk overwrite is cheaper than one call each. */
+    private static final int MAX_INDIVIDUAL_UPDATES = 3;
+
+    private final CommandRegister commandRegister;
+    private final boolean guildMode;
+    private final Set<Long> devGuildIds = new HashSet<>();
+    private final Path stateFile;
+    private final AtomicBoolean globalSyncStarted = new AtomicBoolean();
+
+    @Inject
+    public CommandSynchronizer(CommandRegister commandRegister, Dotenv dotenv) {
+        this.commandRegister = commandRegister;
+        this.guildMode = dotenv.get("COMMAND_REGISTRATION", "GLOBAL").equalsIgnoreCase("GUILD");
+        for (String id : dotenv.get("DEV_GUILD_IDS", "").split(",")) {
+            if (!id.isBlank()) {
+                devGuildIds.add(Long.parseLong(id.trim()));
+            }
+        }
+        this.stateFile =
+                Paths.get(dotenv.get("COMMAND_STATE_FILE", "./data/command-state.properties"));
+    }
+
+    /** Call on every shard's ready event; only the first call syncs global commands. */
+    public void onReady(JDA jda) {
+        if (guildMode || !globalSyncStarted.compareAndSet(false, true)) {
+            return;
+        }
+
+        List<CommandData> commands = commandRegister.getAllCommandsData();
+        String hash = hash(commands);
+        String key = "global." + jda.getSelfUser().getApplicationId();
+        if (hash.equals(loadState().getProperty(key))) {
+            logger.info("Global commands unchanged ({} commands), skipping upload", commands.size());
+            return;
+        }
+
+        jda.retrieveCommands()
+                .queue(
+                        existing -> syncGlobal(jda, commands, existing, key, hash),
+                        error -> {
+                            globalSyncStarted.set(false);
+                            logger.error("Failed to retrieve global commands: {}", error.getMessage());
+                        });
+    }
+
+    /** Call on every guild ready event; registers commands on configured development guilds. */
+    public void onGuildReady(Guild guild) {
+        if (!guildMode || !devGuildIds.contains(guild.getIdLong())) {
+            return;
+        }
+
+        List<CommandData> commands = commandRegister.getAllCommandsData();
+        String hash = hash(commands);
+        String key = "guild." + guild.getId();
+        if (hash.equals(loadState().getProperty(key))) {
+            logger.info("Commands for guild {} unchanged, skipping upload", guild.getId());
+            return;
+        }
+
+        guild.updateCommands()
+                .addCommands(commands)
+                .queue(
+                        success -> {
+                            saveState(key, hash);
+                            logger.info(
+                                    "Registered {} commands on guild {}", commands.size(), guild.getId());
+                        },
+                        error ->
+                                logger.error(
+                                        "Failed to register commands on guild {}: {}",
+                                        guild.getId(),
+                                        error.getMessage()));
+    }
+
+    private void syncGlobal(
+            JDA jda, List<CommandData> commands, List<Command> existing, String key, String hash) {
+        Map<String, Command> remote = new HashMap<>();
+        for (Command command : existing) {
+            remote.put(identity(command.getType(), command.getName()), command);
+        }
+
+        List<CommandData> changed = new ArrayList<>();
+        for (CommandData data : commands) {
+            Command current = remote.remove(identity(data.getType(), data.getName()));
+            if (current == null
+                    || !canonicalJson(CommandData.fromCommand(current)).equals(canonicalJson(data))) {
+                changed.add(data);
+            }
+        }
+        // Whatever is left on Discord is no longer registered locally
+        List<Command> removed = new ArrayList<>(remote.values());
+
+        if (changed.isEmpty() && removed.isEmpty()) {
+            logger.info("Global commands already up to date on Discord");
+            saveState(key, hash);
+            return;
+        }
+
+        List<RestAction<?>> actions = new ArrayList<>();
+        if (changed.size() + removed.size() > MAX_INDIVIDUAL_UPDATES) {
+            actions.add(jda.updateCommands().addCommands(commands));
+        } else {
+            for (CommandData data : changed) {
+                actions.add(jda.upsertCommand(data));
+            }
+            for (Command command : removed) {
+                actions.add(jda.deleteCommandById(command.getIdLong()));
+            }
+        }
+
+        logger.info(
+                "Syncing global commands: {} created or changed, {} removed, {} requests",
+                changed.size(),
+                removed.size(),
+                actions.size());
+        RestAction.allOf(actions)
+                .queue(
+                        success -> {
+                            saveState(key, hash);
+                            logger.info("Commands registered successfully");
+                        },
+                        error -> {
+                            globalSyncStarted.set(false);
+                            logger.error("Failed to register commands: {}", error.getMessage());
+                        });
+    }
+
+    private static String identity(Command.Type type, String name) {
+        return type.name() + ":" + name;
+    }
+
+    /** Returns a stable hash of the command set, independent of registration and key order. */
+    static String hash(List<CommandData> commands) {
+        List<CommandData> sorted = new ArrayList<>(commands);
+        sorted.sort(
+                Comparator.comparing((CommandData data) -> data.getType().name())
+                        .thenComparing(CommandData::getName));
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (CommandData data : sorted) {
+                digest.update(canonicalJson(data).getBytes(StandardCharsets.UTF_8));
+            }
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static String canonicalJson(CommandData data) {
+        return canonicalize(data.toData().toMap()).toString();
+    }
+
+    private static Object canonicalize(Object value) {
+        if (value instanceof Map<?, ?> map) {
+            TreeMap<String, Object> sorted = new TreeMap<>();
+            map.forEach((k, v) -> sorted.put(String.valueOf(k), canonicalize(v)));
+            return sorted;
+        }
+        if (value instanceof List<?> list) {
+            List<Object> copy = new ArrayList<>(list.size());
+            for (Object element : list) {
+                copy.add(canonicalize(element));
+            }
+            return copy;
+        }
+        return value;
+    }
+
+    private synchronized Properties loadState() {
+        Properties state = new Properties();
+        if (Files.exists(stateFile)) {
+            try (InputStream in = Files.newInputStream(stateFile)) {
+                state.load(in);
+            } catch (IOException e) {
+                logger.warn("Unable to read command state from {}", stateFile, e);
+            }
+        }
+        return state;
+    }
+
+    private synchronized void saveState(String key, String hash) {
+        Properties state = loadState();
+        state.setProperty(key, hash);
+        try {
+            if (stateFile.getParent() != null) {
+                Files.createDirectories(stateFile.getParent());
+            }
+            try (OutputStream out = Files.newOutputStream(stateFile)) {
+                state.store(out, "Hashes of the last registered command sets");
+            }
+        } catch (IOException e) {
+            logger.warn("Unable to persist command state to {}", stateFile, e);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package es.redactado.command.ratelimit;
+
+import com.google.inject.Singleton;
+import es.redactado.command.type.RateLimit;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.interactions.callbacks.IReplyCallback;
+
+/**
+ * Applies the {@link RateLimit} declared by each command before it is dispatched.
+ *
+ * <p>Buckets live per command instance, so replacing a command at runtime starts it with fresh
+ * buckets. A rejected interaction is answered ephemerally and never reaches the handler.
+ */
+@Singleton
+public class CommandRateLimiter {
+    private final Map<Object, Limiters> limiters = new ConcurrentHashMap<>();
+    private final LongAdder rejected = new LongAdder();
+
+    public CommandRateLimiter() {
+        ScheduledExecutorService sweeper =
+                Executors.newSingleThreadScheduledExecutor(
+                        Thread.ofPlatform().name("rate-limit-sweeper").daemon(true).factory());
+        sweeper.scheduleWithFixedDelay(this::evictExpired, 1, 1, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Checks every scope of the command's rate limit and, if any is exhausted, replies to the
+     * interaction with an ephemeral cooldown message.
+     *
+     * @return {@code true} if the command may run
+     */
+    public boolean tryAcquire(Object command, RateLimit rateLimit, IReplyCallback interaction) {
+        if (!rateLimit.isLimited()) {
+            return true;
+        }
+
+        Limiters commandLimiters = limiters.get(command);
+        if (commandLimiters == null) {
+            commandLimiters = limiters.computeIfAbsent(command, key -> new Limiters(rateLimit));
+        }
+        long now = System.nanoTime();
+        Guild guild = interaction.getGuild();
+
+        long userKey = interaction.getUser().getIdLong();
+        long guildKey = guild != null ? guild.getIdLong() : 0;
+        long channelKey = interaction.getChannelIdLong();
+
+        long waitNanos = acquire(commandLimiters.user, userKey, now);
+        if (waitNanos == 0) {
+            waitNanos = acquire(commandLimiters.guild, guildKey, now);
+            if (waitNanos == 0) {
+                waitNanos = acquire(commandLimiters.channel, channelKey, now);
+                if (waitNanos != 0) {
+                    release(commandLimiters.guild, guildKey);
+                }
+            }
+            if (waitNanos != 0) {
+                release(commandLimiters.user, userKey);
+            }
+        }
+
+        if (waitNanos == 0) {
+            return true;
+        }
+
+        rejected.increment();
+        long retryAt =
+                (System.currentTimeMillis() + TimeUnit.NANOSECONDS.toMillis(waitNanos)) / 1000 + 1;
+        interaction
+                .reply("`⏳` You're doing that too fast, try again <t:" + retryAt + ":R>.")
+                .setEphemeral(true)
+                .queue();
+        return false;
+    }
+
+    private static long acquire(LongRateLimitMap map, long key, long now) {
+        return map == null || key == 0 ? 0 : map.tryAcquire(key, now);
+    }
+
+    private static void release(LongRateLimitMap map, long key) {
+        if (map != null && key != 0) {
+            map.release(key);
+        }
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    /** Number of ids currently tracked across every command and scope. */
+    public int getTrackedKeys() {
+        int total = 0;
+        for (Limiters commandLimiters : limiters.values()) {
+            total += commandLimiters.size();
+        }
+        return total;
+    }
+
+    private void evictExpired() {
+        long now = System.nanoTime();
+        for (Limiters commandLimiters : limiters.values()) {
+            commandLimiters.evictExpired(now);
+        }
+    }
+
+    private static final class Limiters {
+        private final LongRateLimitMap user;
+        private final LongRateLimitMap guild;
+        private final LongRateLimitMap channel;
+
+        private Limiters(RateLimit rateLimit) {
+            this.user = rateLimit.user() != null ? new LongRateLimitMap(rateLimit.user()) : null;
+            this.guild = rateLimit.guild() != null ? new LongRateLimitMap(rateLimit.guild()) : null;
+            this.channel =
+                    rateLimit.channel() != null ? new LongRateLimitMap(rateLimit.channel()) : null;
+        }
+
+        private void evictExpired(long now) {
+            for (LongRateLimitMap map : new LongRateLimitMap[] {user, guild, channel}) {
+                if (map != null) {
+                    map.evictExpired(now);
+                }
+            }
+        }
+
+        private int size() {
+            int size = 0;
+            for (LongRateLimitMap map : new LongRateLimitMap[] {user, guild, channel}) {
+                if (map != null) {
+                    size += map.size();
+                }
+            }
+            return size;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package es.redactado.command.ratelimit;
+
+import es.redactado.command.type.RateLimit;
+
+/**
+ * Token buckets keyed by primitive {@code long} ids (Discord snowflakes), using the generic cell
+ * rate algorithm: each key stores a single "theoretical arrival time" instead of a token count
+ * and a timestamp, so no {@code Long} is boxed and no object is allocated per check.
+ *
+ * <p>Keys are spread over independent stripes, each an open-addressing table guarded by its own
+ * monitor, so concurrent checks for different users almost never meet. A key whose arrival time
+ * is in the past behaves exactly like a full bucket, so it is dropped whenever its stripe is
+ * swept.
+ */
+final class LongRateLimitMap {
+    private static final int STRIPES = 64;
+    private static final int INITIAL_STRIPE_CAPACITY = 64;
+
+    private final long emissionIntervalNanos;
+    private final long burstToleranceNanos;
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    LongRateLimitMap(RateLimit.Bucket bucket) {
+        this.emissionIntervalNanos = Math.max(1, bucket.period().toNanos() / bucket.capacity());
+        this.burstToleranceNanos = emissionIntervalNanos * (bucket.capacity() - 1);
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * Takes a token for {@code key}.
+     *
+     * @return {@code 0} if allowed, otherwise the nanoseconds until the next token is available
+     */
+    long tryAcquire(long key, long now) {
+        Stripe stripe = stripeFor(key);
+        synchronized (stripe) {
+            int slot = stripe.slotFor(key, now);
+            long tat = stripe.keys[slot] == key ? Math.max(stripe.tats[slot], now) : now;
+            long allowAt = tat - burstToleranceNanos;
+            if (now < allowAt) {
+                return allowAt - now;
+            }
+            stripe.put(slot, key, tat + emissionIntervalNanos);
+            return 0;
+        }
+    }
+
+    /** Gives back a token taken by {@link #tryAcquire}, when another scope rejected the call. */
+    void release(long key) {
+        Stripe stripe = stripeFor(key);
+        synchronized (stripe) {
+            int slot = stripe.find(key);
+            if (slot >= 0) {
+                stripe.tats[slot] -= emissionIntervalNanos;
+            }
+        }
+    }
+
+    /** Drops every key whose bucket has fully refilled. */
+    void evictExpired(long now) {
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                stripe.rebuild(now, stripe.keys.length);
+            }
+        }
+    }
+
+    int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.size;
+            }
+        }
+        return size;
+    }
+
+    private Stripe stripeFor(long key) {
+        return stripes[(int) (mix(key) >>> 58)];
+    }
+
+    private static long mix(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 32);
+    }
+
+    /** Linear-probing table; key {@code 0} marks an empty slot since snowflakes are never 0. */
+    private static final class Stripe {
+        private long[] keys = new long[INITIAL_STRIPE_CAPACITY];
+        private long[] tats = new long[INITIAL_STRIPE_CAPACITY];
+        private int size;
+
+        private int find(long key) {
+            int mask = keys.length - 1;
+            for (int i = (int) mix(key) & mask; ; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    return i;
+                }
+                if (keys[i] == 0) {
+                    return -1;
+                }
+            }
+        }
+
+        /** Returns the slot holding {@code key}, or the empty slot where it would be inserted. */
+        private int slotFor(long key, long now) {
+            int slot = find(key);
+            if (slot >= 0) {
+                return slot;
+            }
+            if ((size + 1) * 2 > keys.length) {
+                // Sweep expired keys first; only grow if the stripe is still half full
+                rebuild(now, keys.length);
+                if ((size + 1) * 2 > keys.length) {
+                    rebuild(now, keys.length * 2);
+                }
+            }
+            int mask = keys.length - 1;
+            int i = (int) mix(key) & mask;
+            while (keys[i] != 0) {
+                i = (i + 1) & mask;
+            }
+            return i;
+        }
+
+        private void put(int slot, long key, long tat) {
+            if (keys[slot] == 0) {
+                keys[slot] = key;
+                size++;
+            }
+            tats[slot] = tat;
+        }
+
+        private void rebuild(long now, int capacity) {
+            long[] oldKeys = keys;
+            long[] oldTats = tats;
+            keys = new long[capacity];
+            tats = new long[capacity];
+            size = 0;
+            int mask = capacity - 1;
+            for (int j = 0; j < oldKeys.length; j++) {
+                if (oldKeys[j] != 0 && oldTats[j] > now) {
+                    int i = (int) mix(oldKeys[j]) & mask;
+                    while (keys[i] != 0) {
+                        i = (i + 1) & mask;
+                    }
+                    keys[i] = oldKeys[j];
+                    tats[i] = oldTats[j];
+                    size++;
+                }
+            }
+        }
+    }
+}
@@ -7,4 +7,25 @@ public interface BaseSlashCommand {
     SlashCommandData getCommandData();
 
     void handle(SlashCommandInteractionEvent event);
+
+    /** Cooldowns checked before {@link #handle} runs. Not limited unless overridden. */
+    default RateLimit getRateLimit() {
+        return RateLimit.NONE;
+    }
+
+    /**
+     * Maximum number of concurrent executions of this command, on top of the global limit. Zero
+     * or less means only the global limit applies.
+     */
+    default int getMaxConcurrency() {
+        return 0;
+    }
+
+    /**
+     * Whether the reply is only shown to the user who ran the command. Used when the interaction
+     * is deferred on the handler's behalf, so a slow handler's reply doesn't turn public.
+     */
+    default boolean isEphemeral() {
+        return false;
+    }
 }
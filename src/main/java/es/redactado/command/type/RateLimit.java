@@ -0,0 +1,47 @@
+package es.redactado.command.type;
+
+import java.time.Duration;
+
+/**
+ * Cooldowns applied to a command before it is dispatched. Each scope is an independent token
+ * bucket: {@code capacity} uses in a burst, refilled at one token every {@code period / capacity}.
+ * A {@code null} bucket means that scope is not limited.
+ *
+ * <pre>{@code
+ * @Override
+ * public RateLimit getRateLimit() {
+ *     return RateLimit.perUser(1, Duration.ofSeconds(5)).withGuild(20, Duration.ofSeconds(10));
+ * }
+ * }</pre>
+ */
+public record RateLimit(Bucket user, Bucket guild, Bucket channel) {
+    public static final RateLimit NONE = new RateLimit(null, null, null);
+
+    public record Bucket(int capacity, Duration period) {
+        public Bucket {
+            if (capacity <= 0 || period.isNegative() || period.isZero()) {
+                throw new IllegalArgumentException("Bucket needs a positive capacity and period");
+            }
+        }
+    }
+
+    public static RateLimit perUser(int capacity, Duration period) {
+        return NONE.withUser(capacity, period);
+    }
+
+    public RateLimit withUser(int capacity, Duration period) {
+        return new RateLimit(new Bucket(capacity, period), guild, channel);
+    }
+
+    public RateLimit withGuild(int capacity, Duration period) {
+        return new RateLimit(user, new Bucket(capacity, period), channel);
+    }
+
+    public RateLimit withChannel(int capacity, Duration period) {
+        return new RateLimit(user, guild, new Bucket(capacity, period));
+    }
+
+    public boolean isLimited() {
+        return user != null || guild != null || channel != null;
+    }
+}
@@ -1,8 +1,15 @@
 package es.redactado.config;
 
 import net.dv8tion.jda.api.requests.GatewayIntent;
+import net.dv8tion.jda.api.sharding.DefaultShardManagerBuilder;
+import net.dv8tion.jda.api.utils.ChunkingFilter;
+import net.dv8tion.jda.api.utils.MemberCachePolicy;
+import net.dv8tion.jda.api.utils.cache.CacheFlag;
 
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 
 public class Bot {
     public static final boolean AUTO_RECONNECT = true;
@@ -15,4 +22,105 @@ public class Bot {
             GatewayIntent.GUILD_PRESENCES,
             GatewayIntent.DIRECT_MESSAGES
     );
+
+    /**
+     * Name of the profile used when CACHE_PROFILE is not set in the environment. A name rather
+     * than the constant, since Bot must not depend on CacheProfile while initializing.
+     */
+    public static final String CACHE_PROFILE = "VOICE_AWARE";
+
+    /** GATEWAY_INTENTS as the set the profiles request, initialized apart from Bot and the enum. */
+    private static final class BaselineIntents {
+        private static final Set<GatewayIntent> INTENTS =
+                Collections.unmodifiableSet(EnumSet.copyOf(GATEWAY_INTENTS));
+    }
+
+    /**
+     * Intents, member cache policy, chunking and cache flags chosen together, since a flag or
+     * policy without its intent only produces stale data. Members and presences dominate the heap
+     * on large guilds; the footprint of the active profile is logged once all shards are ready.
+     *
+     * <p>VOICE_AWARE and FULL keep every intent in GATEWAY_INTENTS and only differ in what they
+     * cache. MINIMAL and INTERACTION_ONLY are opt-downs for interaction-only bots: without the
+     * message, reaction and direct message intents, listeners for those events receive nothing.
+     */
+    public enum CacheProfile {
+        /** Slash commands only: no intents and nothing cached beyond guilds, channels and roles. */
+        MINIMAL(
+                EnumSet.noneOf(GatewayIntent.class),
+                MemberCachePolicy.NONE,
+                ChunkingFilter.NONE,
+                EnumSet.noneOf(CacheFlag.class)),
+        /**
+         * Interactions with permission checks: guild owners plus member overrides and role tags.
+         * Owners arrive with the guild, so the privileged GUILD_MEMBERS intent isn't needed.
+         */
+        INTERACTION_ONLY(
+                EnumSet.noneOf(GatewayIntent.class),
+                MemberCachePolicy.OWNER,
+                ChunkingFilter.NONE,
+                EnumSet.of(CacheFlag.MEMBER_OVERRIDES, CacheFlag.ROLE_TAGS)),
+        /**
+         * Every intent in GATEWAY_INTENTS, with members cached only while in voice or owning the
+         * guild, like JDA's createDefault.
+         */
+        VOICE_AWARE(
+                BaselineIntents.INTENTS,
+                MemberCachePolicy.VOICE.or(MemberCachePolicy.OWNER),
+                ChunkingFilter.NONE,
+                EnumSet.of(CacheFlag.VOICE_STATE, CacheFlag.MEMBER_OVERRIDES, CacheFlag.ROLE_TAGS)),
+        /** Every member chunked on join and cached with presences and activities. */
+        FULL(
+                BaselineIntents.INTENTS,
+                MemberCachePolicy.ALL,
+                ChunkingFilter.ALL,
+                EnumSet.allOf(CacheFlag.class));
+
+        private final Set<GatewayIntent> intents;
+        private final MemberCachePolicy memberCachePolicy;
+        private final ChunkingFilter chunkingFilter;
+        private final Set<CacheFlag> cacheFlags;
+
+        CacheProfile(
+                Set<GatewayIntent> intents,
+                MemberCachePolicy memberCachePolicy,
+                ChunkingFilter chunkingFilter,
+                Set<CacheFlag> cacheFlags) {
+            this.intents = intents;
+            this.memberCachePolicy = memberCachePolicy;
+            this.chunkingFilter = chunkingFilter;
+            // Drop flags whose intent the profile doesn't request, JDA would only warn about them
+            this.cacheFlags = EnumSet.noneOf(CacheFlag.class);
+            for (CacheFlag flag : cacheFlags) {
+                if (flag.getRequiredIntent() == null || intents.contains(flag.getRequiredIntent())) {
+                    this.cacheFlags.add(flag);
+                }
+            }
+        }
+
+        public static CacheProfile fromConfig(String value) {
+            String name = value == null || value.isBlank() ? CACHE_PROFILE : value;
+            return valueOf(name.trim().toUpperCase().replace('-', '_'));
+        }
+
+        public Set<GatewayIntent> getIntents() {
+            return intents;
+        }
+
+        public Set<CacheFlag> getCacheFlags() {
+            return cacheFlags;
+        }
+
+        /** Creates a builder with only this profile's intents, policies and cache flags enabled. */
+        public DefaultShardManagerBuilder createBuilder(String token) {
+            // createLight starts with every cache flag disabled and no member caching
+            DefaultShardManagerBuilder builder = DefaultShardManagerBuilder.createLight(token, intents)
+                    .setMemberCachePolicy(memberCachePolicy)
+                    .setChunkingFilter(chunkingFilter);
+            if (!cacheFlags.isEmpty()) {
+                builder.enableCache(cacheFlags);
+            }
+            return builder;
+        }
+    }
 }
@@ -1,6 +1,9 @@
 package es.redactado.config;
 
+import es.redactado.command.JfrDumpCommand;
+import es.redactado.command.OcrCommand;
 import es.redactado.command.PingCommand;
+import es.redactado.command.StatsCommand;
 import es.redactado.command.type.BaseMessageContextCommand;
 import es.redactado.command.type.BaseSlashCommand;
 
@@ -15,11 +18,14 @@ public class Commands {
     public static final boolean REGISTER_LISTENERS = true;
 
     public static final List<Class<? extends BaseSlashCommand>> SLASH_COMMANDS = List.of(
-            PingCommand.class
+            PingCommand.class,
+            StatsCommand.class,
+            JfrDumpCommand.class
     );
 
     public static final List<Class<?>> MESSAGE_CONTEXT_COMMANDS = List.of(
             // Add your message context commands here
+            OcrCommand.class
     );
 
     /*
@@ -1,12 +1,10 @@
 package es.redactado.config;
 
-import net.dv8tion.jda.api.hooks.ListenerAdapter;
-
-import java.lang.invoke.CallSite;
 import java.util.List;
 
 public class Listeners {
-    public static final List<Class<? extends ListenerAdapter>> LISTENERS = List.of(
+    /** ListenerAdapters or classes with {@code @Subscribe} methods, created through Guice. */
+    public static final List<Class<?>> LISTENERS = List.of(
             // Add your listeners here
     );
-}
+}
\ No newline at end of file
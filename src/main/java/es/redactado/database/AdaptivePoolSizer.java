@@ -0,0 +1,95 @@
+package es.redactado.database;
+
+import com.zaxxer.hikari.HikariConfigMXBean;
+import io.github.cdimascio.dotenv.Dotenv;
+import java.time.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Resizes the Hikari pool between {@code DB_POOL_MIN_SIZE} and {@code DB_POOL_MAX_SIZE} from what
+ * {@link DatabaseStatistics} observed over the last interval.
+ *
+ * <p>The pool grows by a quarter when the p99 wait for a connection is above {@code
+ * DB_POOL_TARGET_WAIT_MS} while connections are busy most of the time or threads are queued for
+ * one: callers are starved of connections, not slowed down by the database itself. High waits with
+ * an idle pool point at slow connection setup or a struggling database, where more connections
+ * would not help, so the size is left alone. The pool shrinks by an eighth after {@value
+ * #SHRINK_AFTER_INTERVALS} quiet intervals in a row; the extra connections are closed by Hikari
+ * as they go idle, provided {@code HIKARI_MIN_IDLE} is below the pool size.
+ *
+ * <p>The asynchronous {@link DatabaseExecutor} keeps the size it was started with, so extra
+ * connections serve the callers that use repositories synchronously.
+ */
+public class AdaptivePoolSizer {
+    private static final Logger logger = LoggerFactory.getLogger(AdaptivePoolSizer.class);
+    private static final double BUSY_UTILISATION = 0.75;
+    private static final double QUIET_UTILISATION = 0.4;
+    private static final int SHRINK_AFTER_INTERVALS = 3;
+    // Fewer acquisitions than this make the p99 wait too noisy to grow on
+    private static final long MIN_SAMPLES = 20;
+
+    public record Settings(boolean enabled, int minSize, int maxSize, Duration targetWait) {
+
+        public static Settings fromConfig(Dotenv dotenv) {
+            return new Settings(
+                    Boolean.parseBoolean(dotenv.get("DB_POOL_ADAPTIVE", "false")),
+                    Integer.parseInt(dotenv.get("DB_POOL_MIN_SIZE", "4")),
+                    Integer.parseInt(dotenv.get("DB_POOL_MAX_SIZE", "32")),
+                    Duration.ofMillis(Long.parseLong(dotenv.get("DB_POOL_TARGET_WAIT_MS", "10"))));
+        }
+    }
+
+    private final Settings settings;
+    private final HikariConfigMXBean config;
+    private int quietIntervals;
+
+    AdaptivePoolSizer(Settings settings, HikariConfigMXBean config) {
+        this.settings = settings;
+        this.config = config;
+    }
+
+    /** Decides on one interval of observations; called from the statistics collector only. */
+    void adjust(DatabaseStatistics.Pool pool) {
+        int size = config.getMaximumPoolSize();
+        long targetMicros = settings.targetWait().toNanos() / 1000;
+        long waitMicros = pool.recentAcquire().p99();
+        boolean busy = pool.utilisation() >= BUSY_UTILISATION || pool.waiting() > 0;
+
+        int target = size;
+        if (pool.recentAcquire().count() >= MIN_SAMPLES && waitMicros > targetMicros) {
+            quietIntervals = 0;
+            if (busy) {
+                target = size + Math.max(1, size / 4);
+            } else {
+                logger.debug(
+                        "Connection wait p99 {} µs with the pool {}% busy, not growing",
+                        waitMicros,
+                        Math.round(pool.utilisation() * 100));
+            }
+        } else if (!busy && pool.utilisation() < QUIET_UTILISATION) {
+            if (++quietIntervals >= SHRINK_AFTER_INTERVALS) {
+                quietIntervals = 0;
+                target = size - Math.max(1, size / 8);
+            }
+        } else {
+            quietIntervals = 0;
+        }
+
+        target = Math.max(settings.minSize(), Math.min(settings.maxSize(), target));
+        if (target == size) {
+            return;
+        }
+        if (target < size && config.getMinimumIdle() > target) {
+            config.setMinimumIdle(target);
+        }
+        config.setMaximumPoolSize(target);
+        logger.info(
+                "Resized connection pool from {} to {} (wait p99 {} µs, {}% busy, {} waiting)",
+                size,
+                target,
+                waitMicros,
+                Math.round(pool.utilisation() * 100),
+                pool.waiting());
+    }
+}
@@ -0,0 +1,75 @@
+package es.redactado.database;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Bounded executor used for every asynchronous database operation.
+ *
+ * <p>The number of worker threads matches the Hikari maximum pool size, so no more threads than
+ * available connections ever block on {@code getConnection}. Work that does not fit in the queue is
+ * rejected straight away instead of piling up until {@code HIKARI_CONNECTION_TIMEOUT} is reached.
+ */
+public class DatabaseExecutor implements Executor {
+    private static final Logger logger = LoggerFactory.getLogger(DatabaseExecutor.class);
+    private final ThreadPoolExecutor executor;
+
+    public DatabaseExecutor(int threads, int queueSize) {
+        this.executor =
+                new ThreadPoolExecutor(
+                        threads,
+                        threads,
+                        0L,
+                        TimeUnit.MILLISECONDS,
+                        new ArrayBlockingQueue<>(queueSize),
+                        Thread.ofPlatform().name("db-worker-", 0).daemon(true).factory(),
+                        new ThreadPoolExecutor.AbortPolicy());
+        logger.info("Database executor started with {} threads and queue size {}", threads, queueSize);
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        executor.execute(command);
+    }
+
+    /**
+     * Runs the given task on a database worker. If the executor is saturated the returned future is
+     * completed exceptionally with a {@link RejectedExecutionException}.
+     */
+    public <R> CompletableFuture<R> submit(Supplier<R> task) {
+        try {
+            return CompletableFuture.supplyAsync(task, executor);
+        } catch (RejectedExecutionException e) {
+            logger.warn("Database executor saturated, rejecting task");
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    public void shutdown(long timeout, TimeUnit unit) {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(timeout, unit)) {
+                logger.warn("Database executor did not terminate in time, forcing shutdown");
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -2,10 +2,30 @@ package es.redactado.database;
 
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
+import com.zaxxer.hikari.HikariDataSource;
+import es.redactado.database.cache.CacheInvalidationBus;
+import es.redactado.database.cache.UdpInvalidationTransport;
+import es.redactado.database.id.SnowflakeIdGenerator;
 import es.redactado.database.model.*;
+import es.redactado.database.repository.WriteBehindBuffer;
+import es.redactado.database.repository.WriteBehindStats;
+import es.redactado.jfr.SessionRecorder;
 import io.github.cdimascio.dotenv.Dotenv;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
+import org.hibernate.engine.jdbc.connections.spi.ConnectionProvider;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
 import org.hibernate.jpa.HibernatePersistenceConfiguration;
 import org.hibernate.tool.schema.Action;
 import org.slf4j.Logger;
@@ -17,9 +37,29 @@ import static es.redactado.config.Database.ENTITIES;
 public class DatabaseManager {
     private static final Logger logger = LoggerFactory.getLogger(DatabaseManager.class);
     private final SessionFactory sessionFactory;
+    private final DatabaseType databaseType;
+    private final DatabaseExecutor executor;
+    private final ScheduledExecutorService scheduler;
+    private final int fetchSize;
+    private final SingleWriterQueue writeQueue;
+    private final CacheInvalidationBus invalidationBus;
+    private final PoolMetrics poolMetrics;
+    private final DatabaseStatistics statistics;
+    private final List<WriteBehindBuffer<?>> writeBehindBuffers = new CopyOnWriteArrayList<>();
+    private final Thread writeBehindShutdownHook =
+            new Thread(this::flushWriteBehindBuffers, "db-write-behind-shutdown");
+    private boolean drained;
 
     @Inject
     public DatabaseManager(Dotenv dotenv) {
+        this(dotenv, ENTITIES);
+    }
+
+    /**
+     * Builds a manager for an explicit set of entity classes instead of {@code
+     * config.Database.ENTITIES}, for tools such as the benchmarks that bring their own entities.
+     */
+    public DatabaseManager(Dotenv dotenv, List<Class<?>> entities) {
         logger.info("Initializing DatabaseManager");
 
         String dbType = dotenv.get("DB_TYPE", "H2").toUpperCase();
@@ -29,6 +69,7 @@ public class DatabaseManager {
         String dbUser = dotenv.get("DB_USER", "root");
         String dbPassword = dotenv.get("DB_PASSWORD", "");
         String dbPath = dotenv.get("DB_PATH", "./database");
+        databaseType = DatabaseType.fromConfig(dbType);
 
         if (dbType.equals("SQLITE")) {
             java.nio.file.Path dir = java.nio.file.Paths.get(dbPath);
@@ -46,7 +87,7 @@ public class DatabaseManager {
                 new HibernatePersistenceConfiguration("Redactado");
 
         // Register entity classes
-        for (Class<?> entityClass : ENTITIES) {
+        for (Class<?> entityClass : entities) {
             configuration.managedClass(entityClass);
         }
 
@@ -65,12 +106,21 @@ public class DatabaseManager {
 
                 break;
             case "SQLITE":
-                jdbcUrl = String.format("jdbc:sqlite:%s/%s.db", dbPath, dbName);
+                // WAL lets readers run alongside the single writer; NORMAL sync is durable under WAL
+                // except for the last transactions on power loss. Pragmas in the URL are applied
+                // to every connection the pool opens.
+                jdbcUrl =
+                        String.format(
+                                "jdbc:sqlite:%s/%s.db?journal_mode=WAL&synchronous=NORMAL&busy_timeout=%s",
+                                dbPath, dbName, dotenv.get("SQLITE_BUSY_TIMEOUT", "5000"));
                 configuration.jdbcUrl(jdbcUrl);
                 configuration.property("hibernate.connection.driver_class", "org.sqlite.JDBC");
 
                 configuration.property("hibernate.hikari.driverClassName", "org.sqlite.JDBC");
                 configuration.property("hibernate.hikari.connectionTestQuery", "SELECT 1");
+                configuration.property(
+                        "hibernate.hikari.connectionInitSql",
+                        "PRAGMA mmap_size=" + dotenv.get("SQLITE_MMAP_SIZE", "268435456"));
                 configuration.property("hibernate.connection.foreign_keys", "true");
 
                 configuration.property(
@@ -78,8 +128,21 @@ public class DatabaseManager {
                 break;
             case "H2":
             default:
-                // Add AUTO_SERVER=TRUE to allow multiple connections
-                jdbcUrl = String.format("jdbc:h2:file:%s/%s;AUTO_SERVER=TRUE", dbPath, dbName);
+                // AUTO_SERVER=TRUE allows other processes to open the same file, at the cost of
+                // routing through a TCP server; only enable it when something else needs access
+                boolean autoServer = Boolean.parseBoolean(dotenv.get("H2_AUTO_SERVER", "false"));
+                // In-memory databases live until the JVM exits (DB_CLOSE_DELAY=-1), not until the
+                // pool closes its last connection
+                boolean inMemory = Boolean.parseBoolean(dotenv.get("H2_IN_MEMORY", "false"));
+                jdbcUrl =
+                        inMemory
+                                ? String.format("jdbc:h2:mem:%s;DB_CLOSE_DELAY=-1", dbName)
+                                : String.format(
+                                        "jdbc:h2:file:%s/%s;CACHE_SIZE=%s%s",
+                                        dbPath,
+                                        dbName,
+                                        dotenv.get("H2_CACHE_SIZE_KB", "65536"),
+                                        autoServer ? ";AUTO_SERVER=TRUE" : "");
                 configuration.jdbcUrl(jdbcUrl);
                 configuration.property("hibernate.connection.driver_class", "org.h2.Driver");
 
@@ -94,8 +157,13 @@ public class DatabaseManager {
                 "hibernate.connection.provider_class",
                 "org.hibernate.hikaricp.internal.HikariCPConnectionProvider");
         configuration.property("hibernate.hikari.minimumIdle", dotenv.get("HIKARI_MIN_IDLE", "5"));
-        configuration.property(
-                "hibernate.hikari.maximumPoolSize", dotenv.get("HIKARI_MAX_POOL_SIZE", "10"));
+        // SQLite only writes through the single writer, so the pool is made of readers
+        int poolSize =
+                Integer.parseInt(
+                        databaseType == DatabaseType.SQLITE
+                                ? dotenv.get("SQLITE_READER_POOL_SIZE", "16")
+                                : dotenv.get("HIKARI_MAX_POOL_SIZE", "10"));
+        configuration.property("hibernate.hikari.maximumPoolSize", String.valueOf(poolSize));
         configuration.property(
                 "hibernate.hikari.idleTimeout", dotenv.get("HIKARI_IDLE_TIMEOUT", "30000"));
         configuration.property(
@@ -116,6 +184,29 @@ public class DatabaseManager {
             configuration.property("hibernate.hikari.dataSource.password", dbPassword);
         }
 
+        // Configure JDBC batching so multi-entity transactions are sent in as few round trips as possible
+        configuration.property(
+                "hibernate.jdbc.batch_size", dotenv.get("HIBERNATE_BATCH_SIZE", "50"));
+        configuration.property("hibernate.order_inserts", "true");
+        configuration.property("hibernate.order_updates", "true");
+        configuration.property("hibernate.jdbc.batch_versioned_data", "true");
+
+        // Snowflake ids: every process writing to the same database needs its own worker id
+        String workerId = dotenv.get("SNOWFLAKE_WORKER_ID", "").trim();
+        if (workerId.isEmpty()) {
+            if (Boolean.parseBoolean(dotenv.get("CLUSTER_ENABLED", "false"))) {
+                // Nodes started from the same .env would all be worker 0 and collide on ids
+                throw new ExceptionInInitializerError(
+                        "SNOWFLAKE_WORKER_ID must be set, to a different value on every cluster node");
+            }
+            workerId = "0";
+        }
+        configuration.property(SnowflakeIdGenerator.WORKER_ID_SETTING, workerId);
+
+        // Rows fetched per JDBC round trip when streaming or paging
+        fetchSize = Integer.parseInt(dotenv.get("DB_FETCH_SIZE", "500"));
+        configuration.property("hibernate.jdbc.fetch_size", String.valueOf(fetchSize));
+
         // Configure Caffeine cache
         configuration.property("hibernate.cache.use_second_level_cache", "true");
         configuration.property("hibernate.cache.use_query_cache", "true");
@@ -130,16 +221,10 @@ public class DatabaseManager {
         configuration.property("hibernate.javax.cache.missing_cache_strategy", "create");
         configuration.property("hibernate.cache.caffeine.use_blocking", "true");
 
-        // Configure entity-specific cache settings
+        // Default settings for every region; hot lookups should also use a repository near cache
         configuration.property(
                 "hibernate.javax.cache.default_cache",
                 "{\"eternal\":false,\"maxSize\":1000,\"timeToIdleSeconds\":300}");
-        configuration.property(
-                "hibernate.javax.cache.cache.es.redactado.database.model.User",
-                "{\"eternal\":false,\"maxSize\":500,\"timeToIdleSeconds\":600}");
-        configuration.property(
-                "hibernate.javax.cache.cache.es.redactado.database.model.VerificationRequest",
-                "{\"eternal\":false,\"maxSize\":200,\"timeToIdleSeconds\":300}");
 
         // Configure SQL logging
         boolean showSql = Boolean.parseBoolean(dotenv.get("HIBERNATE_SHOW_SQL", "false"));
@@ -147,6 +232,12 @@ public class DatabaseManager {
         boolean highlightSql = Boolean.parseBoolean(dotenv.get("HIBERNATE_HIGHLIGHT_SQL", "false"));
         configuration.showSql(showSql, formatSql, highlightSql);
 
+        // Query counts, slow queries and L2 cache hits per region, read by DatabaseStatistics
+        configuration.property(
+                "hibernate.generate_statistics", dotenv.get("HIBERNATE_STATISTICS", "true"));
+        configuration.property(
+                "hibernate.log_slow_query", dotenv.get("HIBERNATE_SLOW_QUERY_MS", "200"));
+
         // Configure schema generation
         configuration.schemaToolingAction(Action.UPDATE);
 
@@ -160,14 +251,256 @@ public class DatabaseManager {
             throw new ExceptionInInitializerError(
                     "Failed to create SessionFactory: " + e.getMessage());
         }
+
+        // Connection wait and hold times; the pool only exists once the SessionFactory is built
+        poolMetrics = new PoolMetrics();
+        HikariDataSource dataSource = getHikariDataSource();
+        if (dataSource != null) {
+            dataSource.setMetricsTrackerFactory(poolMetrics);
+        }
+
+        // Broadcast L2 cache evictions to other bot processes sharing this database
+        String invalidationTransport = dotenv.get("CACHE_INVALIDATION_TRANSPORT", "NONE").toUpperCase();
+        if (invalidationTransport.equals("UDP")) {
+            try {
+                invalidationBus =
+                        new CacheInvalidationBus(
+                                sessionFactory,
+                                new UdpInvalidationTransport(
+                                        Integer.parseInt(dotenv.get("CACHE_INVALIDATION_PORT", "7650")),
+                                        UdpInvalidationTransport.parsePeers(
+                                                dotenv.get("CACHE_INVALIDATION_PEERS", ""))));
+            } catch (java.net.SocketException e) {
+                logger.error("Failed to start cache invalidation transport", e);
+                throw new ExceptionInInitializerError(
+                        "Failed to start cache invalidation transport: " + e.getMessage());
+            }
+        } else {
+            invalidationBus = null;
+        }
+
+        // Size the async executor to the connection pool so bursts queue here, not on Hikari
+        int queueSize = Integer.parseInt(dotenv.get("DB_EXECUTOR_QUEUE_SIZE", "1000"));
+        executor = new DatabaseExecutor(poolSize, queueSize);
+        writeQueue =
+                databaseType == DatabaseType.SQLITE
+                                && Boolean.parseBoolean(dotenv.get("SQLITE_WRITE_QUEUE", "true"))
+                        ? new SingleWriterQueue(
+                                this, Integer.parseInt(dotenv.get("SQLITE_WRITE_GROUP_SIZE", "256")))
+                        : null;
+        scheduler =
+                Executors.newSingleThreadScheduledExecutor(
+                        Thread.ofPlatform().name("db-scheduler").daemon(true).factory());
+        statistics =
+                new DatabaseStatistics(
+                        DatabaseStatistics.Settings.fromConfig(dotenv),
+                        sessionFactory,
+                        dataSource,
+                        poolMetrics,
+                        scheduler);
+
+        // Make sure buffered writes reach the database even if shutdown() is never called
+        Runtime.getRuntime().addShutdownHook(writeBehindShutdownHook);
     }
 
     public Session getSession() {
         logger.debug("Opening new Hibernate session");
-        return sessionFactory.openSession();
+        SessionRecorder recorder = SessionRecorder.startIfEnabled();
+        if (recorder == null) {
+            return sessionFactory.openSession();
+        }
+        return sessionFactory.withOptions().eventListeners(recorder).openSession();
+    }
+
+    /**
+     * Runs {@code work} in a read-write transaction and returns its result. On SQLite the work is
+     * handed to the single writer queue and group-committed with other pending writes; on the
+     * other databases it runs in its own transaction on the calling thread.
+     */
+    public <R> R write(Function<Session, R> work) {
+        if (writeQueue != null) {
+            try {
+                return writeQueue.submit(work).join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException cause) {
+                    throw cause;
+                }
+                throw e;
+            }
+        }
+
+        Session session = null;
+        Transaction transaction = null;
+        try {
+            session = getSession();
+            transaction = session.beginTransaction();
+            R result = work.apply(session);
+            transaction.commit();
+            return result;
+        } catch (Exception e) {
+            if (transaction != null && transaction.isActive() && session.isOpen()) {
+                transaction.rollback();
+            }
+            throw e;
+        } finally {
+            if (session != null && session.isOpen()) {
+                session.close();
+            }
+        }
+    }
+
+    /**
+     * Evicts one entity from the second-level cache, on this node and, when the invalidation bus
+     * is enabled, on every peer. Needed after native or bulk writes that Hibernate can't track.
+     */
+    public void evictEntity(Class<?> entityClass, Object id) {
+        if (invalidationBus != null) {
+            invalidationBus.evictEntity(entityClass.getName(), id);
+        } else {
+            sessionFactory.getCache().evictEntityData(entityClass, id);
+        }
+    }
+
+    /** Like {@link #evictEntity}, for several rows, sent to peers as one batch. */
+    public void evictEntities(Class<?> entityClass, Collection<?> ids) {
+        if (invalidationBus != null) {
+            invalidationBus.evictEntities(entityClass.getName(), ids);
+        } else {
+            ids.forEach(id -> sessionFactory.getCache().evictEntityData(entityClass, id));
+        }
+    }
+
+    /** Returns the cache invalidation bus, or {@code null} if it is disabled. */
+    public CacheInvalidationBus getInvalidationBus() {
+        return invalidationBus;
     }
 
-    public void shutdown() {
+    /** Returns the single writer queue, or {@code null} when writes run on the calling thread. */
+    public SingleWriterQueue getWriteQueue() {
+        return writeQueue;
+    }
+
+    /**
+     * Opens a stateless session, which keeps no persistence context. Used for streaming and paged
+     * reads so memory stays flat regardless of how many rows are read.
+     */
+    public StatelessSession getStatelessSession() {
+        logger.debug("Opening new Hibernate stateless session");
+        return sessionFactory.openStatelessSession();
+    }
+
+    public DatabaseType getDatabaseType() {
+        return databaseType;
+    }
+
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    /** Returns the bounded executor that backs the asynchronous repository API. */
+    public DatabaseExecutor getExecutor() {
+        return executor;
+    }
+
+    /** Returns the scheduler used for periodic database maintenance tasks. */
+    public ScheduledExecutorService getScheduler() {
+        return scheduler;
+    }
+
+    public SessionFactory getSessionFactory() {
+        return sessionFactory;
+    }
+
+    /** Returns the Hikari pool behind the SessionFactory, or {@code null} if it uses another one. */
+    public HikariDataSource getHikariDataSource() {
+        ConnectionProvider provider =
+                sessionFactory
+                        .unwrap(SessionFactoryImplementor.class)
+                        .getServiceRegistry()
+                        .getService(ConnectionProvider.class);
+        if (provider == null || !provider.isUnwrappableAs(HikariDataSource.class)) {
+            return null;
+        }
+        return provider.unwrap(HikariDataSource.class);
+    }
+
+    /** Returns connection pool wait and usage timings. */
+    public PoolMetrics getPoolMetrics() {
+        return poolMetrics;
+    }
+
+    /** Returns the periodically collected pool and Hibernate statistics. */
+    public DatabaseStatistics getStatistics() {
+        return statistics;
+    }
+
+    /** Returns the identifier of the given entity, or {@code null} if it has not been assigned yet. */
+    public Object getIdentifier(Object entity) {
+        return sessionFactory.getPersistenceUnitUtil().getIdentifier(entity);
+    }
+
+    public void registerWriteBehindBuffer(WriteBehindBuffer<?> buffer) {
+        writeBehindBuffers.add(buffer);
+    }
+
+    public List<WriteBehindStats> getWriteBehindStats() {
+        List<WriteBehindStats> stats = new ArrayList<>();
+        for (WriteBehindBuffer<?> buffer : writeBehindBuffers) {
+            stats.add(buffer.getStats());
+        }
+        return stats;
+    }
+
+    /** Flushes every registered write-behind buffer. Safe to call more than once. */
+    public void flushWriteBehindBuffers() {
+        for (WriteBehindBuffer<?> buffer : writeBehindBuffers) {
+            try {
+                buffer.close();
+            } catch (Exception e) {
+                logger.error("Failed to flush write-behind buffer {}", buffer.getName(), e);
+            }
+        }
+    }
+
+    /**
+     * Removes the hook that flushes write-behind buffers on JVM exit, for callers that run their
+     * own ordered shutdown and call {@link #drain} and {@link #shutdown} themselves. Must be
+     * called before the JVM starts shutting down.
+     */
+    public void disableShutdownHook() {
+        Runtime.getRuntime().removeShutdownHook(writeBehindShutdownHook);
+    }
+
+    /**
+     * Waits for queued asynchronous work to finish, then flushes write-behind buffers and pending
+     * writes. The SessionFactory stays open. Runs once; later calls return immediately.
+     */
+    public synchronized void drain(long timeout, TimeUnit unit) {
+        if (drained) {
+            return;
+        }
+        drained = true;
+        // Async tasks may still save into write-behind buffers or enqueue writes, so they go first
+        if (executor != null) {
+            logger.info("Shutting down database executor");
+            executor.shutdown(timeout, unit);
+        }
+        // Writes through the writer queue, which is still running
+        flushWriteBehindBuffers();
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+        if (writeQueue != null) {
+            logger.info("Draining single writer queue");
+            writeQueue.shutdown(timeout, unit);
+        }
+    }
+
+    public synchronized void shutdown() {
+        drain(30, TimeUnit.SECONDS);
+        if (invalidationBus != null) {
+            invalidationBus.close();
+        }
         if (sessionFactory != null) {
             logger.info("Shutting down Hibernate SessionFactory");
             sessionFactory.close();
@@ -0,0 +1,207 @@
+package es.redactado.database;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import es.redactado.metrics.LatencyHistogram;
+import io.github.cdimascio.dotenv.Dotenv;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Periodic snapshot of the connection pool and of Hibernate's statistics, collected every {@code
+ * DB_STATS_INTERVAL_S} on the database scheduler and read through {@link #getLatest()}.
+ *
+ * <p>Pool figures come from Hikari's {@link HikariPoolMXBean} and {@link PoolMetrics}; the wait
+ * and utilisation are measured over the last interval only. Query counts, slow queries (slower
+ * than {@code HIBERNATE_SLOW_QUERY_MS}) and second-level cache hits per region need {@code
+ * HIBERNATE_STATISTICS}; without it the Hibernate part of the snapshot is {@code null}. When
+ * {@code DB_POOL_ADAPTIVE} is set, each snapshot is also handed to {@link AdaptivePoolSizer}.
+ */
+public class DatabaseStatistics {
+    private static final Logger logger = LoggerFactory.getLogger(DatabaseStatistics.class);
+    private static final int SLOW_QUERIES_KEPT = 5;
+
+    public record Settings(Duration interval, AdaptivePoolSizer.Settings adaptive) {
+
+        public static Settings fromConfig(Dotenv dotenv) {
+            return new Settings(
+                    Duration.ofSeconds(Long.parseLong(dotenv.get("DB_STATS_INTERVAL_S", "10"))),
+                    AdaptivePoolSizer.Settings.fromConfig(dotenv));
+        }
+    }
+
+    private final SessionFactory sessionFactory;
+    private final HikariDataSource dataSource;
+    private final PoolMetrics poolMetrics;
+    private final AdaptivePoolSizer sizer;
+    private volatile Snapshot latest;
+
+    // Only touched by the collecting thread
+    private long lastCollectedNanos = System.nanoTime();
+    private long lastUsageMillis;
+
+    DatabaseStatistics(
+            Settings settings,
+            SessionFactory sessionFactory,
+            HikariDataSource dataSource,
+            PoolMetrics poolMetrics,
+            ScheduledExecutorService scheduler) {
+        this.sessionFactory = sessionFactory;
+        this.dataSource = dataSource;
+        this.poolMetrics = poolMetrics;
+        this.sizer =
+                settings.adaptive().enabled() && dataSource != null
+                        ? new AdaptivePoolSizer(settings.adaptive(), dataSource.getHikariConfigMXBean())
+                        : null;
+        long intervalMillis = settings.interval().toMillis();
+        scheduler.scheduleWithFixedDelay(
+                this::collect, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /** Pull API: the most recent snapshot, or {@code null} before the first interval has passed. */
+    public Snapshot getLatest() {
+        return latest;
+    }
+
+    public boolean isAdaptive() {
+        return sizer != null;
+    }
+
+    private void collect() {
+        try {
+            Pool pool = collectPool();
+            Snapshot snapshot = new Snapshot(Instant.now(), pool, collectHibernate());
+            latest = snapshot;
+            if (sizer != null && pool != null) {
+                sizer.adjust(pool);
+            }
+        } catch (Exception e) {
+            // Keep the periodic task alive, the scheduler cancels it on an exception
+            logger.warn("Failed to collect database statistics", e);
+        }
+    }
+
+    private Pool collectPool() {
+        long now = System.nanoTime();
+        long usageMillis = poolMetrics.getTotalUsageMillis();
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(now - lastCollectedNanos);
+        long heldMillis = usageMillis - lastUsageMillis;
+        lastCollectedNanos = now;
+        lastUsageMillis = usageMillis;
+        LatencyHistogram.Snapshot recentAcquire = poolMetrics.takeRecentAcquireTime();
+
+        HikariPoolMXBean mxBean = dataSource != null ? dataSource.getHikariPoolMXBean() : null;
+        if (mxBean == null) {
+            return null;
+        }
+        int maxSize = dataSource.getHikariConfigMXBean().getMaximumPoolSize();
+        // Time is counted when a connection is returned, so a long hold lands in a later interval
+        double utilisation =
+                elapsedMillis > 0 ? Math.min(1.0, heldMillis / (double) (elapsedMillis * maxSize)) : 0;
+        return new Pool(
+                mxBean.getActiveConnections(),
+                mxBean.getIdleConnections(),
+                mxBean.getTotalConnections(),
+                maxSize,
+                mxBean.getThreadsAwaitingConnection(),
+                utilisation,
+                recentAcquire,
+                poolMetrics.getTimeoutCount());
+    }
+
+    private Hibernate collectHibernate() {
+        Statistics statistics = sessionFactory.getStatistics();
+        if (!statistics.isStatisticsEnabled()) {
+            return null;
+        }
+
+        List<Region> regions = new ArrayList<>();
+        for (String name : statistics.getSecondLevelCacheRegionNames()) {
+            CacheRegionStatistics region = statistics.getCacheRegionStatistics(name);
+            if (region != null) {
+                regions.add(
+                        new Region(
+                                name,
+                                region.getHitCount(),
+                                region.getMissCount(),
+                                region.getPutCount(),
+                                region.getElementCountInMemory()));
+            }
+        }
+        regions.sort(Comparator.comparingLong(Region::misses).reversed());
+
+        List<SlowQuery> slowQueries = new ArrayList<>();
+        for (Map.Entry<String, Long> entry : statistics.getSlowQueries().entrySet()) {
+            slowQueries.add(new SlowQuery(entry.getKey(), entry.getValue()));
+        }
+        slowQueries.sort(Comparator.comparingLong(SlowQuery::millis).reversed());
+
+        return new Hibernate(
+                statistics.getQueryExecutionCount(),
+                statistics.getQueryExecutionMaxTime(),
+                statistics.getQueryExecutionMaxTimeQueryString(),
+                statistics.getPrepareStatementCount(),
+                statistics.getTransactionCount(),
+                statistics.getSecondLevelCacheHitCount(),
+                statistics.getSecondLevelCacheMissCount(),
+                regions,
+                slowQueries.subList(0, Math.min(SLOW_QUERIES_KEPT, slowQueries.size())));
+    }
+
+    public record Snapshot(Instant collectedAt, Pool pool, Hibernate hibernate) {}
+
+    /**
+     * Connection pool state. Counts are taken at collection time; {@code utilisation} (share of
+     * the pool held by callers) and {@code recentAcquire} cover the last interval.
+     */
+    public record Pool(
+            int active,
+            int idle,
+            int total,
+            int maxSize,
+            int waiting,
+            double utilisation,
+            LatencyHistogram.Snapshot recentAcquire,
+            long timeouts) {}
+
+    /** Hibernate counters since startup; {@code maxQueryMillis} is the slowest HQL query. */
+    public record Hibernate(
+            long queries,
+            long maxQueryMillis,
+            String maxQuery,
+            long statements,
+            long transactions,
+            long cacheHits,
+            long cacheMisses,
+            List<Region> regions,
+            List<SlowQuery> slowQueries) {
+
+        public double cacheHitRatio() {
+            long lookups = cacheHits + cacheMisses;
+            return lookups > 0 ? cacheHits / (double) lookups : 0;
+        }
+    }
+
+    /** Second-level cache region, most misses first. */
+    public record Region(String name, long hits, long misses, long puts, long elements) {
+
+        public double hitRatio() {
+            long lookups = hits + misses;
+            return lookups > 0 ? hits / (double) lookups : 0;
+        }
+    }
+
+    /** SQL slower than {@code HIBERNATE_SLOW_QUERY_MS}, with the execution time Hibernate recorded. */
+    public record SlowQuery(String sql, long millis) {}
+}
@@ -0,0 +1,17 @@
+package es.redactado.database;
+
+/** Database backends supported by {@link DatabaseManager}, resolved from {@code DB_TYPE}. */
+public enum DatabaseType {
+    MARIADB,
+    SQLITE,
+    H2;
+
+    /** Parses a {@code DB_TYPE} value, falling back to H2 like the connection setup does. */
+    public static DatabaseType fromConfig(String value) {
+        return switch (value.toUpperCase()) {
+            case "MARIADB" -> MARIADB;
+            case "SQLITE" -> SQLITE;
+            default -> H2;
+        };
+    }
+}
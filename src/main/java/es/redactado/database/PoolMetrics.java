@@ -0,0 +1,85 @@
+package es.redactado.database;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+import es.redactado.metrics.LatencyHistogram;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Connection pool timings reported by Hikari: how long callers waited for a connection, how long
+ * they held it, and how many gave up after {@code HIKARI_CONNECTION_TIMEOUT}. Installed by {@link
+ * DatabaseManager} once the pool has started.
+ */
+public class PoolMetrics implements MetricsTrackerFactory {
+    private final LatencyHistogram acquire = new LatencyHistogram();
+    private final LatencyHistogram usage = new LatencyHistogram();
+    private final LatencyHistogram recentAcquire = new LatencyHistogram();
+    private final LongAdder usageMillis = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private volatile PoolStats poolStats;
+
+    @Override
+    public IMetricsTracker create(String poolName, PoolStats poolStats) {
+        this.poolStats = poolStats;
+        return new IMetricsTracker() {
+            @Override
+            public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+                acquire.recordNanos(elapsedAcquiredNanos);
+                recentAcquire.recordNanos(elapsedAcquiredNanos);
+            }
+
+            @Override
+            public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+                usage.recordNanos(TimeUnit.MILLISECONDS.toNanos(elapsedBorrowedMillis));
+                usageMillis.add(elapsedBorrowedMillis);
+            }
+
+            @Override
+            public void recordConnectionTimeout() {
+                timeouts.increment();
+            }
+        };
+    }
+
+    /** Time spent in {@code getConnection}, including the wait for a free connection. */
+    public LatencyHistogram getAcquireTime() {
+        return acquire;
+    }
+
+    /** Time a connection was held before being returned to the pool. */
+    public LatencyHistogram getUsageTime() {
+        return usage;
+    }
+
+    /**
+     * Acquire times recorded since the previous call, then starts a new window. Acquisitions
+     * recorded while the window is being reset may be lost, which is fine for sampling.
+     */
+    public LatencyHistogram.Snapshot takeRecentAcquireTime() {
+        LatencyHistogram.Snapshot snapshot = recentAcquire.snapshot();
+        recentAcquire.reset();
+        return snapshot;
+    }
+
+    /** Total time connections were held, in milliseconds, counted when they are returned. */
+    public long getTotalUsageMillis() {
+        return usageMillis.sum();
+    }
+
+    public long getTimeoutCount() {
+        return timeouts.sum();
+    }
+
+    /** Threads currently blocked waiting for a connection, or 0 before the pool reports stats. */
+    public int getPendingThreads() {
+        PoolStats stats = poolStats;
+        return stats != null ? stats.getPendingThreads() : 0;
+    }
+
+    public int getActiveConnections() {
+        PoolStats stats = poolStats;
+        return stats != null ? stats.getActiveConnections() : 0;
+    }
+}
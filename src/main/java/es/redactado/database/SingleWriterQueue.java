@@ -0,0 +1,192 @@
+package es.redactado.database;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Funnels every write through one thread, for databases that only allow a single writer at a time
+ * (SQLite). Writes that are queued while a transaction is running are group-committed together in
+ * the next one, so many small writes share a single fsync instead of fighting over the lock and
+ * failing with {@code SQLITE_BUSY}.
+ *
+ * <p>If a group fails, it is rolled back and each write is retried in its own transaction, so one
+ * bad write never takes the rest of the group down with it.
+ */
+public class SingleWriterQueue {
+    private static final Logger logger = LoggerFactory.getLogger(SingleWriterQueue.class);
+
+    private final DatabaseManager databaseManager;
+    private final int maxGroupSize;
+    private final BlockingQueue<WriteTask<?>> queue = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    private final AtomicLong committedGroups = new AtomicLong();
+    private final AtomicLong committedWrites = new AtomicLong();
+    private final AtomicLong failedWrites = new AtomicLong();
+
+    public SingleWriterQueue(DatabaseManager databaseManager, int maxGroupSize) {
+        this.databaseManager = databaseManager;
+        this.maxGroupSize = maxGroupSize;
+        this.writer = Thread.ofPlatform().name("db-single-writer").daemon(true).start(this::run);
+    }
+
+    /** Queues a write; the future completes once the transaction containing it has committed. */
+    public <R> CompletableFuture<R> submit(Function<Session, R> work) {
+        if (!running) {
+            return CompletableFuture.failedFuture(
+                    new IllegalStateException("Single writer queue is shut down"));
+        }
+        WriteTask<R> task = new WriteTask<>(work);
+        queue.add(task);
+        // Shut down between the check and the add: the writer may already have left, so take the
+        // task back. If it is gone, the writer or the shutdown got to it and will complete it.
+        if (!running && queue.remove(task)) {
+            task.future.completeExceptionally(
+                    new IllegalStateException("Single writer queue is shut down"));
+        }
+        return task.future;
+    }
+
+    private void run() {
+        List<WriteTask<?>> group = new ArrayList<>(maxGroupSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                WriteTask<?> first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                group.add(first);
+                queue.drainTo(group, maxGroupSize - 1);
+
+                if (!commitGroup(group) && group.size() > 1) {
+                    for (WriteTask<?> task : group) {
+                        commitGroup(List.of(task));
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } finally {
+                group.clear();
+            }
+        }
+        failRemaining();
+    }
+
+    /** Fails whatever is still queued, so no caller waits on a write that will never run. */
+    private void failRemaining() {
+        List<WriteTask<?>> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        if (remaining.isEmpty()) {
+            return;
+        }
+        failedWrites.addAndGet(remaining.size());
+        IllegalStateException error =
+                new IllegalStateException("Single writer queue shut down before the write ran");
+        for (WriteTask<?> task : remaining) {
+            task.future.completeExceptionally(error);
+        }
+    }
+
+    /**
+     * Runs all tasks in one transaction. Returns {@code false} if the group was rolled back; a
+     * single-task group is then completed exceptionally right away.
+     */
+    private boolean commitGroup(List<WriteTask<?>> group) {
+        Session session = null;
+        Transaction transaction = null;
+        try {
+            session = databaseManager.getSession();
+            transaction = session.beginTransaction();
+            for (WriteTask<?> task : group) {
+                task.apply(session);
+            }
+            transaction.commit();
+
+            for (WriteTask<?> task : group) {
+                task.complete();
+            }
+            committedGroups.incrementAndGet();
+            committedWrites.addAndGet(group.size());
+            return true;
+        } catch (Exception e) {
+            if (transaction != null && transaction.isActive() && session.isOpen()) {
+                transaction.rollback();
+            }
+            if (group.size() == 1) {
+                failedWrites.incrementAndGet();
+                group.get(0).future.completeExceptionally(e);
+            } else {
+                logger.debug("Group commit of {} writes failed, retrying one by one", group.size(), e);
+            }
+            return false;
+        } finally {
+            if (session != null && session.isOpen()) {
+                session.close();
+            }
+        }
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public long getCommittedGroups() {
+        return committedGroups.get();
+    }
+
+    public long getCommittedWrites() {
+        return committedWrites.get();
+    }
+
+    public long getFailedWrites() {
+        return failedWrites.get();
+    }
+
+    /**
+     * Stops accepting writes and waits for the queued ones to commit. Writes still queued when the
+     * timeout passes are failed.
+     */
+    public void shutdown(long timeout, TimeUnit unit) {
+        running = false;
+        try {
+            writer.join(unit.toMillis(timeout));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writer.isAlive()) {
+            logger.warn("Single writer did not drain in time, {} writes left", queue.size());
+            writer.interrupt();
+            failRemaining();
+        }
+    }
+
+    private static final class WriteTask<R> {
+        private final Function<Session, R> work;
+        private final CompletableFuture<R> future = new CompletableFuture<>();
+        private R result;
+
+        private WriteTask(Function<Session, R> work) {
+            this.work = work;
+        }
+
+        private void apply(Session session) {
+            result = work.apply(session);
+        }
+
+        private void complete() {
+            future.complete(result);
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package es.redactado.database.cache;
+
+import es.redactado.database.cache.InvalidationMessage.Kind;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.hibernate.action.spi.AfterTransactionCompletionProcess;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps the Hibernate second-level cache coherent across bot processes.
+ *
+ * <p>Inserts, updates and deletes of every entity are collected per transaction and published
+ * through an {@link InvalidationTransport} once it commits: the changed rows of cached entities,
+ * which peers evict, and the table spaces written, which peers invalidate in their timestamps
+ * cache. Cached query results over those tables then go stale the same way they do on the writing
+ * node, while results over other tables stay cached. Bulk and native writes, which bypass the
+ * Hibernate events, are published through {@link #evictEntity} and {@link #evictEntities}.
+ */
+public class CacheInvalidationBus
+        implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+    private static final Logger logger = LoggerFactory.getLogger(CacheInvalidationBus.class);
+    // Above this many rows of one entity in a transaction, peers drop its whole region instead
+    private static final int MAX_IDS_PER_ENTITY = 64;
+    // Keeps a message of table spaces well inside one datagram
+    private static final int MAX_SPACES_LENGTH = 1000;
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final SessionFactory sessionFactory;
+    private final SessionFactoryImplementor factory;
+    private final InvalidationTransport transport;
+    private final Map<EventSource, Batch> pending = new ConcurrentHashMap<>();
+
+    public CacheInvalidationBus(SessionFactory sessionFactory, InvalidationTransport transport) {
+        this.sessionFactory = sessionFactory;
+        this.factory = sessionFactory.unwrap(SessionFactoryImplementor.class);
+        this.transport = transport;
+
+        EventListenerRegistry registry =
+                factory.getServiceRegistry().requireService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_INSERT, this);
+        registry.appendListeners(EventType.POST_UPDATE, this);
+        registry.appendListeners(EventType.POST_DELETE, this);
+
+        transport.start(this::apply);
+    }
+
+    /** Evicts one entity, and queries over its tables, locally and on every peer. */
+    public void evictEntity(String entityName, Object id) {
+        evictEntities(entityName, List.of(id));
+    }
+
+    /** Evicts entities of one type, and queries over its tables, locally and on every peer. */
+    public void evictEntities(String entityName, Collection<?> ids) {
+        Batch batch = new Batch();
+        for (Object id : ids) {
+            sessionFactory.getCache().evictEntityData(entityName, id);
+            batch.evict(entityName, id);
+        }
+        String[] spaces = spacesOf(entityName);
+        invalidateSpaces(spaces);
+        batch.spaces.addAll(List.of(spaces));
+        publish(batch);
+    }
+
+    /** Evicts a whole entity region, and queries over its tables, locally and on every peer. */
+    public void evictEntityRegion(String entityName) {
+        sessionFactory.getCache().evictEntityData(entityName);
+        String[] spaces = spacesOf(entityName);
+        invalidateSpaces(spaces);
+        publish(Kind.ENTITY_REGION, entityName, null);
+        publishSpaces(List.of(spaces));
+    }
+
+    /** Evicts a query cache region, or every query region if {@code null}, locally and on peers. */
+    public void evictQueryRegion(String regionName) {
+        if (regionName == null) {
+            sessionFactory.getCache().evictQueryRegions();
+        } else {
+            sessionFactory.getCache().evictQueryRegion(regionName);
+        }
+        publish(Kind.QUERY_REGION, regionName, null);
+    }
+
+    /** Clears every cache region locally and on every peer. */
+    public void evictAll() {
+        sessionFactory.getCache().evictAllRegions();
+        publish(Kind.ALL, null, null);
+    }
+
+    private void publish(Kind kind, String target, Object id) {
+        transport.publish(new InvalidationMessage(nodeId, kind, target, id));
+    }
+
+    private void publish(Batch batch) {
+        for (Map.Entry<String, List<Object>> entity : batch.evictions.entrySet()) {
+            if (entity.getValue().size() > MAX_IDS_PER_ENTITY) {
+                publish(Kind.ENTITY_REGION, entity.getKey(), null);
+            } else {
+                for (Object id : entity.getValue()) {
+                    publish(Kind.ENTITY, entity.getKey(), id);
+                }
+            }
+        }
+        publishSpaces(batch.spaces);
+    }
+
+    private void publishSpaces(Collection<String> spaces) {
+        StringBuilder target = new StringBuilder();
+        for (String space : spaces) {
+            if (!target.isEmpty() && target.length() + space.length() >= MAX_SPACES_LENGTH) {
+                publish(Kind.SPACES, target.toString(), null);
+                target.setLength(0);
+            }
+            if (!target.isEmpty()) {
+                target.append(',');
+            }
+            target.append(space);
+        }
+        if (!target.isEmpty()) {
+            publish(Kind.SPACES, target.toString(), null);
+        }
+    }
+
+    private void apply(InvalidationMessage message) {
+        if (message.nodeId().equals(nodeId)) {
+            return;
+        }
+        logger.debug(
+                "Applying remote invalidation {} {} {}",
+                message.kind(),
+                message.target(),
+                message.id());
+
+        Cache cache = sessionFactory.getCache();
+        switch (message.kind()) {
+            case ENTITY -> cache.evictEntityData(message.target(), message.id());
+            case ENTITY_REGION -> cache.evictEntityData(message.target());
+            case SPACES -> invalidateSpaces(message.target().split(","));
+            case QUERY_REGION -> {
+                if (message.target() == null) {
+                    cache.evictQueryRegions();
+                } else {
+                    cache.evictQueryRegion(message.target());
+                }
+            }
+            case ALL -> cache.evictAllRegions();
+        }
+    }
+
+    /** Marks cached query results over {@code spaces} as stale, as a local commit would. */
+    private void invalidateSpaces(String[] spaces) {
+        // The timestamps cache wants a session for statistics; a stateless one is cheap to open
+        try (StatelessSession session = sessionFactory.openStatelessSession()) {
+            factory.getCache()
+                    .getTimestampsCache()
+                    .invalidate(spaces, session.unwrap(SharedSessionContractImplementor.class));
+        }
+    }
+
+    private String[] spacesOf(String entityName) {
+        return factory.getMappingMetamodel().getEntityDescriptor(entityName).getPropertySpaces();
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        // Nothing to evict for a new row, but peers may hold query results that miss it
+        record(event.getSession(), event.getPersister(), null);
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        record(event.getSession(), event.getPersister(), event.getId());
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        record(event.getSession(), event.getPersister(), event.getId());
+    }
+
+    /**
+     * Adds a written row to its transaction's batch, which is published once the transaction
+     * commits and dropped if it rolls back.
+     */
+    private void record(EventSource session, EntityPersister persister, Object id) {
+        Batch batch;
+        if (session == null) {
+            // Not tied to a session's transaction, publish right away
+            batch = new Batch();
+        } else {
+            batch = pending.get(session);
+            if (batch == null) {
+                Batch created = new Batch();
+                pending.put(session, created);
+                session.getActionQueue()
+                        .registerProcess(
+                                (AfterTransactionCompletionProcess)
+                                        (success, completed) -> {
+                                            pending.remove(session);
+                                            if (success) {
+                                                publish(created);
+                                            }
+                                        });
+                batch = created;
+            }
+        }
+
+        batch.spaces.addAll(List.of(persister.getPropertySpaces()));
+        if (id != null && persister.canWriteToCache()) {
+            batch.evict(persister.getEntityName(), id);
+        }
+        if (session == null) {
+            publish(batch);
+        }
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return false;
+    }
+
+    public void close() {
+        transport.close();
+    }
+
+    /** Rows and table spaces written by one transaction. Only used by the session's thread. */
+    private static final class Batch {
+        private final Set<String> spaces = new LinkedHashSet<>();
+        private final Map<String, List<Object>> evictions = new HashMap<>();
+
+        private void evict(String entityName, Object id) {
+            List<Object> ids = evictions.computeIfAbsent(entityName, name -> new ArrayList<>());
+            // Past the limit the whole region goes, so the ids no longer matter
+            if (ids.size() <= MAX_IDS_PER_ENTITY) {
+                ids.add(id);
+            }
+        }
+    }
+}
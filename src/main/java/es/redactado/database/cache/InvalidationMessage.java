@@ -0,0 +1,63 @@
+package es.redactado.database.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * A cache eviction broadcast to peer nodes.
+ *
+ * <p>Encoded as a single tab-separated line so it fits comfortably in one datagram: {@code
+ * nodeId, kind, target, idType, id}. Ids of type {@link Long}, {@link Integer}, {@link String}
+ * and {@link UUID} are sent as is; any other id type is sent as {@code null}, which makes peers
+ * evict the whole entity region instead.
+ *
+ * @param nodeId node that published the message, so it can ignore its own echoes
+ * @param target entity name for {@link Kind#ENTITY} and {@link Kind#ENTITY_REGION}, comma
+ *     separated table spaces for {@link Kind#SPACES}, region name for {@link Kind#QUERY_REGION},
+ *     unused for {@link Kind#ALL}
+ */
+public record InvalidationMessage(String nodeId, Kind kind, String target, Object id) {
+    public enum Kind {
+        ENTITY,
+        ENTITY_REGION,
+        /** Tables written to, whose cached query results are now stale. */
+        SPACES,
+        QUERY_REGION,
+        ALL
+    }
+
+    public byte[] encode() {
+        String idType;
+        String idValue;
+        if (id instanceof Long || id instanceof Integer || id instanceof String || id instanceof UUID) {
+            idType = id.getClass().getSimpleName();
+            idValue = id.toString();
+        } else {
+            idType = "-";
+            idValue = "-";
+        }
+        return String.join("\t", nodeId, kind.name(), target == null ? "-" : target, idType, idValue)
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    public static InvalidationMessage decode(byte[] data, int length) {
+        String[] parts = new String(data, 0, length, StandardCharsets.UTF_8).split("\t", 5);
+        if (parts.length != 5) {
+            throw new IllegalArgumentException("Malformed invalidation message");
+        }
+        Object id =
+                switch (parts[3]) {
+                    case "Long" -> Long.parseLong(parts[4]);
+                    case "Integer" -> Integer.parseInt(parts[4]);
+                    case "String" -> parts[4];
+                    case "UUID" -> UUID.fromString(parts[4]);
+                    default -> null;
+                };
+        Kind kind = Kind.valueOf(parts[1]);
+        // An entity eviction without a usable id falls back to the whole region
+        if (kind == Kind.ENTITY && id == null) {
+            kind = Kind.ENTITY_REGION;
+        }
+        return new InvalidationMessage(parts[0], kind, parts[2].equals("-") ? null : parts[2], id);
+    }
+}
@@ -0,0 +1,17 @@
+package es.redactado.database.cache;
+
+import java.util.function.Consumer;
+
+/**
+ * Delivers {@link InvalidationMessage}s between bot processes sharing a database. Implementations
+ * must never block the publishing thread for long, since publishing happens right after commit.
+ */
+public interface InvalidationTransport extends AutoCloseable {
+    /** Starts listening; every message received from a peer is passed to {@code receiver}. */
+    void start(Consumer<InvalidationMessage> receiver);
+
+    void publish(InvalidationMessage message);
+
+    @Override
+    void close();
+}
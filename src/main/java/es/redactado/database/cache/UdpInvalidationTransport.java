@@ -0,0 +1,100 @@
+package es.redactado.database.cache;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
+import java.net.SocketException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Sends invalidations as UDP datagrams to a fixed list of peers. Delivery is best effort, which is
+ * fine for evictions: a lost message only leaves an entry stale until its region expiry, exactly
+ * as without the bus. Two JVMs on one machine can be wired together over loopback by giving each
+ * its own port and the other's address as peer.
+ */
+public class UdpInvalidationTransport implements InvalidationTransport {
+    private static final Logger logger = LoggerFactory.getLogger(UdpInvalidationTransport.class);
+    private static final int MAX_DATAGRAM_SIZE = 1400;
+
+    private final DatagramSocket socket;
+    private final List<InetSocketAddress> peers;
+    private Thread receiverThread;
+
+    public UdpInvalidationTransport(int port, List<InetSocketAddress> peers) throws SocketException {
+        this.socket = new DatagramSocket(port);
+        this.peers = List.copyOf(peers);
+    }
+
+    /** Parses a comma-separated {@code host:port} list, as used by {@code CACHE_INVALIDATION_PEERS}. */
+    public static List<InetSocketAddress> parsePeers(String value) {
+        List<InetSocketAddress> peers = new ArrayList<>();
+        for (String peer : value.split(",")) {
+            String trimmed = peer.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            int separator = trimmed.lastIndexOf(':');
+            peers.add(
+                    new InetSocketAddress(
+                            trimmed.substring(0, separator),
+                            Integer.parseInt(trimmed.substring(separator + 1))));
+        }
+        return peers;
+    }
+
+    @Override
+    public void start(Consumer<InvalidationMessage> receiver) {
+        receiverThread =
+                Thread.ofPlatform()
+                        .name("cache-invalidation-receiver")
+                        .daemon(true)
+                        .start(
+                                () -> {
+                                    byte[] buffer = new byte[MAX_DATAGRAM_SIZE];
+                                    while (!socket.isClosed()) {
+                                        DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+                                        try {
+                                            socket.receive(packet);
+                                            receiver.accept(
+                                                    InvalidationMessage.decode(
+                                                            packet.getData(), packet.getLength()));
+                                        } catch (IOException e) {
+                                            if (!socket.isClosed()) {
+                                                logger.warn("Failed to receive invalidation", e);
+                                            }
+                                        } catch (RuntimeException e) {
+                                            logger.warn("Ignoring invalid invalidation message", e);
+                                        }
+                                    }
+                                });
+        logger.info(
+                "Listening for cache invalidations on UDP port {}, {} peers",
+                socket.getLocalPort(),
+                peers.size());
+    }
+
+    @Override
+    public void publish(InvalidationMessage message) {
+        byte[] data = message.encode();
+        for (InetSocketAddress peer : peers) {
+            try {
+                socket.send(new DatagramPacket(data, data.length, peer));
+            } catch (IOException e) {
+                logger.warn("Failed to send invalidation to {}", peer, e);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        socket.close();
+        if (receiverThread != null) {
+            receiverThread.interrupt();
+        }
+    }
+}
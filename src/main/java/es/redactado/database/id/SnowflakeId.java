@@ -0,0 +1,18 @@
+package es.redactado.database.id;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import org.hibernate.annotations.IdGeneratorType;
+
+/**
+ * Generates the annotated id with {@link Snowflake} before the entity is inserted.
+ *
+ * <p>An id that is already set is kept as is, so Discord snowflakes (guild, user or message ids)
+ * can be used as natural keys simply by assigning them before saving.
+ */
+@IdGeneratorType(SnowflakeIdGenerator.class)
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.METHOD})
+public @interface SnowflakeId {}
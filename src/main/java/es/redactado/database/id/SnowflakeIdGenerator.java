@@ -0,0 +1,51 @@
+package es.redactado.database.id;
+
+import java.lang.reflect.Member;
+import java.util.EnumSet;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.hibernate.generator.EventTypeSets;
+import org.hibernate.generator.GeneratorCreationContext;
+
+/**
+ * Hibernate generator behind {@link SnowflakeId}. The worker id is read from the {@value
+ * #WORKER_ID_SETTING} setting, which {@code DatabaseManager} fills from {@code
+ * SNOWFLAKE_WORKER_ID}.
+ */
+public class SnowflakeIdGenerator implements BeforeExecutionGenerator {
+    public static final String WORKER_ID_SETTING = "es.redactado.snowflake.worker_id";
+
+    private final Snowflake snowflake;
+
+    public SnowflakeIdGenerator(
+            SnowflakeId config, Member member, GeneratorCreationContext context) {
+        Object workerId =
+                context.getServiceRegistry()
+                        .requireService(ConfigurationService.class)
+                        .getSettings()
+                        .get(WORKER_ID_SETTING);
+        this.snowflake =
+                Snowflake.forWorker(workerId == null ? 0L : Long.parseLong(workerId.toString()));
+    }
+
+    @Override
+    public Object generate(
+            SharedSessionContractImplementor session,
+            Object owner,
+            Object currentValue,
+            EventType eventType) {
+        return currentValue != null ? currentValue : snowflake.nextId();
+    }
+
+    @Override
+    public boolean allowAssignedIdentifiers() {
+        return true;
+    }
+
+    @Override
+    public EnumSet<EventType> getEventTypes() {
+        return EventTypeSets.INSERT_ONLY;
+    }
+}
@@ -1,7 +1,6 @@
 package es.redactado.database.model;
 
-import jakarta.persistence.GeneratedValue;
-import jakarta.persistence.GenerationType;
+import es.redactado.database.id.SnowflakeId;
 import jakarta.persistence.Id;
 import jakarta.persistence.MappedSuperclass;
 import java.time.Instant;
@@ -12,11 +11,14 @@ import org.hibernate.annotations.UpdateTimestamp;
 /**
  * Base class for all domain entities. This class contains common fields such as id, createdAt, and
  * updatedAt.
+ *
+ * <p>Ids are time-ordered snowflakes assigned before the INSERT, which keeps JDBC insert batching
+ * enabled. Set the id yourself to use a Discord snowflake as a natural key.
  */
 @MappedSuperclass
 public abstract class BaseDomain {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @SnowflakeId
     private Long id;
 
     @CreationTimestamp private Instant createdAt;
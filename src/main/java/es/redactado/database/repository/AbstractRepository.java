@@ -1,17 +1,38 @@
 package es.redactado.database.repository;
 
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import es.redactado.database.DatabaseManager;
+import es.redactado.jfr.RepositoryEvent;
 import java.io.Serializable;
 import java.lang.reflect.ParameterizedType;
+import java.time.Duration;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.hibernate.Session;
-import org.hibernate.Transaction;
+import org.hibernate.StatelessSession;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.query.SelectionQuery;
 
-public abstract class AbstractRepository<T, ID extends Serializable> {
+public abstract class AbstractRepository<T, ID extends Serializable> implements Repository<T, ID> {
 
     protected final DatabaseManager databaseManager;
     private final Class<T> entityClass;
+    private final String entityName;
+    private WriteBehindBuffer<T> writeBehindBuffer;
+    private volatile EntityUpsert entityUpsert;
+    private LoadingCache<ID, Optional<T>> nearCache;
 
     @SuppressWarnings("unchecked")
     public AbstractRepository(DatabaseManager databaseManager) {
@@ -19,9 +40,86 @@ public abstract class AbstractRepository<T, ID extends Serializable> {
         this.entityClass =
                 (Class<T>) ((ParameterizedType) getClass().getGenericSuperclass())
                         .getActualTypeArguments()[0];
+        this.entityName = entityClass.getSimpleName();
     }
 
+    /**
+     * Opts this repository into write-behind mode. From then on {@link #save(Object)} only queues
+     * the entity and returns it as given, with its id generated if it had none; writes reach the
+     * database in coalesced batches of up to {@code maxBatchSize} entities, at least every {@code
+     * flushInterval}. The entity needs an id generator that runs before the insert.
+     *
+     * <p>Meant for high-volume, loss-tolerant data such as counters. Call it from the subclass
+     * constructor.
+     */
+    protected void enableWriteBehind(int maxBatchSize, Duration flushInterval) {
+        this.writeBehindBuffer =
+                new WriteBehindBuffer<>(
+                        databaseManager, entityName, maxBatchSize, flushInterval);
+    }
+
+    /**
+     * Puts a Caffeine cache of detached entities in front of {@link #findById(Object)}. Hits skip
+     * the session, the pool checkout and the second-level cache entirely. Entries are invalidated
+     * by this repository's own writes, refreshed in the background once older than half of {@code
+     * ttl} and dropped after {@code ttl}, which bounds staleness from writes made elsewhere.
+     *
+     * <p>Cached instances are shared between callers; treat them as read-only and save a copy.
+     * Call it from the subclass constructor.
+     */
+    protected void enableNearCache(long maximumSize, Duration ttl) {
+        this.nearCache =
+                Caffeine.newBuilder()
+                        .maximumSize(maximumSize)
+                        .expireAfterWrite(ttl)
+                        .refreshAfterWrite(ttl.dividedBy(2))
+                        .executor(databaseManager.getExecutor())
+                        .recordStats()
+                        .build(this::loadById);
+    }
+
+    /** Returns near cache statistics, or {@code null} if the near cache is disabled. */
+    public CacheStats getNearCacheStats() {
+        return nearCache != null ? nearCache.stats() : null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void invalidateNearCache(Object id) {
+        if (nearCache != null && id != null) {
+            nearCache.invalidate((ID) id);
+        }
+    }
+
+    /** Writes every pending write-behind entity now. Does nothing if write-behind is disabled. */
+    public void flush() {
+        if (writeBehindBuffer != null) {
+            writeBehindBuffer.flush();
+        }
+    }
+
+    @Override
     public Optional<T> findById(ID id) {
+        RepositoryEvent event = new RepositoryEvent();
+        event.begin();
+        Optional<T> result = lookup(id);
+        event.finish(entityName, "findById", result.isPresent() ? 1 : 0);
+        return result;
+    }
+
+    private Optional<T> lookup(ID id) {
+        if (writeBehindBuffer != null) {
+            T pending = writeBehindBuffer.getPending(id);
+            if (pending != null) {
+                return Optional.of(pending);
+            }
+        }
+        if (nearCache != null) {
+            return nearCache.get(id);
+        }
+        return loadById(id);
+    }
+
+    private Optional<T> loadById(ID id) {
         Session session = null;
         try {
             session = databaseManager.getSession();
@@ -34,11 +132,16 @@ public abstract class AbstractRepository<T, ID extends Serializable> {
         }
     }
 
+    @Override
     public List<T> findAll() {
+        RepositoryEvent event = new RepositoryEvent();
+        event.begin();
         Session session = null;
         try {
             session = databaseManager.getSession();
-            return session.createQuery("FROM " + entityClass.getSimpleName(), entityClass).list();
+            List<T> rows = session.createQuery("FROM " + entityName, entityClass).list();
+            event.finish(entityName, "findAll", rows.size());
+            return rows;
         } finally {
             if (session != null && session.isOpen()) {
                 session.close();
@@ -46,49 +149,260 @@ public abstract class AbstractRepository<T, ID extends Serializable> {
         }
     }
 
-    public T save(T entity) {
-        Session session = null;
-        Transaction transaction = null;
+    @Override
+    public Stream<T> streamAll() {
+        StatelessSession session = databaseManager.getStatelessSession();
         try {
-            session = databaseManager.getSession();
-            transaction = session.beginTransaction();
-            T mergedEntity = session.merge(entity);
-            transaction.commit();
-            return mergedEntity;
+            ScrollableResults<T> results =
+                    session.createSelectionQuery("FROM " + entityName, entityClass)
+                            .setFetchSize(databaseManager.getFetchSize())
+                            .setReadOnly(true)
+                            .scroll(ScrollMode.FORWARD_ONLY);
+
+            Spliterator<T> spliterator =
+                    new Spliterators.AbstractSpliterator<>(
+                            Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+                        @Override
+                        public boolean tryAdvance(Consumer<? super T> action) {
+                            if (!results.next()) {
+                                return false;
+                            }
+                            action.accept(results.get());
+                            return true;
+                        }
+                    };
+
+            return StreamSupport.stream(spliterator, false)
+                    .onClose(
+                            () -> {
+                                results.close();
+                                session.close();
+                            });
         } catch (Exception e) {
-            if (transaction != null && transaction.isActive() && session.isOpen()) {
-                transaction.rollback();
-            }
+            session.close();
             throw e;
-        } finally {
-            if (session != null && session.isOpen()) {
-                session.close();
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public KeysetPage<T, ID> findPage(ID afterId, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Page limit must be positive, got " + limit);
+        }
+
+        RepositoryEvent event = new RepositoryEvent();
+        event.begin();
+        try (StatelessSession session = databaseManager.getStatelessSession()) {
+            SelectionQuery<T> query =
+                    afterId == null
+                            ? session.createSelectionQuery(
+                                    "FROM " + entityName + " e ORDER BY e.id", entityClass)
+                            : session.createSelectionQuery(
+                                            "FROM " + entityName + " e WHERE e.id > :afterId ORDER BY e.id",
+                                            entityClass)
+                                    .setParameter("afterId", afterId);
+
+            // Fetch one extra row to know whether another page exists without a COUNT query
+            List<T> rows =
+                    query.setFetchSize(Math.min(limit + 1, databaseManager.getFetchSize()))
+                            .setReadOnly(true)
+                            .setMaxResults(limit + 1)
+                            .getResultList();
+
+            if (rows.size() <= limit) {
+                event.finish(entityName, "findPage", rows.size());
+                return new KeysetPage<>(rows, null);
             }
+            List<T> items = rows.subList(0, limit);
+            event.finish(entityName, "findPage", limit);
+            ID nextCursor = (ID) databaseManager.getIdentifier(items.get(limit - 1));
+            return new KeysetPage<>(items, nextCursor);
         }
     }
 
+    @Override
+    public T save(T entity) {
+        RepositoryEvent event = new RepositoryEvent();
+        event.begin();
+        if (writeBehindBuffer != null) {
+            // The id is what coalesces writes, and the caller needs it to save the entity again
+            Object id = assignId(entity);
+            writeBehindBuffer.enqueue(entity);
+            invalidateNearCache(id);
+            event.finish(entityName, "save (write-behind)", 1);
+            return entity;
+        }
+
+        T merged = databaseManager.write(session -> session.merge(entity));
+        invalidateNearCache(databaseManager.getIdentifier(merged));
+        event.finish(entityName, "save", 1);
+        return merged;
+    }
+
+    @Override
     public void delete(T entity) {
-        Session session = null;
-        Transaction transaction = null;
-        try {
-            session = databaseManager.getSession();
-            transaction = session.beginTransaction();
-            T managed = session.contains(entity) ? entity : session.merge(entity);
-            session.remove(managed);
-            transaction.commit();
-        } catch (Exception e) {
-            if (transaction != null && transaction.isActive() && session.isOpen()) {
-                transaction.rollback();
-            }
-            throw e;
-        } finally {
-            if (session != null && session.isOpen()) {
-                session.close();
-            }
+        RepositoryEvent event = new RepositoryEvent();
+        event.begin();
+        Object id = databaseManager.getIdentifier(entity);
+        if (writeBehindBuffer != null && id != null) {
+            writeBehindBuffer.discard(id);
+        }
+
+        databaseManager.write(
+                session -> {
+                    T managed = session.contains(entity) ? entity : session.merge(entity);
+                    session.remove(managed);
+                    return null;
+                });
+        invalidateNearCache(id);
+        event.finish(entityName, "delete", 1);
+    }
+
+    /**
+     * Inserts the entity or updates the existing row with the same id in a single native statement,
+     * without the SELECT that {@code merge} performs. A missing id is generated first.
+     */
+    @Override
+    public T upsert(T entity) {
+        RepositoryEvent event = new RepositoryEvent();
+        event.begin();
+        EntityUpsert upsert = getEntityUpsert();
+        Object id =
+                databaseManager.write(
+                        session -> {
+                            SharedSessionContractImplementor sessionImplementor =
+                                    session.unwrap(SharedSessionContractImplementor.class);
+                            return session.doReturningWork(
+                                    connection -> upsert.execute(connection, entity, sessionImplementor));
+                        });
+
+        databaseManager.evictEntity(entityClass, id);
+        if (writeBehindBuffer != null) {
+            writeBehindBuffer.discard(id);
         }
+        invalidateNearCache(id);
+        event.finish(entityName, "upsert", 1);
+        return entity;
     }
 
+    /**
+     * Deletes the row with a single {@code DELETE} statement. Being a bulk operation it skips
+     * entity lifecycle callbacks and cascades; use {@link #delete(Object)} when those matter.
+     */
+    @Override
     public void deleteById(ID id) {
-        findById(id).ifPresent(this::delete);
+        deleteAllById(List.of(id));
+    }
+
+    /** Deletes every row whose id is in {@code ids} with a single {@code DELETE ... IN} statement. */
+    @Override
+    public int deleteAllById(Collection<ID> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        RepositoryEvent event = new RepositoryEvent();
+        event.begin();
+        if (writeBehindBuffer != null) {
+            ids.forEach(writeBehindBuffer::discard);
+        }
+
+        int deleted =
+                databaseManager.write(
+                        session ->
+                                session.createMutationQuery(
+                                                "DELETE FROM " + entityName + " e WHERE e.id IN :ids")
+                                        .setParameterList("ids", ids)
+                                        .executeUpdate());
+        // The bulk delete clears the local region itself, but peers need to hear about the rows
+        if (databaseManager.getInvalidationBus() != null) {
+            databaseManager.evictEntities(entityClass, ids);
+        }
+        if (nearCache != null) {
+            nearCache.invalidateAll(ids);
+        }
+        event.finish(entityName, "deleteAllById", deleted);
+        return deleted;
+    }
+
+    /** Generates the id of a new entity up front, as the insert would. */
+    private Object assignId(T entity) {
+        Object id = databaseManager.getIdentifier(entity);
+        if (id != null) {
+            return id;
+        }
+        try (StatelessSession session = databaseManager.getStatelessSession()) {
+            return getEntityUpsert()
+                    .assignId(entity, session.unwrap(SharedSessionContractImplementor.class));
+        }
+    }
+
+    private EntityUpsert getEntityUpsert() {
+        EntityUpsert upsert = entityUpsert;
+        if (upsert == null) {
+            upsert =
+                    new EntityUpsert(
+                            databaseManager.getSessionFactory(),
+                            entityClass,
+                            databaseManager.getDatabaseType());
+            entityUpsert = upsert;
+        }
+        return upsert;
+    }
+
+    @Override
+    public CompletableFuture<T> saveAsync(T entity) {
+        return async(() -> save(entity));
+    }
+
+    @Override
+    public CompletableFuture<T> upsertAsync(T entity) {
+        return async(() -> upsert(entity));
+    }
+
+    @Override
+    public CompletableFuture<Optional<T>> findByIdAsync(ID id) {
+        return async(() -> findById(id));
+    }
+
+    @Override
+    public CompletableFuture<List<T>> findAllAsync() {
+        return async(this::findAll);
+    }
+
+    @Override
+    public CompletableFuture<KeysetPage<T, ID>> findPageAsync(ID afterId, int limit) {
+        return async(() -> findPage(afterId, limit));
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteAsync(T entity) {
+        return async(
+                () -> {
+                    delete(entity);
+                    return null;
+                });
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteByIdAsync(ID id) {
+        return async(
+                () -> {
+                    deleteById(id);
+                    return null;
+                });
+    }
+
+    @Override
+    public CompletableFuture<Integer> deleteAllByIdAsync(Collection<ID> ids) {
+        return async(() -> deleteAllById(ids));
+    }
+
+    /**
+     * Runs a blocking repository operation on the database executor. Subclasses can use it to expose
+     * their own custom queries asynchronously.
+     */
+    protected <R> CompletableFuture<R> async(Supplier<R> operation) {
+        return databaseManager.getExecutor().submit(operation);
     }
 }
@@ -0,0 +1,193 @@
+package es.redactado.database.repository;
+
+import es.redactado.database.DatabaseType;
+import es.redactado.database.model.BaseDomain;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+import org.hibernate.SessionFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.hibernate.generator.Generator;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.type.Type;
+
+/**
+ * Single-statement insert-or-update for one entity class, built from the Hibernate mapping and
+ * rendered in the native syntax of the configured database:
+ *
+ * <ul>
+ *   <li>MariaDB: {@code INSERT ... ON DUPLICATE KEY UPDATE}
+ *   <li>SQLite: {@code INSERT ... ON CONFLICT (id) DO UPDATE}
+ *   <li>H2: {@code MERGE INTO ... USING ... WHEN MATCHED / WHEN NOT MATCHED}
+ * </ul>
+ *
+ * <p>Only entities whose persistent attributes map to a single column each are supported, and
+ * versioned entities are rejected because the statement bypasses optimistic locking.
+ */
+class EntityUpsert {
+    private static final String CREATED_AT = "createdAt";
+
+    private final EntityPersister persister;
+    private final String sql;
+    private final List<Integer> propertyIndexes = new ArrayList<>();
+
+    EntityUpsert(SessionFactory sessionFactory, Class<?> entityClass, DatabaseType databaseType) {
+        this.persister =
+                sessionFactory
+                        .unwrap(SessionFactoryImplementor.class)
+                        .getMappingMetamodel()
+                        .getEntityDescriptor(entityClass);
+
+        if (!(persister instanceof AbstractEntityPersister mapping)) {
+            throw new UnsupportedOperationException(
+                    "Upsert is not supported for " + entityClass.getName());
+        }
+        if (persister.isVersioned()) {
+            throw new UnsupportedOperationException(
+                    "Upsert would bypass optimistic locking on " + entityClass.getName());
+        }
+
+        String[] idColumns = mapping.getIdentifierColumnNames();
+        if (idColumns.length != 1) {
+            throw new UnsupportedOperationException(
+                    "Upsert requires a single-column id on " + entityClass.getName());
+        }
+
+        List<String> columns = new ArrayList<>();
+        List<String> updatableColumns = new ArrayList<>();
+        columns.add(idColumns[0]);
+
+        String[] propertyNames = persister.getPropertyNames();
+        boolean[] insertable = persister.getPropertyInsertability();
+        for (int i = 0; i < propertyNames.length; i++) {
+            String[] propertyColumns = mapping.getPropertyColumnNames(i);
+            if (!insertable[i] || propertyColumns.length == 0) {
+                continue;
+            }
+            if (propertyColumns.length != 1) {
+                throw new UnsupportedOperationException(
+                        "Upsert does not support multi-column attribute "
+                                + entityClass.getName()
+                                + "."
+                                + propertyNames[i]);
+            }
+            propertyIndexes.add(i);
+            columns.add(propertyColumns[0]);
+            // Keep the original creation time when the row already exists
+            if (!propertyNames[i].equals(CREATED_AT)) {
+                updatableColumns.add(propertyColumns[0]);
+            }
+        }
+
+        this.sql = render(databaseType, mapping.getTableName(), idColumns[0], columns, updatableColumns);
+    }
+
+    private static String render(
+            DatabaseType databaseType,
+            String table,
+            String idColumn,
+            List<String> columns,
+            List<String> updatableColumns) {
+        String columnList = String.join(", ", columns);
+        String placeholders = String.join(", ", columns.stream().map(column -> "?").toList());
+
+        return switch (databaseType) {
+            case MARIADB -> {
+                StringJoiner updates = new StringJoiner(", ");
+                for (String column : updatableColumns) {
+                    updates.add(column + " = VALUES(" + column + ")");
+                }
+                if (updatableColumns.isEmpty()) {
+                    updates.add(idColumn + " = " + idColumn);
+                }
+                yield "INSERT INTO " + table + " (" + columnList + ") VALUES (" + placeholders
+                        + ") ON DUPLICATE KEY UPDATE " + updates;
+            }
+            case SQLITE -> {
+                StringJoiner updates = new StringJoiner(", ");
+                for (String column : updatableColumns) {
+                    updates.add(column + " = excluded." + column);
+                }
+                String action =
+                        updatableColumns.isEmpty() ? "DO NOTHING" : "DO UPDATE SET " + updates;
+                yield "INSERT INTO " + table + " (" + columnList + ") VALUES (" + placeholders
+                        + ") ON CONFLICT (" + idColumn + ") " + action;
+            }
+            case H2 -> {
+                StringJoiner updates = new StringJoiner(", ");
+                StringJoiner sourceColumns = new StringJoiner(", ");
+                for (String column : updatableColumns) {
+                    updates.add("t." + column + " = s." + column);
+                }
+                for (String column : columns) {
+                    sourceColumns.add("s." + column);
+                }
+                String matched =
+                        updatableColumns.isEmpty() ? "" : " WHEN MATCHED THEN UPDATE SET " + updates;
+                yield "MERGE INTO " + table + " t USING (VALUES (" + placeholders + ")) s ("
+                        + columnList + ") ON t." + idColumn + " = s." + idColumn
+                        + matched
+                        + " WHEN NOT MATCHED THEN INSERT (" + columnList + ") VALUES ("
+                        + sourceColumns + ")";
+            }
+        };
+    }
+
+    /**
+     * Returns the entity identifier, generating and setting it first if the entity has none.
+     * Requires an id generator that runs before the insert, such as {@code @SnowflakeId}.
+     */
+    Object assignId(Object entity, SharedSessionContractImplementor session) {
+        Object id = persister.getIdentifier(entity, session);
+        if (id == null) {
+            Generator generator = persister.getGenerator();
+            if (!(generator instanceof BeforeExecutionGenerator beforeExecution)) {
+                throw new UnsupportedOperationException(
+                        "Needs an assigned or pre-generated id on " + persister.getEntityName());
+            }
+            id = beforeExecution.generate(session, entity, null, EventType.INSERT);
+            persister.setIdentifier(entity, id, session);
+        }
+        return id;
+    }
+
+    /**
+     * Assigns an id if needed and runs the upsert on the given connection.
+     *
+     * @return the entity identifier
+     */
+    Object execute(Connection connection, Object entity, SharedSessionContractImplementor session)
+            throws SQLException {
+        Object id = assignId(entity, session);
+
+        // Native SQL skips @CreationTimestamp/@UpdateTimestamp, so fill them in here
+        if (entity instanceof BaseDomain domain) {
+            Instant now = Instant.now();
+            if (domain.getCreatedAt() == null) {
+                domain.setCreatedAt(now);
+            }
+            domain.setUpdatedAt(now);
+        }
+
+        Object[] values = persister.getValues(entity);
+        Type[] types = persister.getPropertyTypes();
+
+        try (PreparedStatement statement = connection.prepareStatement(sql)) {
+            int index = 1;
+            persister.getIdentifierType().nullSafeSet(statement, id, index++, session);
+            for (int property : propertyIndexes) {
+                types[property].nullSafeSet(statement, values[property], index++, session);
+            }
+            statement.executeUpdate();
+        }
+        return id;
+    }
+}
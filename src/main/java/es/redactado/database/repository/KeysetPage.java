@@ -0,0 +1,16 @@
+package es.redactado.database.repository;
+
+import java.util.List;
+
+/**
+ * One page of a keyset (seek) paginated read.
+ *
+ * @param items rows of this page, ordered by id
+ * @param nextCursor id to pass as {@code afterId} to fetch the next page, or {@code null} when
+ *     this is the last page
+ */
+public record KeysetPage<T, ID>(List<T> items, ID nextCursor) {
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+}
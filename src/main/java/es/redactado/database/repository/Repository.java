@@ -1,16 +1,53 @@
 package es.redactado.database.repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
 public interface Repository<T, ID> {
     T save(T entity);
 
+    /** Inserts or updates the entity in a single database round trip. */
+    T upsert(T entity);
+
     Optional<T> findById(ID id);
 
     List<T> findAll();
 
+    /**
+     * Streams every row in constant memory. The stream holds an open database cursor and must be
+     * closed, preferably with try-with-resources.
+     */
+    Stream<T> streamAll();
+
+    /**
+     * Returns up to {@code limit} rows whose id is greater than {@code afterId}, ordered by id.
+     * Pass {@code null} to read the first page.
+     */
+    KeysetPage<T, ID> findPage(ID afterId, int limit);
+
     void delete(T entity);
 
     void deleteById(ID id);
+
+    int deleteAllById(Collection<ID> ids);
+
+    // Asynchronous variants, executed on the bounded database executor
+    CompletableFuture<T> saveAsync(T entity);
+
+    CompletableFuture<T> upsertAsync(T entity);
+
+    CompletableFuture<Optional<T>> findByIdAsync(ID id);
+
+    CompletableFuture<List<T>> findAllAsync();
+
+    CompletableFuture<KeysetPage<T, ID>> findPageAsync(ID afterId, int limit);
+
+    CompletableFuture<Void> deleteAsync(T entity);
+
+    CompletableFuture<Void> deleteByIdAsync(ID id);
+
+    CompletableFuture<Integer> deleteAllByIdAsync(Collection<ID> ids);
 }
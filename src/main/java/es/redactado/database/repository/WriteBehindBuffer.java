@@ -0,0 +1,222 @@
+package es.redactado.database.repository;
+
+import es.redactado.database.DatabaseManager;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * In-memory write-behind buffer for repository saves.
+ *
+ * <p>Pending writes are keyed by entity identifier, so repeated saves of the same row between two
+ * flushes collapse into a single statement. A flush is triggered either when the buffer reaches
+ * {@code maxBatchSize} entries or when {@code flushInterval} elapses, and writes every pending
+ * entity in one transaction using JDBC batching.
+ */
+public class WriteBehindBuffer<T> {
+    private static final Logger logger = LoggerFactory.getLogger(WriteBehindBuffer.class);
+
+    private final DatabaseManager databaseManager;
+    private final String name;
+    private final int maxBatchSize;
+    private final Map<Object, Pending<T>> pending = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final ScheduledFuture<?> timer;
+    private volatile boolean closed;
+
+    // Metrics
+    private final AtomicLong oldestPendingNanos = new AtomicLong();
+    private final AtomicLong enqueuedWrites = new AtomicLong();
+    private final AtomicLong coalescedWrites = new AtomicLong();
+    private final AtomicLong flushedEntities = new AtomicLong();
+    private final AtomicLong flushCount = new AtomicLong();
+    private final AtomicLong failedFlushes = new AtomicLong();
+    private volatile long lastFlushDurationMillis;
+    private volatile long lastFlushLagMillis;
+    private volatile long maxFlushLagMillis;
+
+    public WriteBehindBuffer(
+            DatabaseManager databaseManager, String name, int maxBatchSize, Duration flushInterval) {
+        this.databaseManager = databaseManager;
+        this.name = name;
+        this.maxBatchSize = maxBatchSize;
+        this.timer =
+                databaseManager
+                        .getScheduler()
+                        .scheduleWithFixedDelay(
+                                this::requestFlush,
+                                flushInterval.toMillis(),
+                                flushInterval.toMillis(),
+                                TimeUnit.MILLISECONDS);
+        databaseManager.registerWriteBehindBuffer(this);
+    }
+
+    /**
+     * Queues the entity for writing, replacing any pending write for the same identifier. Once the
+     * buffer is closed the entity is written right away instead, so late saves aren't lost.
+     */
+    public void enqueue(T entity) {
+        if (closed) {
+            databaseManager.write(session -> session.merge(entity));
+            return;
+        }
+        Object key = databaseManager.getIdentifier(entity);
+        if (key == null) {
+            throw new IllegalArgumentException(
+                    "Write-behind entities need an id before they are queued: " + entity);
+        }
+
+        oldestPendingNanos.compareAndSet(0, System.nanoTime());
+        enqueuedWrites.incrementAndGet();
+        if (pending.put(key, new Pending<>(entity, sequence.incrementAndGet())) != null) {
+            coalescedWrites.incrementAndGet();
+        }
+
+        if (closed) {
+            // Closed while queueing; the final flush may already have run
+            flush();
+        } else if (pending.size() >= maxBatchSize) {
+            requestFlush();
+        }
+    }
+
+    /** Returns the pending write for the identifier, if any, so reads can see unflushed saves. */
+    public T getPending(Object id) {
+        Pending<T> write = pending.get(id);
+        return write != null ? write.entity() : null;
+    }
+
+    /** Drops any pending write for the identifier, used when the entity is deleted. */
+    public void discard(Object id) {
+        pending.remove(id);
+    }
+
+    /** Hands a flush to the database executor unless one is already queued. */
+    private void requestFlush() {
+        if (pending.isEmpty() || !flushScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        databaseManager
+                .getExecutor()
+                .submit(
+                        () -> {
+                            flushScheduled.set(false);
+                            flush();
+                            return null;
+                        })
+                .exceptionally(
+                        e -> {
+                            flushScheduled.set(false);
+                            logger.warn("Write-behind flush for {} could not run: {}", name, e.getMessage());
+                            return null;
+                        });
+    }
+
+    /** Writes every pending entity synchronously on the calling thread. */
+    public void flush() {
+        flushLock.lock();
+        try {
+            while (!pending.isEmpty()) {
+                flushBatch();
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void flushBatch() {
+        long startedAt = System.nanoTime();
+        long oldest = oldestPendingNanos.getAndSet(0);
+
+        // Entries stay in pending until the write commits, so reads keep seeing them meanwhile
+        // instead of loading, and caching, the old row
+        List<Map.Entry<Object, Pending<T>>> batch =
+                new ArrayList<>(Math.min(pending.size(), maxBatchSize));
+        for (Map.Entry<Object, Pending<T>> entry : pending.entrySet()) {
+            if (batch.size() >= maxBatchSize) {
+                break;
+            }
+            batch.add(Map.entry(entry.getKey(), entry.getValue()));
+        }
+
+        try {
+            databaseManager.write(
+                    session -> {
+                        session.setJdbcBatchSize(maxBatchSize);
+                        for (Map.Entry<Object, Pending<T>> entry : batch) {
+                            session.merge(entry.getValue().entity());
+                        }
+                        return null;
+                    });
+        } catch (Exception e) {
+            failedFlushes.incrementAndGet();
+            oldestPendingNanos.compareAndSet(0, oldest != 0 ? oldest : startedAt);
+            logger.error("Failed to flush write-behind buffer {}", name, e);
+            throw e;
+        }
+
+        // Only drop the writes we flushed; a newer one for the same key stays for the next batch
+        for (Map.Entry<Object, Pending<T>> entry : batch) {
+            pending.remove(entry.getKey(), entry.getValue());
+        }
+        if (!pending.isEmpty()) {
+            oldestPendingNanos.compareAndSet(0, startedAt);
+        }
+
+        long now = System.nanoTime();
+        flushCount.incrementAndGet();
+        flushedEntities.addAndGet(batch.size());
+        lastFlushDurationMillis = TimeUnit.NANOSECONDS.toMillis(now - startedAt);
+        if (oldest != 0) {
+            lastFlushLagMillis = TimeUnit.NANOSECONDS.toMillis(now - oldest);
+            maxFlushLagMillis = Math.max(maxFlushLagMillis, lastFlushLagMillis);
+        }
+        logger.debug(
+                "Flushed {} entities from write-behind buffer {} in {} ms",
+                batch.size(),
+                name,
+                lastFlushDurationMillis);
+    }
+
+    /** Stops the periodic flush and writes whatever is still pending. */
+    public void close() {
+        closed = true;
+        timer.cancel(false);
+        flush();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public WriteBehindStats getStats() {
+        long oldest = oldestPendingNanos.get();
+        long currentLag = oldest == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - oldest);
+        return new WriteBehindStats(
+                name,
+                pending.size(),
+                enqueuedWrites.get(),
+                coalescedWrites.get(),
+                flushCount.get(),
+                flushedEntities.get(),
+                failedFlushes.get(),
+                lastFlushDurationMillis,
+                currentLag,
+                lastFlushLagMillis,
+                maxFlushLagMillis);
+    }
+
+    /** One queued save; the sequence tells a re-save of the same instance from the one flushed. */
+    private record Pending<T>(T entity, long sequence) {}
+}
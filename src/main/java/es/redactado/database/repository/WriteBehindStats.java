@@ -0,0 +1,23 @@
+package es.redactado.database.repository;
+
+/**
+ * Point-in-time snapshot of a {@link WriteBehindBuffer}.
+ *
+ * @param pending entities waiting to be written
+ * @param enqueuedWrites total saves accepted by the buffer
+ * @param coalescedWrites saves that replaced a pending write for the same identifier
+ * @param currentLagMillis age of the oldest pending write
+ * @param lastFlushLagMillis how long the oldest entity of the last flush waited in the buffer
+ */
+public record WriteBehindStats(
+        String name,
+        int pending,
+        long enqueuedWrites,
+        long coalescedWrites,
+        long flushCount,
+        long flushedEntities,
+        long failedFlushes,
+        long lastFlushDurationMillis,
+        long currentLagMillis,
+        long lastFlushLagMillis,
+        long maxFlushLagMillis) {}
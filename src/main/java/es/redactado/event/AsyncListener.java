@@ -0,0 +1,14 @@
+package es.redactado.event;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Runs every handler of the annotated listener on a virtual thread instead of the gateway thread.
+ * Use it for listeners that block (database, HTTP) so they don't stall event delivery.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface AsyncListener {}
@@ -0,0 +1,12 @@
+package es.redactado.event;
+
+import net.dv8tion.jda.api.events.GenericEvent;
+
+/**
+ * Direct call to one listener method, generated once per listener class. Public only because the
+ * generated implementations live in the listener's own package.
+ */
+@FunctionalInterface
+public interface EventInvoker {
+    void invoke(Object listener, GenericEvent event) throws Throwable;
+}
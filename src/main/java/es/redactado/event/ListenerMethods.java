@@ -0,0 +1,160 @@
+package es.redactado.event;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import net.dv8tion.jda.api.events.GenericEvent;
+import net.dv8tion.jda.api.hooks.EventListener;
+import net.dv8tion.jda.api.hooks.ListenerAdapter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Finds the handler methods of a listener class and compiles a direct invoker for each.
+ *
+ * <p>Methods annotated with {@link Subscribe} are picked up on any class. For {@link
+ * ListenerAdapter} subclasses, every {@code onXxx(event)} method the class overrides is picked up
+ * too, so existing adapters only receive the event types they actually handle instead of going
+ * through {@code ListenerAdapter.onEvent}'s full switch for every event.
+ *
+ * <p>Any other {@link EventListener} keeps its single {@code onEvent} entry point and receives
+ * every event, which is what JDA's own one-shot listeners rely on.
+ *
+ * <p>Results are cached per class, so compiling happens once no matter how many shards register
+ * the same listener.
+ */
+final class ListenerMethods {
+    private static final Logger logger = LoggerFactory.getLogger(ListenerMethods.class);
+
+    private static final ClassValue<List<Handler>> CACHE =
+            new ClassValue<>() {
+                @Override
+                protected List<Handler> computeValue(Class<?> type) {
+                    return List.copyOf(scan(type));
+                }
+            };
+
+    /** One handler method: the event type it accepts and its compiled invoker. */
+    record Handler(Class<? extends GenericEvent> eventType, EventInvoker invoker, String name) {}
+
+    private ListenerMethods() {}
+
+    static List<Handler> of(Class<?> listenerClass) {
+        return CACHE.get(listenerClass);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Handler> scan(Class<?> listenerClass) {
+        List<Handler> handlers = new ArrayList<>();
+        List<String> seen = new ArrayList<>();
+        boolean adapter = ListenerAdapter.class.isAssignableFrom(listenerClass);
+        boolean plain = !adapter && EventListener.class.isAssignableFrom(listenerClass);
+
+        for (Class<?> type = listenerClass;
+                type != null && type != ListenerAdapter.class && type != Object.class;
+                type = type.getSuperclass()) {
+            for (Method method : type.getDeclaredMethods()) {
+                if (!isHandler(method, adapter, plain)) {
+                    continue;
+                }
+                // Only the most specific override counts
+                String signature = method.getName() + method.getParameterTypes()[0].getName();
+                if (seen.contains(signature)) {
+                    continue;
+                }
+                seen.add(signature);
+
+                Class<? extends GenericEvent> eventType =
+                        (Class<? extends GenericEvent>) method.getParameterTypes()[0];
+                handlers.add(
+                        new Handler(
+                                eventType,
+                                compile(listenerClass, method),
+                                listenerClass.getName() + "#" + method.getName()));
+            }
+        }
+        return handlers;
+    }
+
+    private static boolean isHandler(Method method, boolean adapter, boolean plain) {
+        if (Modifier.isStatic(method.getModifiers())
+                || method.isBridge()
+                || method.isSynthetic()
+                || method.getParameterCount() != 1
+                || !GenericEvent.class.isAssignableFrom(method.getParameterTypes()[0])) {
+            return false;
+        }
+        if (method.isAnnotationPresent(Subscribe.class)) {
+            return true;
+        }
+        if (plain) {
+            return method.getName().equals("onEvent")
+                    && method.getParameterTypes()[0] == GenericEvent.class;
+        }
+        // onEvent is JDA's own catch-all entry point, not a typed handler
+        return adapter
+                && method.getName().startsWith("on")
+                && !method.getName().equals("onEvent")
+                && overridesAdapterMethod(method);
+    }
+
+    private static boolean overridesAdapterMethod(Method method) {
+        try {
+            ListenerAdapter.class.getMethod(method.getName(), method.getParameterTypes());
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Builds a {@link LambdaMetafactory} invoker, which the JIT can inline like a normal call.
+     * Falls back to a plain method handle if the listener's class can't host the lambda.
+     */
+    private static EventInvoker compile(Class<?> listenerClass, Method method) {
+        MethodHandles.Lookup lookup;
+        MethodHandle target;
+        try {
+            lookup = MethodHandles.privateLookupIn(method.getDeclaringClass(), MethodHandles.lookup());
+            target = lookup.unreflect(method);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(
+                    "Cannot access listener method " + listenerClass.getName() + "#" + method.getName(),
+                    e);
+        }
+
+        // Lambda listeners are hidden classes and can't host another generated class
+        if (!listenerClass.isHidden()) {
+            try {
+                CallSite site =
+                        LambdaMetafactory.metafactory(
+                                lookup,
+                                "invoke",
+                                MethodType.methodType(EventInvoker.class),
+                                MethodType.methodType(void.class, Object.class, GenericEvent.class),
+                                target,
+                                MethodType.methodType(
+                                        void.class, listenerClass, method.getParameterTypes()[0]));
+                return (EventInvoker) site.getTarget().invokeExact();
+            } catch (Throwable e) {
+                logger.debug(
+                        "Falling back to method handle for {}#{}",
+                        listenerClass.getName(),
+                        method.getName(),
+                        e);
+            }
+        }
+
+        MethodHandle generic =
+                target.asType(MethodType.methodType(void.class, Object.class, GenericEvent.class));
+        return (listener, event) -> {
+            generic.invokeExact(listener, event);
+        };
+    }
+}
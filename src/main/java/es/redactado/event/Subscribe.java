@@ -0,0 +1,15 @@
+package es.redactado.event;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a listener method for {@link TypedEventManager}. The method must take exactly one
+ * parameter, a subtype of {@code GenericEvent}, and is called for events of that type and its
+ * subtypes only.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface Subscribe {}
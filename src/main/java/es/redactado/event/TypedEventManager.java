@@ -0,0 +1,123 @@
+package es.redactado.event;
+
+import es.redactado.jfr.GatewayDispatchEvent;
+import io.sentry.Sentry;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javax.annotation.Nonnull;
+import net.dv8tion.jda.api.events.GenericEvent;
+import net.dv8tion.jda.api.hooks.IEventManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Event manager that dispatches each event straight to the handlers declared for its type.
+ *
+ * <p>JDA's default manager hands every event to every listener, and each {@code ListenerAdapter}
+ * then walks a long {@code instanceof} chain to find out whether it cares. Here the listener
+ * methods are found and compiled once per class (see {@link ListenerMethods}), and the handlers
+ * matching a concrete event class are resolved once and cached, so delivering an event is a
+ * lookup plus direct calls to the interested handlers only.
+ *
+ * <p>Listeners annotated with {@link AsyncListener} have their handlers run on virtual threads.
+ * Create one manager per shard with {@code setEventManagerProvider(id -> new
+ * TypedEventManager())}; the compiled invokers are shared between them.
+ */
+public class TypedEventManager implements IEventManager {
+    private static final Logger logger = LoggerFactory.getLogger(TypedEventManager.class);
+    private static final ExecutorService ASYNC_EXECUTOR =
+            Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("event-async-", 0).factory());
+    private static final Subscription[] NONE = new Subscription[0];
+
+    private final List<Object> listeners = new CopyOnWriteArrayList<>();
+    private volatile ClassValue<Subscription[]> dispatch = newDispatch(List.of());
+
+    private record Subscription(
+            Object listener, ListenerMethods.Handler handler, boolean async) {}
+
+    @Override
+    public synchronized void register(@Nonnull Object listener) {
+        if (ListenerMethods.of(listener.getClass()).isEmpty()) {
+            throw new IllegalArgumentException(
+                    "Listener "
+                            + listener.getClass().getName()
+                            + " has no @Subscribe methods and overrides no ListenerAdapter methods");
+        }
+        listeners.add(listener);
+        rebuild();
+    }
+
+    @Override
+    public synchronized void unregister(@Nonnull Object listener) {
+        if (listeners.remove(listener)) {
+            rebuild();
+        }
+    }
+
+    @Override
+    public void handle(@Nonnull GenericEvent event) {
+        if (logger.isTraceEnabled()) {
+            logger.trace("Received event: {}", event.getClass().getSimpleName());
+        }
+        GatewayDispatchEvent dispatchEvent = new GatewayDispatchEvent();
+        dispatchEvent.begin();
+        Subscription[] subscriptions = dispatch.get(event.getClass());
+        for (Subscription subscription : subscriptions) {
+            if (subscription.async()) {
+                ASYNC_EXECUTOR.execute(() -> invoke(subscription, event));
+            } else {
+                invoke(subscription, event);
+            }
+        }
+        dispatchEvent.finish(event, subscriptions.length);
+    }
+
+    @Nonnull
+    @Override
+    public List<Object> getRegisteredListeners() {
+        return Collections.unmodifiableList(new ArrayList<>(listeners));
+    }
+
+    private void invoke(Subscription subscription, GenericEvent event) {
+        try {
+            subscription.handler().invoker().invoke(subscription.listener(), event);
+        } catch (Throwable t) {
+            logger.error(
+                    "Listener {} threw while handling {}",
+                    subscription.handler().name(),
+                    event.getClass().getSimpleName(),
+                    t);
+            Sentry.captureException(t);
+            if (t instanceof Error error) {
+                throw error;
+            }
+        }
+    }
+
+    // A fresh ClassValue drops every cached event-class resolution at once
+    private void rebuild() {
+        dispatch = newDispatch(List.copyOf(listeners));
+    }
+
+    private static ClassValue<Subscription[]> newDispatch(List<Object> snapshot) {
+        return new ClassValue<>() {
+            @Override
+            protected Subscription[] computeValue(Class<?> eventClass) {
+                List<Subscription> matches = new ArrayList<>();
+                for (Object listener : snapshot) {
+                    boolean async = listener.getClass().isAnnotationPresent(AsyncListener.class);
+                    for (ListenerMethods.Handler handler : ListenerMethods.of(listener.getClass())) {
+                        if (handler.eventType().isAssignableFrom(eventClass)) {
+                            matches.add(new Subscription(listener, handler, async));
+                        }
+                    }
+                }
+                return matches.isEmpty() ? NONE : matches.toArray(Subscription[]::new);
+            }
+        };
+    }
+}
@@ -0,0 +1,76 @@
+package es.redactado.gateway;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import javax.annotation.Nonnull;
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.utils.ConcurrentSessionController;
+
+/**
+ * JDA's per-bucket session controller with hooks that run right before a shard connects, on the
+ * controller's worker thread. Used to wait for the cluster coordinator's identify permit and to
+ * seed a persisted session for RESUME.
+ */
+public class GatewaySessionController extends ConcurrentSessionController {
+    private final List<ConnectHook> hooks = new CopyOnWriteArrayList<>();
+    private final Map<SessionConnectNode, SessionConnectNode> wrapped = new ConcurrentHashMap<>();
+
+    @FunctionalInterface
+    public interface ConnectHook {
+        void beforeConnect(SessionConnectNode session) throws InterruptedException;
+    }
+
+    public GatewaySessionController addHook(ConnectHook hook) {
+        hooks.add(hook);
+        return this;
+    }
+
+    @Override
+    public void appendSession(@Nonnull SessionConnectNode session) {
+        SessionConnectNode hooked = new HookedNode(session);
+        wrapped.put(session, hooked);
+        super.appendSession(hooked);
+    }
+
+    @Override
+    public void removeSession(@Nonnull SessionConnectNode session) {
+        SessionConnectNode hooked = wrapped.remove(session);
+        super.removeSession(hooked != null ? hooked : session);
+    }
+
+    private final class HookedNode implements SessionConnectNode {
+        private final SessionConnectNode delegate;
+
+        private HookedNode(SessionConnectNode delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public boolean isReconnect() {
+            return delegate.isReconnect();
+        }
+
+        @Nonnull
+        @Override
+        public JDA getJDA() {
+            return delegate.getJDA();
+        }
+
+        @Nonnull
+        @Override
+        public JDA.ShardInfo getShardInfo() {
+            return delegate.getShardInfo();
+        }
+
+        @Override
+        public void run(boolean isLast) throws InterruptedException {
+            for (ConnectHook hook : hooks) {
+                hook.beforeConnect(delegate);
+            }
+            wrapped.remove(delegate, this);
+            delegate.run(isLast);
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package es.redactado.gateway;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import io.github.cdimascio.dotenv.Dotenv;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.sharding.ShardManager;
+import net.dv8tion.jda.api.utils.SessionController;
+import net.dv8tion.jda.internal.JDAImpl;
+import net.dv8tion.jda.internal.requests.WebSocketClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps gateway sessions alive across a restart.
+ *
+ * <p>On shutdown, {@link #closeAndPersist} closes every shard with a non-1000 close code, which
+ * leaves the session resumable on Discord's side. It then writes each shard's session id,
+ * sequence number and resume URL to {@code GATEWAY_SESSION_FILE}. On the next start, with {@code
+ * GATEWAY_RESUME_ON_START=true}, {@link #seed} hands them back to each shard before it connects.
+ * JDA then sends RESUME instead of IDENTIFY. If Discord rejects the session, JDA falls back to a
+ * normal IDENTIFY by itself.
+ *
+ * <p>A resumed session only replays the events missed while the bot was down. It does not replay
+ * READY and the guild creates, so JDA's guild cache starts empty and {@code ReadyEvent} is not
+ * fired ({@code SessionResumeEvent} is). That is why resuming is opt-in: it suits bots whose
+ * handlers don't depend on cached guilds.
+ *
+ * <p>JDA has no public API for this, so the session id and resume URL are read and written
+ * reflectively on its internal {@code WebSocketClient}. Any failure only means a normal
+ * IDENTIFY.
+ */
+@Singleton
+public class GatewaySessionStore {
+    private static final Logger logger = LoggerFactory.getLogger(GatewaySessionStore.class);
+    private static final int RESUMABLE_CLOSE_CODE = 4900;
+    private static final Duration SHARD_CLOSE_TIMEOUT = Duration.ofSeconds(5);
+
+    private final Path stateFile;
+    private final boolean resumeOnStart;
+    private final Duration maxAge;
+    private final Map<Integer, SavedSession> pending = new ConcurrentHashMap<>();
+
+    private record SavedSession(String sessionId, long sequence, String resumeUrl) {}
+
+    @Inject
+    public GatewaySessionStore(Dotenv dotenv) {
+        this.stateFile =
+                Paths.get(dotenv.get("GATEWAY_SESSION_FILE", "./data/gateway-sessions.properties"));
+        this.resumeOnStart =
+                Boolean.parseBoolean(dotenv.get("GATEWAY_RESUME_ON_START", "false"));
+        this.maxAge =
+                Duration.ofSeconds(Long.parseLong(dotenv.get("GATEWAY_RESUME_MAX_AGE", "90")));
+    }
+
+    /**
+     * Loads the sessions saved by the previous run, if they are recent enough and were saved for
+     * the same shard count ({@code -1} when not known yet; Discord rejects mismatches anyway). The
+     * file is deleted either way, since a session can be resumed once.
+     */
+    public void load(int shardsTotal) {
+        if (!Files.exists(stateFile)) {
+            return;
+        }
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(stateFile)) {
+            properties.load(in);
+            Files.delete(stateFile);
+        } catch (IOException e) {
+            logger.warn("Failed to read gateway sessions from {}", stateFile, e);
+            return;
+        }
+        if (!resumeOnStart) {
+            return;
+        }
+
+        long savedAt = Long.parseLong(properties.getProperty("saved_at", "0"));
+        Duration age = Duration.ofMillis(System.currentTimeMillis() - savedAt);
+        int savedTotal = Integer.parseInt(properties.getProperty("shards_total", "-1"));
+        if (age.compareTo(maxAge) > 0 || (shardsTotal > 0 && shardsTotal != savedTotal)) {
+            logger.info("Saved gateway sessions are stale or for another shard count, identifying");
+            return;
+        }
+
+        for (String name : properties.stringPropertyNames()) {
+            if (name.startsWith("shard.") && name.endsWith(".session")) {
+                String prefix = name.substring(0, name.length() - "session".length());
+                int shardId = Integer.parseInt(prefix.substring("shard.".length(), prefix.length() - 1));
+                pending.put(
+                        shardId,
+                        new SavedSession(
+                                properties.getProperty(name),
+                                Long.parseLong(properties.getProperty(prefix + "seq")),
+                                properties.getProperty(prefix + "url")));
+            }
+        }
+        logger.info("Loaded {} gateway sessions saved {} s ago", pending.size(), age.toSeconds());
+    }
+
+    /**
+     * Connect hook for {@link GatewaySessionController}: hands a shard its saved session before
+     * its first connect.
+     */
+    public void seed(SessionController.SessionConnectNode session) {
+        if (session.isReconnect()) {
+            return;
+        }
+        SavedSession saved = pending.remove(session.getShardInfo().getShardId());
+        if (saved == null) {
+            return;
+        }
+        try {
+            JDAImpl jda = (JDAImpl) session.getJDA();
+            WebSocketClient client = jda.getClient();
+            field("sessionId").set(client, saved.sessionId());
+            Field resumeUrl = optionalField("resumeUrl");
+            if (saved.resumeUrl() != null && resumeUrl != null) {
+                resumeUrl.set(client, saved.resumeUrl());
+            }
+            jda.setResponseTotal((int) saved.sequence());
+            logger.info(
+                    "Shard {} will try to resume session at sequence {}",
+                    session.getShardInfo().getShardId(),
+                    saved.sequence());
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            logger.warn("Cannot seed a saved session, shard will identify", e);
+        }
+    }
+
+    /**
+     * Closes every shard without invalidating its session and saves the sessions. The shards are
+     * shut down afterwards.
+     */
+    public void closeAndPersist(ShardManager shardManager) {
+        Properties properties = new Properties();
+        properties.setProperty("saved_at", Long.toString(System.currentTimeMillis()));
+        properties.setProperty("shards_total", Integer.toString(shardManager.getShardsTotal()));
+
+        int saved = 0;
+        for (JDA shard : shardManager.getShards()) {
+            if (shard.getStatus() != JDA.Status.CONNECTED) {
+                continue;
+            }
+            try {
+                JDAImpl jda = (JDAImpl) shard;
+                WebSocketClient client = jda.getClient();
+                String sessionId = (String) field("sessionId").get(client);
+                Field resumeUrlField = optionalField("resumeUrl");
+                String resumeUrl = resumeUrlField != null ? (String) resumeUrlField.get(client) : null;
+                if (sessionId == null) {
+                    continue;
+                }
+                // No reconnect after our close; a 1000 close code would end the session
+                shard.setAutoReconnect(false);
+                client.close(RESUMABLE_CLOSE_CODE);
+                shard.awaitShutdown(SHARD_CLOSE_TIMEOUT);
+
+                String prefix = "shard." + shard.getShardInfo().getShardId() + ".";
+                properties.setProperty(prefix + "session", sessionId);
+                properties.setProperty(prefix + "seq", Long.toString(jda.getResponseTotal()));
+                if (resumeUrl != null) {
+                    properties.setProperty(prefix + "url", resumeUrl);
+                }
+                saved++;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                logger.warn(
+                        "Cannot save the session of shard {}", shard.getShardInfo().getShardId(), e);
+            }
+        }
+        shardManager.shutdown();
+
+        try {
+            Files.createDirectories(stateFile.toAbsolutePath().getParent());
+            try (OutputStream out = Files.newOutputStream(stateFile)) {
+                properties.store(out, "Gateway sessions for RESUME on the next start");
+            }
+            logger.info("Saved {} gateway sessions to {}", saved, stateFile);
+        } catch (IOException e) {
+            logger.warn("Failed to save gateway sessions to {}", stateFile, e);
+        }
+    }
+
+    // Older JDA versions resume on the default gateway URL
+    private static Field optionalField(String name) {
+        try {
+            return field(name);
+        } catch (NoSuchFieldException e) {
+            return null;
+        }
+    }
+
+    private static Field field(String name) throws NoSuchFieldException {
+        Field field = WebSocketClient.class.getDeclaredField(name);
+        field.setAccessible(true);
+        return field;
+    }
+}
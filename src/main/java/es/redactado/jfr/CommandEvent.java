@@ -0,0 +1,42 @@
+package es.redactado.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/** One command handler run; the event's duration is the handler's execution time. */
+@Name("es.redactado.Command")
+@Label("Command")
+@Category({"Bot", "Commands"})
+@StackTrace(false)
+public class CommandEvent extends Event {
+    @Label("Command")
+    String command;
+
+    @Label("Type")
+    String type;
+
+    @Label("Queue Wait")
+    @Description("From receiving the interaction until the handler started")
+    @Timespan(Timespan.NANOSECONDS)
+    long queueWait;
+
+    @Label("Failed")
+    boolean failed;
+
+    /** Ends the event and commits it if it is enabled and above its threshold. */
+    public void finish(String command, String type, long queueWaitNanos, boolean failed) {
+        end();
+        if (shouldCommit()) {
+            this.command = command;
+            this.type = type;
+            this.queueWait = queueWaitNanos;
+            this.failed = failed;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package es.redactado.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+import jdk.jfr.Timespan;
+
+/**
+ * One Hibernate session, from opening until it is closed, with the JDBC work done inside it.
+ * Recorded from 1 ms by default, without a stack trace, since every session creates one; the
+ * continuous recording sets its own threshold.
+ */
+@Name("es.redactado.DatabaseSession")
+@Label("Database Session")
+@Category({"Bot", "Database"})
+@StackTrace(false)
+@Threshold("1 ms")
+public class DatabaseSessionEvent extends Event {
+    @Label("Statements")
+    int statements;
+
+    @Label("Statement Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long statementTime;
+
+    @Label("Connection Wait")
+    @Timespan(Timespan.NANOSECONDS)
+    long connectionWait;
+
+    @Label("Flushes")
+    int flushes;
+}
@@ -0,0 +1,123 @@
+package es.redactado.jfr;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import io.github.cdimascio.dotenv.Dotenv;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import jdk.jfr.Configuration;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Recording;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Continuous flight recording and on-demand dumps.
+ *
+ * <p>With {@code JFR_CONTINUOUS=true} a recording with the {@code JFR_SETTINGS} configuration
+ * (default or profile) runs for the life of the process. It is kept on disk in JFR's repository
+ * and rolls over, keeping the last {@code JFR_MAX_AGE_MINUTES} up to {@code JFR_MAX_SIZE_MB}, so
+ * a latency spike can be looked at after the fact. The repository is JFR's own, set with {@code
+ * -XX:FlightRecorderOptions:repository=...} if the temp directory doesn't suit.
+ *
+ * <p>{@link #dump()} writes whatever every running recording holds, including ones started with
+ * {@code -XX:StartFlightRecording}, to {@code JFR_DUMP_DIR}.
+ */
+@Singleton
+public class FlightRecording {
+    private static final Logger logger = LoggerFactory.getLogger(FlightRecording.class);
+    private static final DateTimeFormatter FILE_TIMESTAMP =
+            DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private final boolean continuous;
+    private final String settings;
+    private final Duration maxAge;
+    private final long maxSizeBytes;
+    private final Duration gatewayThreshold;
+    private final Duration databaseThreshold;
+    private final Path dumpDirectory;
+    private Recording recording;
+
+    @Inject
+    public FlightRecording(Dotenv dotenv) {
+        this.continuous = Boolean.parseBoolean(dotenv.get("JFR_CONTINUOUS", "false"));
+        this.settings = dotenv.get("JFR_SETTINGS", "default");
+        this.maxAge = Duration.ofMinutes(Long.parseLong(dotenv.get("JFR_MAX_AGE_MINUTES", "30")));
+        this.maxSizeBytes = Long.parseLong(dotenv.get("JFR_MAX_SIZE_MB", "256")) * 1024 * 1024;
+        this.gatewayThreshold =
+                Duration.ofMillis(Long.parseLong(dotenv.get("JFR_GATEWAY_THRESHOLD_MS", "1")));
+        this.databaseThreshold =
+                Duration.ofMillis(Long.parseLong(dotenv.get("JFR_DATABASE_THRESHOLD_MS", "1")));
+        this.dumpDirectory = Paths.get(dotenv.get("JFR_DUMP_DIR", "./jfr"));
+    }
+
+    /** Starts the continuous recording if it is enabled. */
+    public synchronized void start() {
+        if (!continuous || recording != null) {
+            return;
+        }
+        if (!FlightRecorder.isAvailable()) {
+            logger.warn("JFR_CONTINUOUS is set but Flight Recorder is not available in this JVM");
+            return;
+        }
+        try {
+            Recording continuousRecording = new Recording(Configuration.getConfiguration(settings));
+            continuousRecording.setName("bot-continuous");
+            continuousRecording.setToDisk(true);
+            continuousRecording.setMaxAge(maxAge);
+            continuousRecording.setMaxSize(maxSizeBytes);
+            continuousRecording.enable(GatewayDispatchEvent.class).withThreshold(gatewayThreshold);
+            continuousRecording.enable(RepositoryEvent.class).withThreshold(databaseThreshold);
+            continuousRecording.enable(DatabaseSessionEvent.class).withThreshold(databaseThreshold);
+            continuousRecording.start();
+            recording = continuousRecording;
+            logger.info(
+                    "Continuous flight recording started ({}, last {} min, up to {} MiB)",
+                    settings,
+                    maxAge.toMinutes(),
+                    maxSizeBytes / (1024 * 1024));
+        } catch (IOException | ParseException e) {
+            logger.error("Cannot load JFR configuration '{}'", settings, e);
+        }
+    }
+
+    /**
+     * Writes the data of every running recording to a new file and returns its path. Throws
+     * {@link IllegalStateException} if nothing is being recorded.
+     */
+    public Path dump() throws IOException {
+        if (!FlightRecorder.isAvailable()) {
+            throw new IllegalStateException("Flight Recorder is not available in this JVM");
+        }
+        try (Recording snapshot = FlightRecorder.getFlightRecorder().takeSnapshot()) {
+            if (snapshot.getSize() == 0) {
+                throw new IllegalStateException(
+                        "No flight recording is running, set JFR_CONTINUOUS=true");
+            }
+            Files.createDirectories(dumpDirectory);
+            Path file =
+                    dumpDirectory.resolve("bot-" + LocalDateTime.now().format(FILE_TIMESTAMP) + ".jfr");
+            snapshot.dump(file);
+            logger.info("Dumped flight recording to {}", file);
+            return file;
+        }
+    }
+
+    public synchronized boolean isRecording() {
+        return recording != null;
+    }
+
+    /** Stops the continuous recording, discarding its repository data. */
+    public synchronized void stop() {
+        if (recording != null) {
+            recording.close();
+            recording = null;
+        }
+    }
+}
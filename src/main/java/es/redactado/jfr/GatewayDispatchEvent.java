@@ -0,0 +1,43 @@
+package es.redactado.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.events.GenericEvent;
+
+/**
+ * Delivery of one gateway event to its handlers on a shard's event thread. Handlers of async
+ * listeners only count the hand-off to their virtual thread. Recorded from 1 ms by default since
+ * shards dispatch thousands of events; the continuous recording sets its own threshold.
+ */
+@Name("es.redactado.GatewayDispatch")
+@Label("Gateway Dispatch")
+@Category({"Bot", "Gateway"})
+@StackTrace(false)
+@Threshold("1 ms")
+public class GatewayDispatchEvent extends Event {
+    @Label("Shard")
+    int shard;
+
+    @Label("Event Type")
+    String eventType;
+
+    @Label("Handlers")
+    int handlers;
+
+    /** Ends the event and commits it if it is enabled and above its threshold. */
+    public void finish(GenericEvent event, int handlers) {
+        end();
+        if (shouldCommit()) {
+            JDA.ShardInfo shardInfo = event.getJDA().getShardInfo();
+            this.shard = shardInfo != null ? shardInfo.getShardId() : 0;
+            this.eventType = event.getClass().getSimpleName();
+            this.handlers = handlers;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package es.redactado.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+/**
+ * One repository operation, from the call until its result is returned. Recorded from 1 ms by
+ * default, without a stack trace, since every repository call creates one; the continuous
+ * recording sets its own threshold.
+ */
+@Name("es.redactado.RepositoryOperation")
+@Label("Repository Operation")
+@Category({"Bot", "Database"})
+@StackTrace(false)
+@Threshold("1 ms")
+public class RepositoryEvent extends Event {
+    @Label("Entity")
+    String entity;
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Rows")
+    int rows;
+
+    /** Ends the event and commits it if it is enabled and above its threshold. */
+    public void finish(String entity, String operation, int rows) {
+        end();
+        if (shouldCommit()) {
+            this.entity = entity;
+            this.operation = operation;
+            this.rows = rows;
+            commit();
+        }
+    }
+}
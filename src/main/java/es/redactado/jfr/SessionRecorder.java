@@ -0,0 +1,71 @@
+package es.redactado.jfr;
+
+import jdk.jfr.EventType;
+import org.hibernate.SessionEventListener;
+
+/**
+ * Hibernate session listener that turns a session's JDBC activity into a {@link
+ * DatabaseSessionEvent}. Only attached while the event is enabled, so sessions pay nothing when no
+ * recording wants it.
+ */
+public final class SessionRecorder implements SessionEventListener {
+    private static final EventType EVENT_TYPE = EventType.getEventType(DatabaseSessionEvent.class);
+
+    private final DatabaseSessionEvent event = new DatabaseSessionEvent();
+    private long statementStart;
+    private long connectionStart;
+
+    private SessionRecorder() {
+        event.begin();
+    }
+
+    /** Returns a recorder for a session being opened, or null if no recording wants the event. */
+    public static SessionRecorder startIfEnabled() {
+        return EVENT_TYPE.isEnabled() ? new SessionRecorder() : null;
+    }
+
+    @Override
+    public void jdbcConnectionAcquisitionStart() {
+        connectionStart = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcConnectionAcquisitionEnd() {
+        event.connectionWait += System.nanoTime() - connectionStart;
+    }
+
+    @Override
+    public void jdbcExecuteStatementStart() {
+        statementStart = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteStatementEnd() {
+        event.statements++;
+        event.statementTime += System.nanoTime() - statementStart;
+    }
+
+    @Override
+    public void jdbcExecuteBatchStart() {
+        statementStart = System.nanoTime();
+    }
+
+    @Override
+    public void jdbcExecuteBatchEnd() {
+        event.statements++;
+        event.statementTime += System.nanoTime() - statementStart;
+    }
+
+    @Override
+    public void flushEnd(int numberOfEntities, int numberOfCollections) {
+        event.flushes++;
+    }
+
+    @Override
+    public void end() {
+        event.end();
+        if (event.shouldCommit()) {
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package es.redactado.lifecycle;
+
+import ch.qos.logback.classic.LoggerContext;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import es.redactado.command.handler.CommandExecutionController;
+import es.redactado.database.DatabaseManager;
+import es.redactado.gateway.GatewaySessionStore;
+import es.redactado.ocr.OcrEngine;
+import io.github.cdimascio.dotenv.Dotenv;
+import io.sentry.Sentry;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import net.dv8tion.jda.api.sharding.ShardManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Ordered shutdown, run from a JVM shutdown hook:
+ *
+ * <ol>
+ *   <li>stop accepting interactions (new ones get a "restarting" reply)
+ *   <li>wait up to {@code SHUTDOWN_DRAIN_TIMEOUT_MS} for running handlers
+ *   <li>stop the OCR workers and free their native engines
+ *   <li>flush write-behind buffers and drain the database executor and writer queue
+ *   <li>close the SessionFactory
+ *   <li>close the shards resumably and persist their sessions
+ * </ol>
+ *
+ * The gateway stays connected until the last stage, so interactions arriving while draining are
+ * still answered. A failing stage is logged and the next one runs anyway. Finally the logback
+ * context is stopped, which flushes the async appenders and sends the messages still queued by
+ * the webhook appender.
+ */
+@Singleton
+public class GracefulShutdown {
+    private static final Logger logger = LoggerFactory.getLogger(GracefulShutdown.class);
+
+    private final CommandExecutionController executionController;
+    private final DatabaseManager databaseManager;
+    private final GatewaySessionStore sessionStore;
+    private final OcrEngine ocrEngine;
+    private final long drainTimeoutMs;
+    private final AtomicBoolean started = new AtomicBoolean();
+    private volatile ShardManager shardManager;
+
+    @Inject
+    public GracefulShutdown(
+            CommandExecutionController executionController,
+            DatabaseManager databaseManager,
+            GatewaySessionStore sessionStore,
+            OcrEngine ocrEngine,
+            Dotenv dotenv) {
+        this.executionController = executionController;
+        this.databaseManager = databaseManager;
+        this.sessionStore = sessionStore;
+        this.ocrEngine = ocrEngine;
+        this.drainTimeoutMs = Long.parseLong(dotenv.get("SHUTDOWN_DRAIN_TIMEOUT_MS", "10000"));
+    }
+
+    /** Takes over shutdown from the database manager's own hook and JDA's. */
+    public void install(ShardManager shardManager) {
+        this.shardManager = shardManager;
+        databaseManager.disableShutdownHook();
+        Runtime.getRuntime().addShutdownHook(new Thread(this::run, "graceful-shutdown"));
+    }
+
+    public void run() {
+        if (!started.compareAndSet(false, true)) {
+            return;
+        }
+        long start = System.nanoTime();
+        logger.info("Shutting down gracefully");
+
+        stage("stop accepting interactions", executionController::stopAccepting);
+        stage(
+                "drain command handlers",
+                () -> {
+                    try {
+                        if (!executionController.awaitIdle(drainTimeoutMs, TimeUnit.MILLISECONDS)) {
+                            logger.warn(
+                                    "{} handlers still running after {} ms, continuing",
+                                    executionController.getRunning(),
+                                    drainTimeoutMs);
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+        stage("stop OCR workers", ocrEngine::shutdown);
+        stage("flush database work", () -> databaseManager.drain(30, TimeUnit.SECONDS));
+        stage("close SessionFactory", databaseManager::shutdown);
+        stage(
+                "persist gateway sessions",
+                () -> {
+                    if (shardManager != null) {
+                        sessionStore.closeAndPersist(shardManager);
+                    }
+                });
+
+        logger.info(
+                "Shutdown complete in {} ms",
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+        // Last, so the async appenders flush everything logged above
+        if (LoggerFactory.getILoggerFactory() instanceof LoggerContext loggerContext) {
+            loggerContext.stop();
+        }
+    }
+
+    private void stage(String name, Runnable action) {
+        long start = System.nanoTime();
+        try {
+            action.run();
+            logger.info(
+                    "Shutdown: {} ({} ms)",
+                    name,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (RuntimeException e) {
+            logger.error("Shutdown stage '{}' failed, continuing", name, e);
+            Sentry.captureException(e);
+        }
+    }
+}
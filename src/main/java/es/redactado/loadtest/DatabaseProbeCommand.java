@@ -0,0 +1,53 @@
+package es.redactado.loadtest;
+
+import com.google.inject.Inject;
+import es.redactado.command.handler.CommandExecutionController;
+import es.redactado.command.type.BaseSlashCommand;
+import es.redactado.database.DatabaseManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
+import net.dv8tion.jda.api.interactions.commands.build.Commands;
+import net.dv8tion.jda.api.interactions.commands.build.SlashCommandData;
+import org.hibernate.Session;
+
+/**
+ * A database-backed command for the load harness, available in {@code LOAD_MIX} as {@value
+ * #NAME}. Like a typical command it defers, runs a query on its virtual thread and answers
+ * through the hook, so it competes for Hikari connections the way real handlers do.
+ */
+public class DatabaseProbeCommand implements BaseSlashCommand {
+    public static final String NAME = "loadtest-db";
+
+    private final DatabaseManager databaseManager;
+    private final CommandExecutionController executionController;
+
+    @Inject
+    public DatabaseProbeCommand(
+            DatabaseManager databaseManager, CommandExecutionController executionController) {
+        this.databaseManager = databaseManager;
+        this.executionController = executionController;
+    }
+
+    @Override
+    public SlashCommandData getCommandData() {
+        return Commands.slash(NAME, "Load harness database probe");
+    }
+
+    @Override
+    public void handle(SlashCommandInteractionEvent event) {
+        executionController.deferReply(event, false);
+        try (Session session = databaseManager.getSession()) {
+            int value =
+                    session.doReturningWork(
+                            connection -> {
+                                try (Statement statement = connection.createStatement();
+                                        ResultSet result = statement.executeQuery("SELECT 1")) {
+                                    result.next();
+                                    return result.getInt(1);
+                                }
+                            });
+            event.getHook().sendMessage("Probe returned " + value).queue();
+        }
+    }
+}
@@ -0,0 +1,437 @@
+package es.redactado.loadtest;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.util.Modules;
+import es.redactado.BotModule;
+import es.redactado.Main;
+import es.redactado.command.handler.CommandExecutionController;
+import es.redactado.command.handler.CommandListener;
+import es.redactado.command.handler.CommandRegister;
+import es.redactado.command.ratelimit.CommandRateLimiter;
+import es.redactado.database.DatabaseManager;
+import es.redactado.database.PoolMetrics;
+import es.redactado.event.TypedEventManager;
+import es.redactado.metrics.CommandMetrics;
+import es.redactado.metrics.LatencyHistogram;
+import io.github.cdimascio.dotenv.Dotenv;
+import io.github.cdimascio.dotenv.DotenvEntry;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.events.GenericEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Offline load test of the command pipeline: no Discord connection, a real injector built from
+ * {@link BotModule} and a local H2 database.
+ *
+ * <p>Each rate in {@code LOAD_RATES} is one step. During a step, {@code LOAD_SHARDS} threads play
+ * the shards' event threads and feed synthetic interactions from {@code LOAD_MIX} through a
+ * {@link TypedEventManager} into {@link CommandListener}, open loop at the step's rate. REST calls
+ * made by the commands take {@code LOAD_REST_LATENCY_MS} (see {@link SimulatedRest}).
+ *
+ * <p>Per step it reports the achieved throughput, first-response latency percentiles, rejections,
+ * executor depth and Hikari connection wait, and flags the first step the bot could not keep up
+ * with. Latency is measured from when an interaction was due to be sent, not when it was, so a
+ * stalled dispatcher shows up as latency instead of hiding it.
+ *
+ * <p>Run with {@code gradle runLoadHarness}; settings come from the same .env as the bot.
+ */
+public class LoadHarness {
+    private static final Logger logger = LoggerFactory.getLogger(LoadHarness.class);
+    private static final long SAMPLE_INTERVAL_MS = 10;
+    private static final long DRAIN_TIMEOUT_SECONDS = 10;
+    /** Interactions answered later than this are lost: Discord's response window. */
+    private static final long RESPONSE_WINDOW_MICROS = TimeUnit.SECONDS.toMicros(3);
+    /** A step counts as sustained if at least this share of its interactions were answered. */
+    private static final double SUSTAINED_RATIO = 0.95;
+
+    private final LoadProfile profile;
+    private final CommandRegister commandRegister;
+    private final CommandExecutionController executionController;
+    private final CommandRateLimiter rateLimiter;
+    private final CommandMetrics metrics;
+    private final DatabaseManager databaseManager;
+    private final CommandListener commandListener;
+    private final SimulatedRest rest;
+    private final SyntheticInteractions interactions;
+    private final MixTarget[] targets;
+    private final int totalWeight;
+
+    private final LatencyHistogram firstResponse = new LatencyHistogram();
+    private final LongAdder dispatched = new LongAdder();
+    private final LongAdder answered = new LongAdder();
+    private final AtomicLong interactionIds = new AtomicLong();
+
+    private record MixTarget(String command, boolean slash, int cumulativeWeight) {}
+
+    public LoadHarness(Injector injector, LoadProfile profile) {
+        this.profile = profile;
+        this.commandRegister = injector.getInstance(CommandRegister.class);
+        this.executionController = injector.getInstance(CommandExecutionController.class);
+        this.rateLimiter = injector.getInstance(CommandRateLimiter.class);
+        this.metrics = injector.getInstance(CommandMetrics.class);
+        this.databaseManager = injector.getInstance(DatabaseManager.class);
+        this.commandListener = injector.getInstance(CommandListener.class);
+        this.rest = new SimulatedRest(profile.restLatencyMillis(), TimeUnit.MILLISECONDS);
+        this.interactions = new SyntheticInteractions(rest);
+
+        targets = new MixTarget[profile.mix().size()];
+        int weight = 0;
+        for (int i = 0; i < targets.length; i++) {
+            LoadProfile.MixEntry entry = profile.mix().get(i);
+            if (entry.command().equals(DatabaseProbeCommand.NAME)
+                    && commandRegister.getSlashCommand(entry.command()) == null) {
+                commandRegister.addCommand(injector.getInstance(DatabaseProbeCommand.class));
+            }
+            boolean slash = commandRegister.getSlashCommand(entry.command()) != null;
+            if (!slash && commandRegister.getUserContextCommand(entry.command()) == null) {
+                throw new IllegalArgumentException("Unknown command in LOAD_MIX: " + entry.command());
+            }
+            weight += entry.weight();
+            targets[i] = new MixTarget(entry.command(), slash, weight);
+        }
+        totalWeight = weight;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        Dotenv config = Dotenv.configure().ignoreIfMissing().load();
+        // Whatever the bot is configured with, the harness runs on its own local H2 database
+        Dotenv dotenv =
+                new OverlayDotenv(
+                        config,
+                        Map.of(
+                                "DB_TYPE", "H2",
+                                "DB_NAME", "loadtest",
+                                "H2_IN_MEMORY", config.get("LOAD_H2_IN_MEMORY", "true"),
+                                "CACHE_INVALIDATION_TRANSPORT", "NONE"));
+        Injector injector =
+                Guice.createInjector(
+                        Modules.override(new BotModule(new Main()))
+                                .with(binder -> binder.bind(Dotenv.class).toInstance(dotenv)));
+
+        LoadHarness harness = new LoadHarness(injector, LoadProfile.fromConfig(dotenv));
+        try {
+            harness.run();
+        } finally {
+            harness.close();
+        }
+    }
+
+    public void run() throws InterruptedException {
+        logger.info(
+                "Load harness: mix {}, {} shards, {} ms REST latency, {} s per step",
+                profile.mix(),
+                profile.shards(),
+                profile.restLatencyMillis(),
+                profile.step().toSeconds());
+
+        if (!profile.warmup().isZero()) {
+            logger.info("Warming up for {} s", profile.warmup().toSeconds());
+            runStep(profile.rates().get(0), profile.warmup());
+        }
+
+        logger.info(
+                String.format(
+                        "%8s %9s %9s %-27s %7s %7s %7s %-11s %6s %-15s %6s",
+                        "rate/s",
+                        "sent/s",
+                        "done/s",
+                        "first response p50/p99/p99.9/max",
+                        "shed",
+                        "expired",
+                        "limited",
+                        "exec max/avg",
+                        "db max",
+                        "pool wait p99/max",
+                        "waiters"));
+        Integer saturatedAt = null;
+        for (int rate : profile.rates()) {
+            StepResult result = runStep(rate, profile.step());
+            logger.info(result.format());
+            if (saturatedAt == null && !result.sustained()) {
+                saturatedAt = rate;
+            }
+        }
+
+        if (saturatedAt != null) {
+            logger.info("Saturated at {} interactions/s", saturatedAt == 0 ? "unthrottled" : saturatedAt);
+        } else {
+            logger.info("Every step was sustained; raise LOAD_RATES to find the saturation point");
+        }
+        logCommandStats();
+    }
+
+    public void close() {
+        rest.shutdown();
+        databaseManager.shutdown();
+    }
+
+    private StepResult runStep(int rate, Duration duration) throws InterruptedException {
+        PoolMetrics poolMetrics = databaseManager.getPoolMetrics();
+        firstResponse.reset();
+        poolMetrics.getAcquireTime().reset();
+        long dispatchedBefore = dispatched.sum();
+        long answeredBefore = answered.sum();
+        long handledBefore = handledCount();
+        long shedBefore = executionController.getShedCount();
+        long expiredBefore = executionController.getExpiredCount();
+        long limitedBefore = rateLimiter.getRejectedCount();
+
+        DepthSampler sampler = new DepthSampler();
+        ScheduledExecutorService sampling =
+                Executors.newSingleThreadScheduledExecutor(
+                        Thread.ofPlatform().name("loadtest-sampler").daemon(true).factory());
+        sampling.scheduleAtFixedRate(
+                sampler::sample, 0, SAMPLE_INTERVAL_MS, TimeUnit.MILLISECONDS);
+
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        Thread[] shards = new Thread[profile.shards()];
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] =
+                    Thread.ofPlatform()
+                            .name("loadtest-shard-" + i)
+                            .start(() -> dispatchLoop(rate, start, end));
+        }
+        for (Thread shard : shards) {
+            shard.join();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long handled = handledCount() - handledBefore;
+        long limited = rateLimiter.getRejectedCount() - limitedBefore;
+
+        // Let the step's backlog finish so its latency is complete and the next step starts clean
+        executionController.awaitIdle(DRAIN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        TimeUnit.MILLISECONDS.sleep(profile.restLatencyMillis() * 2);
+        sampling.shutdownNow();
+
+        long sent = dispatched.sum() - dispatchedBefore;
+        return new StepResult(
+                rate,
+                sent / seconds,
+                (handled + limited) / seconds,
+                sent,
+                answered.sum() - answeredBefore,
+                firstResponse.snapshot(),
+                executionController.getShedCount() - shedBefore,
+                executionController.getExpiredCount() - expiredBefore,
+                limited,
+                sampler,
+                poolMetrics.getAcquireTime().snapshot());
+    }
+
+    private void dispatchLoop(int rate, long start, long end) {
+        // Each shard has its own event manager, as in Main
+        TypedEventManager eventManager = new TypedEventManager();
+        eventManager.register(commandListener);
+        long interval = rate > 0 ? TimeUnit.SECONDS.toNanos(1) * profile.shards() / rate : 0;
+        long next = start;
+        while (true) {
+            long due;
+            if (interval > 0) {
+                due = next;
+                next += interval;
+                long wait = due - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+            } else {
+                due = System.nanoTime();
+            }
+            if (due >= end) {
+                return;
+            }
+            eventManager.handle(nextEvent(due));
+            dispatched.increment();
+        }
+    }
+
+    private GenericEvent nextEvent(long due) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int pick = random.nextInt(totalWeight);
+        MixTarget target = targets[0];
+        for (MixTarget candidate : targets) {
+            if (pick < candidate.cumulativeWeight()) {
+                target = candidate;
+                break;
+            }
+        }
+
+        long interactionId = interactionIds.incrementAndGet();
+        long userId = 1 + random.nextInt(profile.users());
+        long guildId = 1 + random.nextInt(profile.guilds());
+        // One channel per guild is enough to exercise the channel rate limit scope
+        long channelId = guildId;
+        SyntheticInteractions.AckListener onResponse =
+                () -> {
+                    firstResponse.recordNanos(System.nanoTime() - due);
+                    answered.increment();
+                };
+        if (target.slash()) {
+            return interactions.slashEvent(
+                    target.command(), interactionId, userId, guildId, channelId, onResponse);
+        }
+        Message message =
+                interactions.stub(
+                        Message.class,
+                        Map.of("getIdLong", interactionId, "getContentRaw", "Synthetic message"));
+        return interactions.messageContextEvent(
+                target.command(), interactionId, userId, guildId, channelId, message, onResponse);
+    }
+
+    private long handledCount() {
+        long handled = 0;
+        for (CommandMetrics.Stats.Snapshot snapshot : metrics.snapshot()) {
+            handled += snapshot.invocations();
+        }
+        return handled;
+    }
+
+    private void logCommandStats() {
+        logger.info("Handler statistics over the whole run (ms, p50/p99):");
+        for (CommandMetrics.Stats.Snapshot snapshot : metrics.snapshot()) {
+            logger.info(
+                    String.format(
+                            "  %-16s %8d calls %6d errors %8d rejected  execution %s  queue wait %s",
+                            snapshot.name(),
+                            snapshot.invocations(),
+                            snapshot.errors(),
+                            snapshot.rejected(),
+                            millis(snapshot.execution().p50()) + "/" + millis(snapshot.execution().p99()),
+                            millis(snapshot.queueWait().p50()) + "/" + millis(snapshot.queueWait().p99())));
+        }
+        logger.info("REST requests simulated: {}", rest.getRequestCount());
+    }
+
+    private static String millis(long micros) {
+        return String.format("%.1f", micros / 1000.0);
+    }
+
+    /** Samples how deep the command and database executors and the pool wait queue get. */
+    private final class DepthSampler {
+        private int maxExecutorDepth;
+        private long totalExecutorDepth;
+        private int maxDatabaseQueue;
+        private int maxPoolWaiters;
+        private long samples;
+
+        synchronized void sample() {
+            int executorDepth = executionController.getQueued() + executionController.getRunning();
+            maxExecutorDepth = Math.max(maxExecutorDepth, executorDepth);
+            totalExecutorDepth += executorDepth;
+            maxDatabaseQueue =
+                    Math.max(maxDatabaseQueue, databaseManager.getExecutor().getQueueDepth());
+            maxPoolWaiters =
+                    Math.max(maxPoolWaiters, databaseManager.getPoolMetrics().getPendingThreads());
+            samples++;
+        }
+
+        synchronized String format() {
+            return String.format(
+                    "%-11s %6d",
+                    maxExecutorDepth + "/" + (samples == 0 ? 0 : totalExecutorDepth / samples),
+                    maxDatabaseQueue);
+        }
+
+        synchronized int maxPoolWaiters() {
+            return maxPoolWaiters;
+        }
+    }
+
+    private record StepResult(
+            int rate,
+            double sentPerSecond,
+            double donePerSecond,
+            long sent,
+            long answered,
+            LatencyHistogram.Snapshot firstResponse,
+            long shed,
+            long expired,
+            long limited,
+            DepthSampler depth,
+            LatencyHistogram.Snapshot poolWait) {
+
+        /**
+         * Kept up: (nearly) everything sent was answered within Discord's window, nothing was
+         * shed or expired, and the dispatchers managed to send at the requested rate.
+         */
+        boolean sustained() {
+            return shed == 0
+                    && expired == 0
+                    && answered >= sent * SUSTAINED_RATIO
+                    && firstResponse.p99() <= RESPONSE_WINDOW_MICROS
+                    && (rate == 0 || sentPerSecond >= rate * SUSTAINED_RATIO);
+        }
+
+        String format() {
+            return String.format(
+                    "%8s %9.0f %9.0f %-27s %7d %7d %7d %s %-15s %6d%s",
+                    rate == 0 ? "max" : String.valueOf(rate),
+                    sentPerSecond,
+                    donePerSecond,
+                    millis(firstResponse.p50())
+                            + "/"
+                            + millis(firstResponse.p99())
+                            + "/"
+                            + millis(firstResponse.p999())
+                            + "/"
+                            + millis(firstResponse.max()),
+                    shed,
+                    expired,
+                    limited,
+                    depth.format(),
+                    millis(poolWait.p99()) + "/" + millis(poolWait.max()),
+                    depth.maxPoolWaiters(),
+                    sustained() ? "" : "  << saturated");
+        }
+    }
+
+    /** The bot's configuration with a few keys replaced. */
+    private record OverlayDotenv(Dotenv base, Map<String, String> overrides) implements Dotenv {
+        @Override
+        public Set<DotenvEntry> entries() {
+            return overlay(base.entries());
+        }
+
+        @Override
+        public Set<DotenvEntry> entries(Filter filter) {
+            return overlay(base.entries(filter));
+        }
+
+        @Override
+        public String get(String key) {
+            String value = overrides.get(key);
+            return value != null ? value : base.get(key);
+        }
+
+        @Override
+        public String get(String key, String defaultValue) {
+            String value = overrides.get(key);
+            return value != null ? value : base.get(key, defaultValue);
+        }
+
+        private Set<DotenvEntry> overlay(Set<DotenvEntry> entries) {
+            Map<String, String> merged = new HashMap<>();
+            for (DotenvEntry entry : entries) {
+                merged.put(entry.getKey(), entry.getValue());
+            }
+            merged.putAll(overrides);
+            Set<DotenvEntry> result = new HashSet<>();
+            merged.forEach((key, value) -> result.add(new DotenvEntry(key, value)));
+            return result;
+        }
+    }
+}
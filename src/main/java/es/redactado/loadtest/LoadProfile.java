@@ -0,0 +1,53 @@
+package es.redactado.loadtest;
+
+import io.github.cdimascio.dotenv.Dotenv;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * What the {@link LoadHarness} sends: a series of rate steps, each held for {@code step}, spread
+ * over {@code shards} dispatch threads and drawn from a weighted command mix.
+ *
+ * @param rates interactions per second of each step; 0 dispatches as fast as the shards can
+ * @param mix command names with their relative weight, as in {@code ping:3,stats:1}
+ */
+public record LoadProfile(
+        List<Integer> rates,
+        int shards,
+        List<MixEntry> mix,
+        Duration warmup,
+        Duration step,
+        int users,
+        int guilds,
+        long restLatencyMillis) {
+
+    public record MixEntry(String command, int weight) {}
+
+    public static LoadProfile fromConfig(Dotenv dotenv) {
+        List<Integer> rates = new ArrayList<>();
+        for (String rate : dotenv.get("LOAD_RATES", "100,200,400,800").split(",")) {
+            rates.add(Integer.parseInt(rate.trim()));
+        }
+
+        List<MixEntry> mix = new ArrayList<>();
+        for (String entry : dotenv.get("LOAD_MIX", "ping:1").split(",")) {
+            String[] parts = entry.trim().split(":");
+            int weight = parts.length > 1 ? Integer.parseInt(parts[1].trim()) : 1;
+            if (weight <= 0) {
+                throw new IllegalArgumentException("Command weights must be positive: " + entry);
+            }
+            mix.add(new MixEntry(parts[0].trim(), weight));
+        }
+
+        return new LoadProfile(
+                List.copyOf(rates),
+                Integer.parseInt(dotenv.get("LOAD_SHARDS", "4")),
+                List.copyOf(mix),
+                Duration.ofSeconds(Long.parseLong(dotenv.get("LOAD_WARMUP_S", "5"))),
+                Duration.ofSeconds(Long.parseLong(dotenv.get("LOAD_STEP_S", "20"))),
+                Integer.parseInt(dotenv.get("LOAD_USERS", "1000")),
+                Integer.parseInt(dotenv.get("LOAD_GUILDS", "100")),
+                Long.parseLong(dotenv.get("LOAD_REST_LATENCY_MS", "50")));
+    }
+}
@@ -0,0 +1,53 @@
+package es.redactado.loadtest;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Stand-in for Discord's REST API. Every request succeeds after a fixed round trip, and success
+ * callbacks then run on virtual threads, like JDA's callback pool.
+ */
+public class SimulatedRest {
+    private final long latencyNanos;
+    private final ScheduledExecutorService scheduler =
+            Executors.newSingleThreadScheduledExecutor(
+                    Thread.ofPlatform().name("simulated-rest").daemon(true).factory());
+    private final ExecutorService callbacks = Executors.newVirtualThreadPerTaskExecutor();
+    private final LongAdder requests = new LongAdder();
+
+    public SimulatedRest(long latency, TimeUnit unit) {
+        this.latencyNanos = unit.toNanos(latency);
+    }
+
+    /** {@code RestAction.queue}: runs {@code callback} once the response "arrives". */
+    void queue(Runnable callback) {
+        requests.increment();
+        scheduler.schedule(() -> callbacks.execute(callback), latencyNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /** {@code RestAction.complete}: blocks the caller for one round trip. */
+    void complete() throws InterruptedException {
+        requests.increment();
+        TimeUnit.NANOSECONDS.sleep(latencyNanos);
+    }
+
+    /** {@code RestAction.submit}: a future completed after one round trip. */
+    <T> CompletableFuture<T> submit(T result) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        queue(() -> future.complete(result));
+        return future;
+    }
+
+    public long getRequestCount() {
+        return requests.sum();
+    }
+
+    public void shutdown() {
+        scheduler.shutdownNow();
+        callbacks.shutdownNow();
+    }
+}
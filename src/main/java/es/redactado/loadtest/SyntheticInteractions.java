@@ -0,0 +1,298 @@
+package es.redactado.loadtest;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Proxy;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.User;
+import net.dv8tion.jda.api.events.interaction.command.MessageContextInteractionEvent;
+import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
+import net.dv8tion.jda.api.interactions.commands.SlashCommandInteraction;
+import net.dv8tion.jda.api.interactions.commands.context.MessageContextInteraction;
+import net.dv8tion.jda.api.requests.RestAction;
+
+/**
+ * Builds interaction events that look real to the command pipeline but never reach Discord.
+ *
+ * <p>Every JDA interface behind an event is a dynamic proxy:
+ *
+ * <ul>
+ *   <li>methods given an answer (the command name, ids, the user...) return it;
+ *   <li>default methods run their real implementation;
+ *   <li>builder methods return the builder itself, other interfaces return further stubs,
+ *       collections are empty and primitives are zero;
+ *   <li>{@code queue}, {@code complete} and {@code submit} on any {@link RestAction} go to {@link
+ *       SimulatedRest}, and succeed with a stub of the action's result type.
+ * </ul>
+ *
+ * <p>So {@code event.deferReply().queue(hook -> hook.sendMessage("...").queue())} behaves like two
+ * REST round trips, and commands run unchanged.
+ */
+public class SyntheticInteractions {
+    private static final Map<Type, Class<?>> REST_RESULT_TYPES = new ConcurrentHashMap<>();
+
+    private final SimulatedRest rest;
+    private final JDA jda;
+
+    /** Told once, on the first REST request made on behalf of an interaction. */
+    @FunctionalInterface
+    public interface AckListener {
+        void onFirstRequest();
+    }
+
+    public SyntheticInteractions(SimulatedRest rest) {
+        this.rest = rest;
+        this.jda = stub(JDA.class, Map.of());
+    }
+
+    public SlashCommandInteractionEvent slashEvent(
+            String commandName,
+            long interactionId,
+            long userId,
+            long guildId,
+            long channelId,
+            AckListener ackListener) {
+        Ack ack = new Ack(ackListener);
+        Map<String, Object> answers = answers(commandName, interactionId, userId, guildId, channelId);
+        SlashCommandInteraction interaction =
+                new StubHandler(SlashCommandInteraction.class, answers, ack)
+                        .proxy(SlashCommandInteraction.class);
+        return new SlashCommandInteractionEvent(jda, interactionId, interaction);
+    }
+
+    public MessageContextInteractionEvent messageContextEvent(
+            String commandName,
+            long interactionId,
+            long userId,
+            long guildId,
+            long channelId,
+            Message target,
+            AckListener ackListener) {
+        Ack ack = new Ack(ackListener);
+        Map<String, Object> answers =
+                new HashMap<>(answers(commandName, interactionId, userId, guildId, channelId));
+        answers.put("getTarget", target);
+        MessageContextInteraction interaction =
+                new StubHandler(MessageContextInteraction.class, answers, ack)
+                        .proxy(MessageContextInteraction.class);
+        return new MessageContextInteractionEvent(jda, interactionId, interaction);
+    }
+
+    /** A stub of any JDA interface, answering the named methods with the given values. */
+    public <T> T stub(Class<T> type, Map<String, Object> answers) {
+        return new StubHandler(type, answers, null).proxy(type);
+    }
+
+    private Map<String, Object> answers(
+            String commandName, long interactionId, long userId, long guildId, long channelId) {
+        return Map.of(
+                "getName", commandName,
+                "getIdLong", interactionId,
+                "getUser", stub(User.class, Map.of("getIdLong", userId)),
+                "getGuild", stub(Guild.class, Map.of("getIdLong", guildId)),
+                "getChannelIdLong", channelId,
+                "getJDA", jda);
+    }
+
+    private static final class Ack {
+        private final AckListener listener;
+        private final AtomicBoolean sent = new AtomicBoolean();
+
+        private Ack(AckListener listener) {
+            this.listener = listener;
+        }
+
+        void onRequest() {
+            if (listener != null && !sent.get() && sent.compareAndSet(false, true)) {
+                listener.onFirstRequest();
+            }
+        }
+    }
+
+    private final class StubHandler implements InvocationHandler {
+        private final Type type;
+        private final Map<String, Object> answers;
+        private final Ack ack;
+        // One nested stub per return type, so chained calls don't allocate
+        private final Map<Type, Object> nested = new ConcurrentHashMap<>();
+
+        private StubHandler(Type type, Map<String, Object> answers, Ack ack) {
+            this.type = type;
+            this.answers = answers;
+            this.ack = ack;
+        }
+
+        <T> T proxy(Class<T> rawType) {
+            return rawType.cast(
+                    Proxy.newProxyInstance(rawType.getClassLoader(), new Class<?>[] {rawType}, this));
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getDeclaringClass() == Object.class) {
+                return switch (method.getName()) {
+                    case "equals" -> proxy == args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    default -> "Stub[" + type.getTypeName() + "]";
+                };
+            }
+            Object answer = answers.get(method.getName());
+            if (answer != null) {
+                return answer;
+            }
+
+            if (proxy instanceof RestAction<?>) {
+                int parameters = method.getParameterCount();
+                switch (method.getName()) {
+                    case "queue" -> {
+                        if (parameters == 2) {
+                            Consumer<Object> success = (Consumer<Object>) args[0];
+                            Object result = restResult();
+                            if (ack != null) {
+                                ack.onRequest();
+                            }
+                            rest.queue(
+                                    () -> {
+                                        if (success != null) {
+                                            success.accept(result);
+                                        }
+                                    });
+                            return null;
+                        }
+                    }
+                    case "complete" -> {
+                        if (parameters == 1) {
+                            if (ack != null) {
+                                ack.onRequest();
+                            }
+                            rest.complete();
+                            return restResult();
+                        }
+                    }
+                    case "submit" -> {
+                        if (parameters == 1) {
+                            if (ack != null) {
+                                ack.onRequest();
+                            }
+                            return rest.submit(restResult());
+                        }
+                    }
+                    default -> {}
+                }
+            }
+
+            if (method.isDefault()) {
+                return InvocationHandler.invokeDefault(proxy, method, args);
+            }
+            Type returnType = method.getGenericReturnType();
+            Class<?> rawType = method.getReturnType();
+            if (rawType == void.class) {
+                return null;
+            }
+            if (rawType.isPrimitive()) {
+                return Array.get(Array.newInstance(rawType, 1), 0);
+            }
+            if (rawType.isInstance(proxy)) {
+                return proxy;
+            }
+            return defaultValue(returnType instanceof TypeVariable<?> ? rawType : returnType, rawType);
+        }
+
+        private Object defaultValue(Type returnType, Class<?> rawType) {
+            if (rawType == String.class) {
+                return "";
+            }
+            if (rawType == List.class || rawType == Collection.class || rawType == Iterable.class) {
+                return List.of();
+            }
+            if (rawType == Set.class) {
+                return Set.of();
+            }
+            if (rawType == Map.class) {
+                return Map.of();
+            }
+            if (rawType == Optional.class) {
+                return Optional.empty();
+            }
+            if (rawType == CompletableFuture.class) {
+                return CompletableFuture.completedFuture(null);
+            }
+            if (rawType.isInterface()) {
+                // Nested stubs share the interaction's ack, so hook messages count as its requests
+                return nested.computeIfAbsent(
+                        returnType, key -> new StubHandler(key, Map.of(), ack).proxy(rawType));
+            }
+            return null;
+        }
+
+        private Object restResult() {
+            Class<?> resultType =
+                    REST_RESULT_TYPES.computeIfAbsent(type, SyntheticInteractions::restResultType);
+            return resultType == Object.class || resultType == Void.class
+                    ? null
+                    : defaultValue(resultType, resultType);
+        }
+    }
+
+    /** The {@code T} of {@code RestAction<T>} as seen from {@code type}, or {@code Object}. */
+    private static Class<?> restResultType(Type type) {
+        Type resolved = findRestActionArgument(type, Map.of());
+        if (resolved instanceof Class<?> resultClass) {
+            return resultClass;
+        }
+        if (resolved instanceof ParameterizedType parameterized) {
+            return (Class<?>) parameterized.getRawType();
+        }
+        return Object.class;
+    }
+
+    private static Type findRestActionArgument(Type type, Map<TypeVariable<?>, Type> bindings) {
+        Class<?> raw;
+        Map<TypeVariable<?>, Type> typeBindings = new HashMap<>();
+        if (type instanceof ParameterizedType parameterized) {
+            raw = (Class<?>) parameterized.getRawType();
+            TypeVariable<?>[] variables = raw.getTypeParameters();
+            Type[] arguments = parameterized.getActualTypeArguments();
+            for (int i = 0; i < variables.length; i++) {
+                Type argument = arguments[i];
+                typeBindings.put(
+                        variables[i],
+                        argument instanceof TypeVariable<?> variable
+                                ? bindings.getOrDefault(variable, Object.class)
+                                : argument);
+            }
+        } else if (type instanceof Class<?> rawClass) {
+            raw = rawClass;
+        } else {
+            return null;
+        }
+
+        if (raw == RestAction.class) {
+            return typeBindings.getOrDefault(RestAction.class.getTypeParameters()[0], Object.class);
+        }
+        for (Type parent : raw.getGenericInterfaces()) {
+            Type found = findRestActionArgument(parent, typeBindings);
+            if (found != null) {
+                return found;
+            }
+        }
+        return null;
+    }
+}
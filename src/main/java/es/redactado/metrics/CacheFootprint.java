@@ -0,0 +1,122 @@
+package es.redactado.metrics;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import es.redactado.config.Bot;
+import io.github.cdimascio.dotenv.Dotenv;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import javax.annotation.Nonnull;
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.events.session.ReadyEvent;
+import net.dv8tion.jda.api.hooks.ListenerAdapter;
+import net.dv8tion.jda.api.sharding.ShardManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Measures what the active {@link Bot.CacheProfile} costs per guild.
+ *
+ * <p>The live heap (as left by the last garbage collection) is sampled when this is created,
+ * before any shard logs in, and again on demand. The difference divided by the guild count is the
+ * per-guild footprint, reported together with the cached entity counts that explain it. It is
+ * logged once every shard is ready and shown by /stats.
+ */
+@Singleton
+public class CacheFootprint extends ListenerAdapter {
+    private static final Logger logger = LoggerFactory.getLogger(CacheFootprint.class);
+
+    private final Bot.CacheProfile profile;
+    private final long baselineHeapBytes;
+
+    @Inject
+    public CacheFootprint(Dotenv dotenv) {
+        this.profile = Bot.CacheProfile.fromConfig(dotenv.get("CACHE_PROFILE", null));
+        this.baselineHeapBytes = liveHeapBytes();
+    }
+
+    public Bot.CacheProfile getProfile() {
+        return profile;
+    }
+
+    @Override
+    public void onReady(@Nonnull ReadyEvent event) {
+        ShardManager shardManager = event.getJDA().getShardManager();
+        if (shardManager == null || shardManager.getShardsQueued() > 0) {
+            return;
+        }
+        boolean allConnected =
+                shardManager.getShardCache().stream()
+                        .allMatch(jda -> jda.getStatus() == JDA.Status.CONNECTED);
+        if (allConnected) {
+            logger.info("Gateway cache footprint: {}", measure(shardManager));
+        }
+    }
+
+    /** Counts the cached entities of every guild and samples the live heap. */
+    public Report measure(ShardManager shardManager) {
+        long guilds = 0;
+        long members = 0;
+        long voiceStates = 0;
+        long roles = 0;
+        long channels = 0;
+        for (Guild guild : shardManager.getGuildCache()) {
+            guilds++;
+            members += guild.getMemberCache().size();
+            voiceStates += guild.getVoiceStates().size();
+            roles += guild.getRoleCache().size();
+            channels += guild.getChannels().size();
+        }
+        long heapDelta = Math.max(0, liveHeapBytes() - baselineHeapBytes);
+        return new Report(profile, guilds, members, voiceStates, roles, channels, heapDelta);
+    }
+
+    /** Heap in use after the last collection, or the current usage if none has run yet. */
+    private static long liveHeapBytes() {
+        long used = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            MemoryUsage afterGc = pool.getCollectionUsage();
+            if (pool.getType() == MemoryType.HEAP && afterGc != null) {
+                used += afterGc.getUsed();
+            }
+        }
+        return used > 0 ? used : ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    public record Report(
+            Bot.CacheProfile profile,
+            long guilds,
+            long members,
+            long voiceStates,
+            long roles,
+            long channels,
+            long heapDeltaBytes) {
+
+        public long bytesPerGuild() {
+            return guilds == 0 ? 0 : heapDeltaBytes / guilds;
+        }
+
+        public long membersPerGuild() {
+            return guilds == 0 ? 0 : members / guilds;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                    "profile=%s guilds=%d members=%d voiceStates=%d roles=%d channels=%d"
+                            + " heap=%d KiB (~%d KiB/guild, ~%d members/guild)",
+                    profile,
+                    guilds,
+                    members,
+                    voiceStates,
+                    roles,
+                    channels,
+                    heapDeltaBytes / 1024,
+                    bytesPerGuild() / 1024,
+                    membersPerGuild());
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package es.redactado.metrics;
+
+import com.google.inject.Singleton;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javax.annotation.Nonnull;
+import net.dv8tion.jda.api.events.http.HttpRequestEvent;
+import net.dv8tion.jda.api.hooks.ListenerAdapter;
+import net.dv8tion.jda.api.requests.Route;
+
+/**
+ * Per-command latency and error statistics, fed by the command pipeline.
+ *
+ * <ul>
+ *   <li><b>queue wait</b>: from receiving the interaction to the handler starting
+ *   <li><b>execution</b>: time spent inside the handler
+ *   <li><b>time to first ack</b>: from receiving the interaction until Discord answered the
+ *       first interaction callback (reply or defer), taken from JDA's HTTP request events
+ * </ul>
+ */
+@Singleton
+public class CommandMetrics extends ListenerAdapter {
+    private static final long PENDING_ACK_TTL_NANOS = TimeUnit.SECONDS.toNanos(15);
+
+    private final Map<Object, Stats> stats = new ConcurrentHashMap<>();
+    private final Map<Long, PendingAck> pendingAcks = new ConcurrentHashMap<>();
+
+    public CommandMetrics() {
+        ScheduledExecutorService sweeper =
+                Executors.newSingleThreadScheduledExecutor(
+                        Thread.ofPlatform().name("command-metrics-sweeper").daemon(true).factory());
+        sweeper.scheduleWithFixedDelay(this::sweepPendingAcks, 30, 30, TimeUnit.SECONDS);
+    }
+
+    /** Returns the statistics of a command, creating them on first use. */
+    public Stats statsFor(Object command, String name) {
+        Stats commandStats = stats.get(command);
+        if (commandStats == null) {
+            commandStats = stats.computeIfAbsent(command, key -> new Stats(name));
+        }
+        return commandStats;
+    }
+
+    /** Starts waiting for the first callback of an interaction received at {@code receivedAt}. */
+    public void expectAck(long interactionId, Stats commandStats, long receivedAt) {
+        pendingAcks.put(interactionId, new PendingAck(commandStats, receivedAt));
+    }
+
+    @Override
+    public void onHttpRequest(@Nonnull HttpRequestEvent event) {
+        Route.CompiledRoute route = event.getRoute();
+        if (route.getBaseRoute() != Route.Interactions.CREATE_CALLBACK) {
+            return;
+        }
+        // Compiled route: interactions/{interaction_id}/{interaction_token}/callback
+        String compiled = route.getCompiledRoute();
+        int start = compiled.indexOf('/') + 1;
+        int end = compiled.indexOf('/', start);
+        if (start <= 0 || end < 0) {
+            return;
+        }
+        PendingAck pending = pendingAcks.remove(Long.parseLong(compiled, start, end, 10));
+        if (pending != null) {
+            pending.stats.timeToFirstAck.recordNanos(System.nanoTime() - pending.receivedAt);
+        }
+    }
+
+    private void sweepPendingAcks() {
+        long now = System.nanoTime();
+        pendingAcks.values().removeIf(pending -> now - pending.receivedAt > PENDING_ACK_TTL_NANOS);
+    }
+
+    /** Pull API: a snapshot of every command, busiest first. */
+    public List<Stats.Snapshot> snapshot() {
+        List<Stats.Snapshot> snapshots = new ArrayList<>();
+        for (Stats commandStats : stats.values()) {
+            snapshots.add(commandStats.snapshot());
+        }
+        snapshots.sort(Comparator.comparingLong(Stats.Snapshot::invocations).reversed());
+        return snapshots;
+    }
+
+    private record PendingAck(Stats stats, long receivedAt) {}
+
+    public static final class Stats {
+        private final String name;
+        private final LatencyHistogram queueWait = new LatencyHistogram();
+        private final LatencyHistogram execution = new LatencyHistogram();
+        private final LatencyHistogram timeToFirstAck = new LatencyHistogram();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+
+        private Stats(String name) {
+            this.name = name;
+        }
+
+        public void recordQueueWait(long nanos) {
+            queueWait.recordNanos(nanos);
+        }
+
+        public void recordExecution(long nanos) {
+            execution.recordNanos(nanos);
+        }
+
+        public void recordError() {
+            errors.increment();
+        }
+
+        /** Counts an interaction that was rate limited, shed or expired before running. */
+        public void recordRejected() {
+            rejected.increment();
+        }
+
+        public Snapshot snapshot() {
+            return new Snapshot(
+                    name,
+                    execution.getCount(),
+                    errors.sum(),
+                    rejected.sum(),
+                    queueWait.snapshot(),
+                    execution.snapshot(),
+                    timeToFirstAck.snapshot());
+        }
+
+        public record Snapshot(
+                String name,
+                long invocations,
+                long errors,
+                long rejected,
+                LatencyHistogram.Snapshot queueWait,
+                LatencyHistogram.Snapshot execution,
+                LatencyHistogram.Snapshot timeToFirstAck) {}
+    }
+}
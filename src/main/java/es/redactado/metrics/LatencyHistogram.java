@@ -0,0 +1,127 @@
+package es.redactado.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram with HDR-style log-linear buckets.
+ *
+ * <p>Values are recorded in microseconds. Each power-of-two range is split into {@value
+ * #SUB_BUCKETS} linear sub-buckets, which keeps the relative error of any percentile under ~6%
+ * from 1 µs up to about 9 hours, in a fixed array of counters. Recording is a couple of shifts
+ * and one atomic increment, with no allocation.
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int ROWS = 32;
+
+    private final AtomicLongArray counts = new AtomicLongArray(ROWS * SUB_BUCKETS);
+    private final LongAdder totalCount = new LongAdder();
+    private final LongAdder totalMicros = new LongAdder();
+    private final LongAccumulator maxMicros = new LongAccumulator(Math::max, 0);
+
+    public void recordNanos(long nanos) {
+        recordMicros(TimeUnit.NANOSECONDS.toMicros(nanos));
+    }
+
+    public void recordMicros(long micros) {
+        long value = Math.max(0, micros);
+        counts.incrementAndGet(indexOf(value));
+        totalCount.increment();
+        totalMicros.add(value);
+        maxMicros.accumulate(value);
+    }
+
+    /*
+     * Row 0 holds the values 0-15 exactly. Row r >= 1 holds [2^(r+3), 2^(r+4)) split into 16
+     * buckets of width 2^(r-1). Anything beyond the last row lands in its last bucket.
+     */
+    private static int indexOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        int row = shift + 1;
+        if (row >= ROWS) {
+            return ROWS * SUB_BUCKETS - 1;
+        }
+        int subBucket = (int) (value >>> shift) - SUB_BUCKETS;
+        return row * SUB_BUCKETS + subBucket;
+    }
+
+    /** Highest value that falls into the bucket at {@code index}. */
+    private static long upperBoundOf(int index) {
+        int row = index / SUB_BUCKETS;
+        int subBucket = index % SUB_BUCKETS;
+        if (row == 0) {
+            return subBucket;
+        }
+        int shift = row - 1;
+        return ((long) (SUB_BUCKETS + subBucket) << shift) + (1L << shift) - 1;
+    }
+
+    public long getCount() {
+        return totalCount.sum();
+    }
+
+    public long getMaxMicros() {
+        return maxMicros.get();
+    }
+
+    public double getMeanMicros() {
+        long count = totalCount.sum();
+        return count == 0 ? 0 : (double) totalMicros.sum() / count;
+    }
+
+    /** Returns the value at the given percentile (0-100), in microseconds. */
+    public long getPercentileMicros(double percentile) {
+        long[] snapshot = new long[counts.length()];
+        long total = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * total));
+        long seen = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(upperBoundOf(i), maxMicros.get());
+            }
+        }
+        return maxMicros.get();
+    }
+
+    /**
+     * Clears every counter, for callers that measure in intervals. Values recorded while the reset
+     * runs may be half counted.
+     */
+    public void reset() {
+        for (int i = 0; i < counts.length(); i++) {
+            counts.set(i, 0);
+        }
+        totalCount.reset();
+        totalMicros.reset();
+        maxMicros.reset();
+    }
+
+    public Snapshot snapshot() {
+        return new Snapshot(
+                getCount(),
+                getMeanMicros(),
+                getPercentileMicros(50),
+                getPercentileMicros(99),
+                getPercentileMicros(99.9),
+                getMaxMicros());
+    }
+
+    /** Summary of a histogram, all values in microseconds. */
+    public record Snapshot(long count, double mean, long p50, long p99, long p999, long max) {}
+}
@@ -0,0 +1,96 @@
+package es.redactado.metrics;
+
+import com.google.inject.Singleton;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import net.dv8tion.jda.api.requests.Route;
+
+/**
+ * Per-route REST statistics, fed by {@link es.redactado.rest.LaneRateLimiter} on every shard.
+ *
+ * <ul>
+ *   <li><b>queued</b>: requests enqueued but not sent yet, whether held in a lane or waiting for
+ *       their rate limit bucket
+ *   <li><b>wait</b>: from enqueueing until the first attempt was sent
+ *   <li><b>execution</b>: time of each HTTP attempt
+ * </ul>
+ */
+@Singleton
+public class RestMetrics {
+    private final Map<String, RouteStats> routes = new ConcurrentHashMap<>();
+
+    /** Returns the statistics of a route, creating them on first use. */
+    public RouteStats route(Route.CompiledRoute route) {
+        Route base = route.getBaseRoute();
+        String name = base.getMethod() + " " + base.getRoute();
+        RouteStats routeStats = routes.get(name);
+        if (routeStats == null) {
+            routeStats = routes.computeIfAbsent(name, RouteStats::new);
+        }
+        return routeStats;
+    }
+
+    /** Pull API: a snapshot of every route, most queued first, then slowest to start. */
+    public List<RouteStats.Snapshot> snapshot() {
+        List<RouteStats.Snapshot> snapshots = new ArrayList<>();
+        for (RouteStats routeStats : routes.values()) {
+            snapshots.add(routeStats.snapshot());
+        }
+        snapshots.sort(
+                Comparator.comparingInt(RouteStats.Snapshot::queued)
+                        .thenComparingLong(snapshot -> snapshot.wait().p99())
+                        .reversed());
+        return snapshots;
+    }
+
+    public static final class RouteStats {
+        private final String name;
+        private final AtomicInteger queued = new AtomicInteger();
+        private final LatencyHistogram wait = new LatencyHistogram();
+        private final LatencyHistogram execution = new LatencyHistogram();
+        private final LongAdder dropped = new LongAdder();
+
+        private RouteStats(String name) {
+            this.name = name;
+        }
+
+        public void recordQueued() {
+            queued.incrementAndGet();
+        }
+
+        /** The request left the queue: sent for the first time, skipped or cancelled. */
+        public void recordDequeued() {
+            queued.decrementAndGet();
+        }
+
+        public void recordWait(long nanos) {
+            wait.recordNanos(nanos);
+        }
+
+        public void recordExecution(long nanos) {
+            execution.recordNanos(nanos);
+        }
+
+        /** Counts a request cancelled by the admission policy. */
+        public void recordDropped() {
+            dropped.increment();
+        }
+
+        public Snapshot snapshot() {
+            return new Snapshot(
+                    name, queued.get(), dropped.sum(), wait.snapshot(), execution.snapshot());
+        }
+
+        public record Snapshot(
+                String name,
+                int queued,
+                long dropped,
+                LatencyHistogram.Snapshot wait,
+                LatencyHistogram.Snapshot execution) {}
+    }
+}
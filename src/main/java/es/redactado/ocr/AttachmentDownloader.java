@@ -0,0 +1,89 @@
+package es.redactado.ocr;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import io.github.cdimascio.dotenv.Dotenv;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.OptionalLong;
+import net.dv8tion.jda.api.entities.Message;
+
+/**
+ * Downloads attachments for OCR without trusting their size. The size Discord reports and the
+ * {@code Content-Length} header are checked first, then the body is streamed and the download
+ * aborted as soon as it goes past {@code OCR_MAX_IMAGE_BYTES}.
+ */
+@Singleton
+public class AttachmentDownloader {
+    private static final int CHUNK_SIZE = 16 * 1024;
+
+    private final long maxBytes;
+    private final Duration timeout;
+    private final HttpClient client;
+
+    @Inject
+    public AttachmentDownloader(Dotenv dotenv) {
+        this.maxBytes = Long.parseLong(dotenv.get("OCR_MAX_IMAGE_BYTES", "8388608"));
+        this.timeout =
+                Duration.ofMillis(Long.parseLong(dotenv.get("OCR_DOWNLOAD_TIMEOUT_MS", "10000")));
+        this.client =
+                HttpClient.newBuilder()
+                        .connectTimeout(timeout)
+                        .followRedirects(HttpClient.Redirect.NORMAL)
+                        .build();
+    }
+
+    /**
+     * Returns the attachment's bytes. Throws {@link IllegalArgumentException} if it is larger than
+     * allowed.
+     */
+    public byte[] download(Message.Attachment attachment) throws IOException, InterruptedException {
+        if (attachment.getSize() > maxBytes) {
+            throw tooLarge();
+        }
+        return download(URI.create(attachment.getUrl()));
+    }
+
+    public byte[] download(URI uri) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(uri).timeout(timeout).GET().build();
+        HttpResponse<InputStream> response =
+                client.send(request, HttpResponse.BodyHandlers.ofInputStream());
+        // Closing the body early cancels the rest of the download
+        try (InputStream body = response.body()) {
+            if (response.statusCode() != 200) {
+                throw new IOException("Download failed with HTTP " + response.statusCode());
+            }
+            OptionalLong length = response.headers().firstValueAsLong("Content-Length");
+            if (length.isPresent() && length.getAsLong() > maxBytes) {
+                throw tooLarge();
+            }
+            return readCapped(body);
+        }
+    }
+
+    private byte[] readCapped(InputStream body) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] chunk = new byte[CHUNK_SIZE];
+        long total = 0;
+        int read;
+        while ((read = body.read(chunk)) != -1) {
+            total += read;
+            if (total > maxBytes) {
+                throw tooLarge();
+            }
+            out.write(chunk, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    private IllegalArgumentException tooLarge() {
+        return new IllegalArgumentException(
+                "Image is larger than " + maxBytes / (1024 * 1024) + " MiB");
+    }
+}
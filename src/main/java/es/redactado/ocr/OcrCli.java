@@ -0,0 +1,63 @@
+package es.redactado.ocr;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.github.cdimascio.dotenv.Dotenv;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs the OCR engine on local image files, without Discord. Useful to check a tessdata setup and
+ * to compare recognition times on fixtures: {@code gradle runOcr --args="a.png b.jpg"}.
+ *
+ * <p>Each file is recognised twice, the second time from the cache.
+ */
+public class OcrCli {
+    private static final Logger logger = LoggerFactory.getLogger(OcrCli.class);
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            logger.error("Usage: OcrCli <image> [image...]");
+            return;
+        }
+        OcrEngine engine = new OcrEngine(Dotenv.configure().ignoreIfMissing().load());
+        try {
+            for (int pass = 0; pass < 2; pass++) {
+                for (String arg : args) {
+                    recognize(engine, Path.of(arg));
+                }
+            }
+            CacheStats cache = engine.getCacheStats();
+            logger.info(
+                    "Recognition p50/p99: {}/{} ms · queue wait p99: {} ms · cache hits: {}/{} · failures: {}",
+                    engine.getRecognitionTime().getPercentileMicros(50) / 1000,
+                    engine.getRecognitionTime().getPercentileMicros(99) / 1000,
+                    engine.getQueueWait().getPercentileMicros(99) / 1000,
+                    cache.hitCount(),
+                    cache.requestCount(),
+                    engine.getFailureCount());
+        } finally {
+            engine.shutdown();
+        }
+    }
+
+    private static void recognize(OcrEngine engine, Path path) throws IOException {
+        byte[] image = Files.readAllBytes(path);
+        long start = System.nanoTime();
+        try {
+            OcrEngine.OcrResult result = engine.recognize(image).join();
+            logger.info(
+                    "{} ({} ms{}):\n{}",
+                    path,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+                    result.cached() ? ", cached" : "",
+                    result.text().strip());
+        } catch (CompletionException e) {
+            logger.error("{} failed", path, e.getCause());
+        }
+    }
+}
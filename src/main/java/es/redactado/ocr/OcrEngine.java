@@ -0,0 +1,243 @@
+package es.redactado.ocr;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import es.redactado.metrics.LatencyHistogram;
+import io.github.cdimascio.dotenv.Dotenv;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Pooled OCR on top of Tesseract.
+ *
+ * <ul>
+ *   <li>Images are recognised on {@code OCR_WORKERS} platform threads, separate from the command
+ *       executor: native calls would pin virtual threads, and OCR is CPU bound anyway. At most
+ *       {@code OCR_QUEUE_SIZE} images wait for a worker; beyond that requests are rejected with a
+ *       {@link RejectedExecutionException} instead of queueing unboundedly.
+ *   <li>Each worker owns one {@link TesseractInstance}, created on its first image and reused
+ *       after that, so the language model is loaded once per worker.
+ *   <li>Results are cached by the SHA-256 of the image bytes. The same image posted again, or
+ *       requested by several users at once, is only recognised once.
+ * </ul>
+ */
+@Singleton
+public class OcrEngine {
+    private static final Logger logger = LoggerFactory.getLogger(OcrEngine.class);
+
+    private final String dataPath;
+    private final String language;
+    private final long maxPixels;
+    private final ThreadPoolExecutor workers;
+    private final ThreadLocal<TesseractInstance> instances = new ThreadLocal<>();
+    private final List<TesseractInstance> createdInstances = new CopyOnWriteArrayList<>();
+    private final AsyncCache<String, String> results;
+
+    private final LatencyHistogram queueWait = new LatencyHistogram();
+    private final LatencyHistogram recognition = new LatencyHistogram();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    /** Text found in an image, and whether it came from the cache. */
+    public record OcrResult(String text, boolean cached) {}
+
+    @Inject
+    public OcrEngine(Dotenv dotenv) {
+        this.dataPath = dotenv.get("OCR_DATA_PATH", "./tessdata");
+        this.language = dotenv.get("OCR_LANGUAGE", "eng");
+        this.maxPixels = Long.parseLong(dotenv.get("OCR_MAX_PIXELS", "25000000"));
+        int threads =
+                Integer.parseInt(
+                        dotenv.get(
+                                "OCR_WORKERS",
+                                String.valueOf(
+                                        Math.max(1, Runtime.getRuntime().availableProcessors() / 2))));
+        this.workers =
+                new ThreadPoolExecutor(
+                        threads,
+                        threads,
+                        0L,
+                        TimeUnit.MILLISECONDS,
+                        new ArrayBlockingQueue<>(Integer.parseInt(dotenv.get("OCR_QUEUE_SIZE", "32"))),
+                        Thread.ofPlatform().name("ocr-worker-", 0).daemon(true).factory(),
+                        new ThreadPoolExecutor.AbortPolicy());
+        this.results =
+                Caffeine.newBuilder()
+                        .maximumSize(Long.parseLong(dotenv.get("OCR_CACHE_SIZE", "1000")))
+                        .expireAfterAccess(
+                                Duration.ofMinutes(
+                                        Long.parseLong(dotenv.get("OCR_CACHE_TTL_MINUTES", "60"))))
+                        .recordStats()
+                        .buildAsync();
+
+        // The model is only loaded by the first image, so point out a missing one early
+        Path model = Paths.get(dataPath, language.split("\\+")[0] + ".traineddata");
+        if (!Files.exists(model)) {
+            logger.warn("Tesseract model {} not found, OCR requests will fail", model);
+        }
+    }
+
+    /**
+     * Recognises the text in an encoded image (PNG, JPEG, ...). The future fails with a {@link
+     * RejectedExecutionException} when the queue is full and with an {@link
+     * IllegalArgumentException} when the image can't be decoded or is too large.
+     */
+    public CompletableFuture<OcrResult> recognize(byte[] image) {
+        // Concurrent requests for the same image share the first one's future; failures are
+        // dropped from the cache by Caffeine. The mapping function runs on this thread.
+        AtomicBoolean submitted = new AtomicBoolean();
+        return results.get(
+                        sha256(image),
+                        (hash, executor) -> {
+                            submitted.set(true);
+                            return submit(image);
+                        })
+                .thenApply(text -> new OcrResult(text, !submitted.get()));
+    }
+
+    private CompletableFuture<String> submit(byte[] image) {
+        long queuedAt = System.nanoTime();
+        CompletableFuture<String> future = new CompletableFuture<>();
+        try {
+            workers.execute(
+                    () -> {
+                        long startedAt = System.nanoTime();
+                        queueWait.recordNanos(startedAt - queuedAt);
+                        try {
+                            future.complete(instance().recognize(decode(image)));
+                        } catch (Exception | LinkageError e) {
+                            failures.increment();
+                            future.completeExceptionally(e);
+                        } finally {
+                            recognition.recordNanos(System.nanoTime() - startedAt);
+                        }
+                    });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    private TesseractInstance instance() {
+        TesseractInstance instance = instances.get();
+        if (instance == null) {
+            long start = System.nanoTime();
+            instance = new TesseractInstance(dataPath, language);
+            instances.set(instance);
+            createdInstances.add(instance);
+            logger.info(
+                    "Loaded Tesseract '{}' on {} in {} ms",
+                    language,
+                    Thread.currentThread().getName(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+        return instance;
+    }
+
+    /** Decodes the image, checking its dimensions first so a small file can't expand to GBs. */
+    private BufferedImage decode(byte[] bytes) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(bytes))) {
+            Iterator<ImageReader> readers = input != null ? ImageIO.getImageReaders(input) : null;
+            if (readers == null || !readers.hasNext()) {
+                throw new IllegalArgumentException("Unsupported image format");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > maxPixels) {
+                    throw new IllegalArgumentException(
+                            "Image is too large (" + width + "x" + height + ")");
+                }
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static String sha256(byte[] bytes) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is always available", e);
+        }
+    }
+
+    /** Stops the workers and frees every native engine. */
+    public void shutdown() {
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(10, TimeUnit.SECONDS)) {
+                logger.warn("OCR workers still busy, leaving native engines allocated");
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        for (TesseractInstance instance : createdInstances) {
+            instance.close();
+        }
+        createdInstances.clear();
+    }
+
+    /** Images waiting for a worker. */
+    public int getQueueDepth() {
+        return workers.getQueue().size();
+    }
+
+    public int getActiveWorkers() {
+        return workers.getActiveCount();
+    }
+
+    /** Time from submission until a worker picked the image up. */
+    public LatencyHistogram getQueueWait() {
+        return queueWait;
+    }
+
+    /** Decoding plus recognition time on the worker. */
+    public LatencyHistogram getRecognitionTime() {
+        return recognition;
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    public long getFailureCount() {
+        return failures.sum();
+    }
+
+    public CacheStats getCacheStats() {
+        return results.synchronous().stats();
+    }
+}
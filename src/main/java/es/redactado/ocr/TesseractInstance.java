@@ -0,0 +1,80 @@
+package es.redactado.ocr;
+
+import com.sun.jna.Pointer;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import net.sourceforge.tess4j.ITessAPI;
+import net.sourceforge.tess4j.TessAPI1;
+
+/**
+ * One native Tesseract engine, kept for the life of its worker thread.
+ *
+ * <p>tess4j's {@code Tesseract} class initialises and disposes the native engine on every call,
+ * reloading the language model each time. This talks to the C API directly instead: the model is
+ * loaded once and only the image changes between calls. The native engine is not thread-safe, so
+ * an instance must only be used by the thread that created it.
+ */
+final class TesseractInstance implements AutoCloseable {
+    // Screenshots are usually around screen resolution; without a value Tesseract warns on every image
+    private static final int SOURCE_DPI = 96;
+
+    private final ITessAPI.TessBaseAPI handle;
+
+    TesseractInstance(String dataPath, String language) {
+        handle = TessAPI1.TessBaseAPICreate();
+        if (TessAPI1.TessBaseAPIInit3(handle, dataPath, language) != 0) {
+            TessAPI1.TessBaseAPIDelete(handle);
+            throw new IllegalStateException(
+                    "Cannot load Tesseract language '" + language + "' from " + dataPath);
+        }
+        TessAPI1.TessBaseAPISetPageSegMode(handle, ITessAPI.TessPageSegMode.PSM_AUTO);
+    }
+
+    String recognize(BufferedImage image) {
+        BufferedImage gray = toGray(image);
+        byte[] pixels = ((DataBufferByte) gray.getRaster().getDataBuffer()).getData();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(pixels.length).order(ByteOrder.nativeOrder());
+        buffer.put(pixels).flip();
+
+        TessAPI1.TessBaseAPISetImage(
+                handle, buffer, gray.getWidth(), gray.getHeight(), 1, gray.getWidth());
+        TessAPI1.TessBaseAPISetSourceResolution(handle, SOURCE_DPI);
+        Pointer text = TessAPI1.TessBaseAPIGetUTF8Text(handle);
+        try {
+            return text != null ? text.getString(0, "UTF-8") : "";
+        } finally {
+            if (text != null) {
+                TessAPI1.TessDeleteText(text);
+            }
+            TessAPI1.TessBaseAPIClear(handle);
+        }
+    }
+
+    @Override
+    public void close() {
+        TessAPI1.TessBaseAPIEnd(handle);
+        TessAPI1.TessBaseAPIDelete(handle);
+    }
+
+    /**
+     * 8-bit grayscale with one byte per pixel and no row padding, which Tesseract reads as is.
+     * Transparent areas become white, since dark text on a transparent background is common.
+     */
+    private static BufferedImage toGray(BufferedImage image) {
+        BufferedImage gray =
+                new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D graphics = gray.createGraphics();
+        try {
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, image.getWidth(), image.getHeight());
+            graphics.drawImage(image, 0, 0, null);
+        } finally {
+            graphics.dispose();
+        }
+        return gray;
+    }
+}
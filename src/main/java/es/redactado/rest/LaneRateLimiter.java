@@ -0,0 +1,270 @@
+package es.redactado.rest;
+
+import es.redactado.metrics.RestMetrics;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.requests.Response;
+import net.dv8tion.jda.api.requests.RestRateLimiter;
+import net.dv8tion.jda.api.requests.Route;
+import net.dv8tion.jda.api.requests.SequentialRestRateLimiter;
+
+/**
+ * One shard's REST scheduler: JDA's {@link SequentialRestRateLimiter} with lanes in front of it.
+ *
+ * <p>Interaction responses go straight to JDA's limiter. User-facing and background requests are
+ * held in their lane and handed over while fewer than {@code REST_MAX_USER_IN_FLIGHT} and {@code
+ * REST_MAX_BACKGROUND_IN_FLIGHT} of them are in JDA's queues, users first, so a burst of
+ * background work can't fill the shared rate limit buckets and global limit ahead of the requests
+ * people are waiting for. Background requests are further subject to the admission policy in
+ * {@link RestLanes}.
+ */
+public class LaneRateLimiter implements RestRateLimiter {
+    private static final long PUMP_INTERVAL_MS = 100;
+
+    private final RestRateLimiter delegate;
+    private final RestLanes lanes;
+    private final RestLanes.Settings settings;
+    private final RestMetrics metrics;
+    private final ScheduledFuture<?> pumpTask;
+
+    // Guarded by this
+    private final ArrayDeque<LaneWork> user = new ArrayDeque<>();
+    private final ArrayDeque<LaneWork> background = new ArrayDeque<>();
+    private int userInFlight;
+    private int backgroundInFlight;
+
+    public LaneRateLimiter(RateLimitConfig config, RestLanes lanes) {
+        this.delegate = new SequentialRestRateLimiter(config);
+        this.lanes = lanes;
+        this.settings = lanes.getSettings();
+        this.metrics = lanes.getMetrics();
+        // Held background work resumes once interaction latency recovers, even without new requests
+        this.pumpTask =
+                config.getScheduler()
+                        .scheduleWithFixedDelay(
+                                this::pump, PUMP_INTERVAL_MS, PUMP_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void enqueue(Work task) {
+        LaneWork work = new LaneWork(task, RestLane.of(task.getRoute()));
+        work.stats.recordQueued();
+        if (work.lane == RestLane.INTERACTION) {
+            delegate.enqueue(work);
+            return;
+        }
+
+        boolean overflow = false;
+        synchronized (this) {
+            if (work.lane == RestLane.USER) {
+                user.add(work);
+            } else if (background.size() < settings.backgroundQueueSize()) {
+                background.add(work);
+            } else {
+                overflow = true;
+            }
+        }
+        if (overflow) {
+            drop(work);
+        } else {
+            lanes.recordHeld(work.lane, 1);
+            pump();
+        }
+    }
+
+    private void pump() {
+        long now = System.nanoTime();
+        boolean congested = lanes.isCongested(now);
+        List<LaneWork> admitted = new ArrayList<>();
+        List<LaneWork> expired = new ArrayList<>();
+        synchronized (this) {
+            while (!user.isEmpty() && userInFlight < settings.maxUserInFlight()) {
+                userInFlight++;
+                admitted.add(admit(user.poll()));
+            }
+            if (congested) {
+                long maxWait = settings.backgroundMaxWait().toNanos();
+                while (!background.isEmpty() && now - background.peek().enqueuedAt > maxWait) {
+                    expired.add(background.poll());
+                }
+            } else {
+                while (!background.isEmpty() && backgroundInFlight < settings.maxBackgroundInFlight()) {
+                    backgroundInFlight++;
+                    admitted.add(admit(background.poll()));
+                }
+            }
+        }
+
+        for (LaneWork work : expired) {
+            lanes.recordHeld(RestLane.BACKGROUND, -1);
+            drop(work);
+        }
+        for (LaneWork work : admitted) {
+            lanes.recordHeld(work.lane, -1);
+            delegate.enqueue(work);
+        }
+    }
+
+    private static LaneWork admit(LaneWork work) {
+        work.admitted = true;
+        return work;
+    }
+
+    private void drop(LaneWork work) {
+        work.stats.recordDropped();
+        lanes.recordDropped();
+        // Fails the RestAction with a CancellationException
+        work.cancel();
+    }
+
+    private void onFinished(LaneWork work) {
+        if (!work.admitted) {
+            return;
+        }
+        synchronized (this) {
+            if (work.lane == RestLane.USER) {
+                userInFlight--;
+            } else {
+                backgroundInFlight--;
+            }
+        }
+        pump();
+    }
+
+    /** Hands everything still held to JDA's limiter, which then stops as usual. */
+    @Override
+    public void stop(boolean shutdown, Runnable callback) {
+        pumpTask.cancel(false);
+        for (LaneWork work : drainHeld()) {
+            delegate.enqueue(work);
+        }
+        delegate.stop(shutdown, callback);
+    }
+
+    @Override
+    public boolean isStopped() {
+        return delegate.isStopped();
+    }
+
+    @Override
+    public int cancelRequests() {
+        int cancelled = 0;
+        for (LaneWork work : drainHeld()) {
+            if (work.isPriority()) {
+                delegate.enqueue(work);
+            } else {
+                work.cancel();
+                cancelled++;
+            }
+        }
+        return cancelled + delegate.cancelRequests();
+    }
+
+    private List<LaneWork> drainHeld() {
+        List<LaneWork> held = new ArrayList<>();
+        synchronized (this) {
+            held.addAll(user);
+            held.addAll(background);
+            user.clear();
+            background.clear();
+        }
+        for (LaneWork work : held) {
+            lanes.recordHeld(work.lane, -1);
+        }
+        return held;
+    }
+
+    /** Wraps JDA's work to time it and to free its lane slot once it is done. */
+    private final class LaneWork implements Work {
+        private final Work task;
+        private final RestLane lane;
+        private final RestMetrics.RouteStats stats;
+        private final long enqueuedAt = System.nanoTime();
+        private final AtomicBoolean finished = new AtomicBoolean();
+        private volatile boolean started;
+        private volatile boolean admitted;
+
+        private LaneWork(Work task, RestLane lane) {
+            this.task = task;
+            this.lane = lane;
+            this.stats = metrics.route(task.getRoute());
+        }
+
+        @Override
+        public Route.CompiledRoute getRoute() {
+            return task.getRoute();
+        }
+
+        @Override
+        public JDA getJDA() {
+            return task.getJDA();
+        }
+
+        @Override
+        public Response execute() {
+            long start = System.nanoTime();
+            if (!started) {
+                // Retries after a 429 run again; only the first attempt counts as leaving the queue
+                started = true;
+                stats.recordDequeued();
+                stats.recordWait(start - enqueuedAt);
+            }
+            try {
+                return task.execute();
+            } finally {
+                long end = System.nanoTime();
+                stats.recordExecution(end - start);
+                if (task.isDone()) {
+                    finish(end);
+                }
+            }
+        }
+
+        @Override
+        public boolean isSkipped() {
+            boolean skipped = task.isSkipped();
+            if (skipped) {
+                finish(System.nanoTime());
+            }
+            return skipped;
+        }
+
+        @Override
+        public boolean isDone() {
+            return task.isDone();
+        }
+
+        @Override
+        public boolean isPriority() {
+            return task.isPriority();
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return task.isCancelled();
+        }
+
+        @Override
+        public void cancel() {
+            task.cancel();
+            finish(System.nanoTime());
+        }
+
+        private void finish(long now) {
+            if (!finished.compareAndSet(false, true)) {
+                return;
+            }
+            if (!started) {
+                stats.recordDequeued();
+            } else if (lane == RestLane.INTERACTION) {
+                lanes.recordInteraction(now - enqueuedAt);
+            }
+            onFinished(this);
+        }
+    }
+}
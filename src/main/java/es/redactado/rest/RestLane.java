@@ -0,0 +1,53 @@
+package es.redactado.rest;
+
+import net.dv8tion.jda.api.requests.Route;
+
+/** Priority classes of REST requests, from most to least urgent. */
+public enum RestLane {
+    /** Interaction callbacks and followups, which have to beat Discord's 3 second deadline. */
+    INTERACTION,
+    /** Messages, reactions and typing in channels, which users are waiting to see. */
+    USER,
+    /** Everything else: guild, role and member edits, bulk deletes, work marked as background. */
+    BACKGROUND;
+
+    private static final ThreadLocal<RestLane> OVERRIDE = new ThreadLocal<>();
+
+    /**
+     * Runs {@code action} with every RestAction it queues put in {@code lane}, e.g. to keep a bulk
+     * send out of the user lane. JDA enqueues requests on the thread calling {@code queue()}, so
+     * requests queued later from callbacks are not covered. Interaction responses always keep
+     * their lane.
+     */
+    public static void run(RestLane lane, Runnable action) {
+        RestLane previous = OVERRIDE.get();
+        OVERRIDE.set(lane);
+        try {
+            action.run();
+        } finally {
+            if (previous == null) {
+                OVERRIDE.remove();
+            } else {
+                OVERRIDE.set(previous);
+            }
+        }
+    }
+
+    static RestLane of(Route.CompiledRoute route) {
+        // interactions/{interaction_id}/{interaction_token}/callback and the followup webhooks
+        String template = route.getBaseRoute().getRoute();
+        if (template.startsWith("interactions/") || template.contains("{interaction_token}")) {
+            return INTERACTION;
+        }
+        RestLane override = OVERRIDE.get();
+        if (override != null) {
+            return override;
+        }
+        if ((template.startsWith("channels/{channel_id}/messages")
+                        && !template.endsWith("bulk-delete"))
+                || template.equals("channels/{channel_id}/typing")) {
+            return USER;
+        }
+        return BACKGROUND;
+    }
+}
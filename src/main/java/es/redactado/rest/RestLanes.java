@@ -0,0 +1,152 @@
+package es.redactado.rest;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import es.redactado.metrics.LatencyHistogram;
+import es.redactado.metrics.RestMetrics;
+import io.github.cdimascio.dotenv.Dotenv;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import net.dv8tion.jda.api.requests.RestConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Shared state of the REST lanes on every shard: settings, the admission policy and lane gauges.
+ *
+ * <p>Admission: the latency of interaction responses (enqueue to Discord's answer) is tracked as
+ * a moving average. While it is above {@code REST_INTERACTION_TARGET_MS}, no background request is
+ * sent and those waiting longer than {@code REST_BACKGROUND_MAX_WAIT_MS} are cancelled. Background
+ * requests beyond {@code REST_BACKGROUND_QUEUE_SIZE} are cancelled right away. Without interaction
+ * responses for a few seconds the average is considered stale and background work resumes.
+ */
+@Singleton
+public class RestLanes {
+    private static final Logger logger = LoggerFactory.getLogger(RestLanes.class);
+    private static final long SAMPLE_TTL_NANOS = TimeUnit.SECONDS.toNanos(5);
+    private static final double SMOOTHING = 0.2;
+
+    public record Settings(
+            boolean enabled,
+            int maxUserInFlight,
+            int maxBackgroundInFlight,
+            int backgroundQueueSize,
+            Duration backgroundMaxWait,
+            Duration interactionTarget) {
+
+        public static Settings fromConfig(Dotenv dotenv) {
+            return new Settings(
+                    Boolean.parseBoolean(dotenv.get("REST_LANES_ENABLED", "true")),
+                    Integer.parseInt(dotenv.get("REST_MAX_USER_IN_FLIGHT", "32")),
+                    Integer.parseInt(dotenv.get("REST_MAX_BACKGROUND_IN_FLIGHT", "4")),
+                    Integer.parseInt(dotenv.get("REST_BACKGROUND_QUEUE_SIZE", "1000")),
+                    Duration.ofMillis(
+                            Long.parseLong(dotenv.get("REST_BACKGROUND_MAX_WAIT_MS", "30000"))),
+                    Duration.ofMillis(
+                            Long.parseLong(dotenv.get("REST_INTERACTION_TARGET_MS", "1000"))));
+        }
+    }
+
+    private final Settings settings;
+    private final RestMetrics metrics;
+    private final LatencyHistogram interactionLatency = new LatencyHistogram();
+    private final AtomicInteger[] held = new AtomicInteger[RestLane.values().length];
+    private final LongAdder dropped = new LongAdder();
+    private final AtomicBoolean congested = new AtomicBoolean();
+
+    // Guarded by this
+    private double recentInteractionMicros;
+    private long lastInteractionNanos;
+
+    @Inject
+    public RestLanes(Dotenv dotenv, RestMetrics metrics) {
+        this.settings = Settings.fromConfig(dotenv);
+        this.metrics = metrics;
+        for (int i = 0; i < held.length; i++) {
+            held[i] = new AtomicInteger();
+        }
+    }
+
+    /** REST settings for the ShardManager: JDA's rate limiter wrapped in lanes, if enabled. */
+    public RestConfig createRestConfig() {
+        RestConfig config = new RestConfig();
+        if (settings.enabled()) {
+            config.setRateLimiterFactory(limits -> new LaneRateLimiter(limits, this));
+        }
+        return config;
+    }
+
+    Settings getSettings() {
+        return settings;
+    }
+
+    RestMetrics getMetrics() {
+        return metrics;
+    }
+
+    void recordInteraction(long nanos) {
+        interactionLatency.recordNanos(nanos);
+        double micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+        synchronized (this) {
+            recentInteractionMicros =
+                    lastInteractionNanos == 0
+                            ? micros
+                            : recentInteractionMicros + SMOOTHING * (micros - recentInteractionMicros);
+            lastInteractionNanos = System.nanoTime();
+        }
+    }
+
+    /** Whether background work has to wait because interaction responses are slow. */
+    boolean isCongested(long now) {
+        double recentMicros;
+        long lastSample;
+        synchronized (this) {
+            recentMicros = recentInteractionMicros;
+            lastSample = lastInteractionNanos;
+        }
+        boolean slow =
+                lastSample != 0
+                        && now - lastSample < SAMPLE_TTL_NANOS
+                        && recentMicros > settings.interactionTarget().toNanos() / 1000.0;
+        if (congested.compareAndSet(!slow, slow)) {
+            if (slow) {
+                logger.warn(
+                        "Interaction responses take {} ms, holding background REST requests",
+                        Math.round(recentMicros / 1000));
+            } else {
+                logger.info("Interaction responses back to normal, resuming background REST requests");
+            }
+        }
+        return slow;
+    }
+
+    void recordHeld(RestLane lane, int delta) {
+        held[lane.ordinal()].addAndGet(delta);
+    }
+
+    void recordDropped() {
+        dropped.increment();
+    }
+
+    /** Enqueue to answer of interaction responses, across all shards. */
+    public LatencyHistogram getInteractionLatency() {
+        return interactionLatency;
+    }
+
+    /** Requests held back in a lane, not yet handed to JDA's rate limiter. */
+    public int getHeld(RestLane lane) {
+        return held[lane.ordinal()].get();
+    }
+
+    /** Background requests cancelled by the admission policy. */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    public boolean isCongested() {
+        return congested.get();
+    }
+}
@@ -0,0 +1,193 @@
+package es.redactado.webhook;
+
+import club.minnced.discord.webhook.send.WebhookEmbedBuilder;
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Stand-in for Discord's webhook endpoint on the loopback interface, to exercise {@link
+ * WebhookDispatcher} without a real webhook. It applies one rate limit bucket of {@code limit}
+ * requests per {@code window} with Discord's headers, answers 429 once it is used up, and fails
+ * every {@code failEvery}-th request with a 500.
+ *
+ * <p>{@link #main} pushes a burst of log lines and embeds through a dispatcher and reports how many
+ * requests it took: {@code gradle runWebhookStandIn --args="500"}.
+ */
+public class LocalWebhookServer implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(LocalWebhookServer.class);
+    private static final String BUCKET = "stand-in";
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final int limit;
+    private final long windowNanos;
+    private final int failEvery;
+
+    private long windowStart = System.nanoTime();
+    private int used;
+
+    private final AtomicInteger received = new AtomicInteger();
+    private final AtomicInteger accepted = new AtomicInteger();
+    private final AtomicInteger limited = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+
+    public LocalWebhookServer(int limit, Duration window, int failEvery) throws IOException {
+        this.limit = limit;
+        this.windowNanos = window.toNanos();
+        this.failEvery = failEvery;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/api/webhooks/", this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    /** A webhook URL that points at this server. */
+    public String webhookUrl() {
+        return "http://"
+                + server.getAddress().getHostString()
+                + ":"
+                + server.getAddress().getPort()
+                + "/api/webhooks/1/stand-in-token";
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange;
+                InputStream body = exchange.getRequestBody()) {
+            body.readAllBytes();
+            int request = received.incrementAndGet();
+            if (failEvery > 0 && request % failEvery == 0) {
+                failed.incrementAndGet();
+                exchange.sendResponseHeaders(500, -1);
+                return;
+            }
+
+            long now = System.nanoTime();
+            boolean allowed;
+            int remaining;
+            long resetAfter;
+            synchronized (this) {
+                if (now - windowStart >= windowNanos) {
+                    windowStart = now;
+                    used = 0;
+                }
+                allowed = used < limit;
+                if (allowed) {
+                    used++;
+                }
+                remaining = limit - used;
+                resetAfter = windowStart + windowNanos - now;
+            }
+
+            Headers headers = exchange.getResponseHeaders();
+            headers.add("X-RateLimit-Limit", String.valueOf(limit));
+            headers.add("X-RateLimit-Remaining", String.valueOf(remaining));
+            headers.add("X-RateLimit-Reset-After", seconds(resetAfter));
+            headers.add("X-RateLimit-Bucket", BUCKET);
+            if (!allowed) {
+                limited.incrementAndGet();
+                headers.add("Retry-After", seconds(resetAfter));
+                headers.add("Content-Type", "application/json");
+                byte[] json =
+                        String.format(
+                                        Locale.ROOT,
+                                        "{\"message\":\"You are being rate limited.\",\"retry_after\":%s,\"global\":false}",
+                                        seconds(resetAfter))
+                                .getBytes(StandardCharsets.UTF_8);
+                exchange.sendResponseHeaders(429, json.length);
+                exchange.getResponseBody().write(json);
+                return;
+            }
+            accepted.incrementAndGet();
+            exchange.sendResponseHeaders(204, -1);
+        }
+    }
+
+    private static String seconds(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", Math.max(0, nanos) / 1e9);
+    }
+
+    public int getReceived() {
+        return received.get();
+    }
+
+    public int getAccepted() {
+        return accepted.get();
+    }
+
+    public int getRateLimited() {
+        return limited.get();
+    }
+
+    public int getFailed() {
+        return failed.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdown();
+    }
+
+    public static void main(String[] args) throws IOException {
+        int messages = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        // Discord's webhook limit is 5 requests per 2 seconds; one request in 20 fails
+        try (LocalWebhookServer server = new LocalWebhookServer(5, Duration.ofSeconds(2), 20)) {
+            WebhookDispatcher dispatcher =
+                    new WebhookDispatcher(
+                            new WebhookDispatcher.Settings(
+                                    "stand-in",
+                                    messages,
+                                    Duration.ofMillis(250),
+                                    5,
+                                    Duration.ofMillis(200),
+                                    Duration.ofSeconds(5)));
+            String url = server.webhookUrl();
+
+            long start = System.nanoTime();
+            for (int i = 0; i < messages; i++) {
+                if (i % 5 == 4) {
+                    dispatcher.send(
+                            url,
+                            new WebhookEmbedBuilder()
+                                    .setColor(0xE74C3C)
+                                    .setDescription("Synthetic error #" + i)
+                                    .build());
+                } else {
+                    dispatcher.send(url, "`audit` synthetic event #" + i + " by user " + (i * 7919));
+                }
+            }
+            long enqueueMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start);
+            dispatcher.shutdown(Duration.ofMinutes(2));
+
+            WebhookDispatcher.Stats stats = dispatcher.stats();
+            logger.info(
+                    "{} messages enqueued in {} µs, delivered {} in {} ms with {} requests"
+                            + " ({} accepted, {} rate limited, {} failed by the stand-in);"
+                            + " dropped {}, given up {}",
+                    stats.enqueued(),
+                    enqueueMicros,
+                    stats.delivered(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+                    server.getReceived(),
+                    server.getAccepted(),
+                    server.getRateLimited(),
+                    server.getFailed(),
+                    stats.dropped(),
+                    stats.failed());
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package es.redactado.webhook;
+
+/**
+ * Discord's rate limit state for one bucket, taken from the {@code X-RateLimit-*} headers. Several
+ * webhook URLs can share a bucket once Discord reports the same bucket id for them. Only used on the
+ * dispatcher thread.
+ */
+final class RateLimitBucket {
+    /** Until the first response we don't know the limit; allow one request to find out. */
+    private int remaining = 1;
+
+    private long resetAtNanos;
+
+    /** How long a request has to wait, zero if it can go now. */
+    long delayNanos(long now) {
+        return remaining > 0 || now >= resetAtNanos ? 0 : resetAtNanos - now;
+    }
+
+    void consume(long now) {
+        if (remaining <= 0 && now >= resetAtNanos) {
+            remaining = 1;
+        }
+        remaining--;
+    }
+
+    void update(int remaining, long resetAfterNanos, long now) {
+        this.remaining = remaining;
+        this.resetAtNanos = now + resetAfterNanos;
+    }
+
+    /** After a 429: nothing may go until {@code retryAfterNanos} from now. */
+    void exhaust(long retryAfterNanos, long now) {
+        this.remaining = 0;
+        this.resetAtNanos = Math.max(resetAtNanos, now + retryAfterNanos);
+    }
+}
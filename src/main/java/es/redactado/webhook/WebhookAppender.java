@@ -0,0 +1,132 @@
+package es.redactado.webhook;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.IThrowableProxy;
+import ch.qos.logback.classic.spi.ThrowableProxyUtil;
+import ch.qos.logback.core.AppenderBase;
+import club.minnced.discord.webhook.send.WebhookEmbed;
+import club.minnced.discord.webhook.send.WebhookEmbedBuilder;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Logback appender that posts each event as an embed through its own {@link WebhookDispatcher}.
+ * Appending only queues the embed, bursts are coalesced up to ten embeds per message and sending
+ * respects Discord's rate limits, so an error storm costs a handful of requests instead of one per
+ * line. Without a {@code url} the appender stays disabled.
+ *
+ * <pre>{@code
+ * <appender name="WEBHOOK" class="es.redactado.webhook.WebhookAppender">
+ *     <url>${ALERT_WEBHOOK_URL:-}</url>
+ *     <filter class="ch.qos.logback.classic.filter.ThresholdFilter"><level>ERROR</level></filter>
+ * </appender>
+ * }</pre>
+ */
+public class WebhookAppender extends AppenderBase<ILoggingEvent> {
+    private static final int MAX_TITLE_LENGTH = 256;
+    private static final int MAX_DESCRIPTION_LENGTH = 4096;
+    /** Our own and OkHttp's logs would feed back into the webhook they are about. */
+    private static final String[] IGNORED_LOGGERS = {"es.redactado.webhook", "okhttp3"};
+
+    private String url;
+    private String username;
+    private int queueSize = 500;
+    private long lingerMs = 2000;
+    private long shutdownTimeoutMs = 5000;
+    private WebhookDispatcher dispatcher;
+
+    @Override
+    public void start() {
+        if (url == null || url.isBlank()) {
+            addInfo("No webhook URL set, appender " + getName() + " is disabled");
+            return;
+        }
+        dispatcher =
+                new WebhookDispatcher(
+                        new WebhookDispatcher.Settings(
+                                username,
+                                queueSize,
+                                Duration.ofMillis(lingerMs),
+                                5,
+                                Duration.ofMillis(500),
+                                Duration.ofSeconds(30)));
+        super.start();
+    }
+
+    @Override
+    protected void append(ILoggingEvent event) {
+        for (String ignored : IGNORED_LOGGERS) {
+            if (event.getLoggerName().startsWith(ignored)) {
+                return;
+            }
+        }
+        dispatcher.send(url, toEmbed(event));
+    }
+
+    @Override
+    public void stop() {
+        super.stop();
+        if (dispatcher != null) {
+            dispatcher.shutdown(Duration.ofMillis(shutdownTimeoutMs));
+            dispatcher = null;
+        }
+    }
+
+    private static WebhookEmbed toEmbed(ILoggingEvent event) {
+        String logger = event.getLoggerName();
+        String title = event.getLevel() + " " + logger.substring(logger.lastIndexOf('.') + 1);
+
+        StringBuilder description = new StringBuilder(event.getFormattedMessage());
+        IThrowableProxy throwable = event.getThrowableProxy();
+        if (throwable != null) {
+            description.append("\n```\n").append(ThrowableProxyUtil.asString(throwable));
+        }
+        if (description.length() > MAX_DESCRIPTION_LENGTH - 4) {
+            description.setLength(MAX_DESCRIPTION_LENGTH - 5);
+            description.append('…');
+        }
+        if (throwable != null) {
+            description.append("\n```");
+        }
+
+        return new WebhookEmbedBuilder()
+                .setColor(color(event.getLevel()))
+                .setTitle(new WebhookEmbed.EmbedTitle(truncate(title, MAX_TITLE_LENGTH), null))
+                .setDescription(description.toString())
+                .setFooter(new WebhookEmbed.EmbedFooter(event.getThreadName(), null))
+                .setTimestamp(Instant.ofEpochMilli(event.getTimeStamp()))
+                .build();
+    }
+
+    private static int color(Level level) {
+        if (level.isGreaterOrEqual(Level.ERROR)) {
+            return 0xE74C3C;
+        }
+        return level.isGreaterOrEqual(Level.WARN) ? 0xF1C40F : 0x95A5A6;
+    }
+
+    private static String truncate(String value, int maxLength) {
+        return value.length() <= maxLength ? value : value.substring(0, maxLength - 1) + "…";
+    }
+
+    public void setUrl(String url) {
+        this.url = url;
+    }
+
+    public void setUsername(String username) {
+        this.username = username;
+    }
+
+    public void setQueueSize(int queueSize) {
+        this.queueSize = queueSize;
+    }
+
+    public void setLingerMs(long lingerMs) {
+        this.lingerMs = lingerMs;
+    }
+
+    public void setShutdownTimeoutMs(long shutdownTimeoutMs) {
+        this.shutdownTimeoutMs = shutdownTimeoutMs;
+    }
+}
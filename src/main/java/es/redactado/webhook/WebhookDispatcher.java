@@ -0,0 +1,322 @@
+package es.redactado.webhook;
+
+import club.minnced.discord.webhook.send.WebhookEmbed;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Dispatcher;
+import okhttp3.Headers;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Sends webhook messages without blocking the caller.
+ *
+ * <ul>
+ *   <li>Messages are queued per webhook URL (at most {@code queueSize}, further ones are
+ *       dropped). The first message of a burst waits {@code linger} so the rest of the
+ *       burst can be coalesced with it, see {@link WebhookQueue}.
+ *   <li>Each URL has at most one request in flight. Before sending, the dispatcher waits for the
+ *       rate limit bucket Discord reported in the previous response's {@code X-RateLimit-*}
+ *       headers, so a burst is paced instead of running into 429s. Messages arriving meanwhile
+ *       are coalesced into the next request.
+ *   <li>A 429 is retried after {@code Retry-After}. Network errors and 5xx are retried with
+ *       exponential backoff up to {@code maxRetries} times; other errors drop the batch.
+ * </ul>
+ *
+ * Requests are built by discord-webhooks but sent here with OkHttp, since its own client hides the
+ * rate limit headers and only sends to discord.com, which rules out a local stand-in (see {@link
+ * LocalWebhookServer}).
+ */
+public class WebhookDispatcher {
+    private static final Logger logger = LoggerFactory.getLogger(WebhookDispatcher.class);
+    private static final long DEFAULT_RETRY_AFTER_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    public record Settings(
+            String username,
+            int queueSize,
+            Duration linger,
+            int maxRetries,
+            Duration initialBackoff,
+            Duration maxBackoff) {}
+
+    /** Totals since start; {@code queued} counts entries not yet delivered, dropped or failed. */
+    public record Stats(
+            long enqueued,
+            long requests,
+            long delivered,
+            long rateLimited,
+            long dropped,
+            long failed,
+            int queued) {}
+
+    private final Settings settings;
+    private final OkHttpClient client;
+    private final ScheduledExecutorService scheduler;
+    private final ConcurrentMap<String, WebhookQueue> queues = new ConcurrentHashMap<>();
+
+    // Only touched on the dispatcher thread
+    private final Map<String, RateLimitBucket> bucketsById = new HashMap<>();
+    private long globalResetAtNanos;
+
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final LongAdder enqueued = new LongAdder();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder rateLimited = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private volatile boolean closing;
+
+    public WebhookDispatcher(Settings settings) {
+        this.settings = settings;
+        this.scheduler =
+                Executors.newSingleThreadScheduledExecutor(
+                        Thread.ofPlatform().name("webhook-dispatcher").daemon(true).factory());
+        this.client =
+                new OkHttpClient.Builder()
+                        .dispatcher(
+                                new Dispatcher(
+                                        Executors.newThreadPerTaskExecutor(
+                                                Thread.ofVirtual().name("webhook-http-", 0).factory())))
+                        .callTimeout(Duration.ofSeconds(15))
+                        .build();
+    }
+
+    /** Queues a line of text. Returns false if the queue for this URL is full. */
+    public boolean send(String url, String content) {
+        return enqueue(url, new WebhookQueue.Pending(content, null));
+    }
+
+    /** Queues an embed. Returns false if the queue for this URL is full. */
+    public boolean send(String url, WebhookEmbed embed) {
+        return enqueue(url, new WebhookQueue.Pending(null, embed));
+    }
+
+    private boolean enqueue(String url, WebhookQueue.Pending entry) {
+        if (closing) {
+            dropped.increment();
+            return false;
+        }
+        WebhookQueue queue =
+                queues.computeIfAbsent(url, key -> new WebhookQueue(key, settings.queueSize()));
+        if (!queue.offer(entry)) {
+            dropped.increment();
+            return false;
+        }
+        enqueued.increment();
+        outstanding.incrementAndGet();
+        if (queue.markScheduled()) {
+            schedule(queue, settings.linger().toNanos());
+        }
+        return true;
+    }
+
+    private void schedule(WebhookQueue queue, long delayNanos) {
+        try {
+            scheduler.schedule(() -> flush(queue), delayNanos, TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException e) {
+            // Shut down; whatever is left is counted as undelivered
+        }
+    }
+
+    private void flush(WebhookQueue queue) {
+        long now = System.nanoTime();
+        long wait = Math.max(globalResetAtNanos - now, queue.bucket.delayNanos(now));
+        if (wait > 0) {
+            schedule(queue, wait);
+            return;
+        }
+        if (queue.batch == null) {
+            queue.batch = queue.nextBatch(settings.username());
+            queue.attempts = 0;
+            if (queue.batch == null) {
+                if (!queue.finishIfEmpty()) {
+                    schedule(queue, 0);
+                }
+                return;
+            }
+        }
+
+        Request request;
+        try {
+            request =
+                    new Request.Builder()
+                            .url(queue.url)
+                            .post(queue.batch.message().getBody())
+                            .build();
+        } catch (RuntimeException e) {
+            // Invalid URL; the queue must keep going or it would never be flushed again
+            giveUp(queue, e.toString());
+            return;
+        }
+        queue.bucket.consume(now);
+        requests.increment();
+        client.newCall(request)
+                .enqueue(
+                        new Callback() {
+                            @Override
+                            public void onFailure(Call call, IOException e) {
+                                onDispatcher(() -> handle(queue, -1, null, e));
+                            }
+
+                            @Override
+                            public void onResponse(Call call, Response response) {
+                                try (response) {
+                                    int status = response.code();
+                                    Headers headers = response.headers();
+                                    onDispatcher(() -> handle(queue, status, headers, null));
+                                }
+                            }
+                        });
+    }
+
+    private void onDispatcher(Runnable action) {
+        try {
+            scheduler.execute(action);
+        } catch (RejectedExecutionException e) {
+            // Shut down while the request was in flight
+        }
+    }
+
+    private void handle(WebhookQueue queue, int status, Headers headers, IOException error) {
+        long now = System.nanoTime();
+        if (headers != null) {
+            updateBucket(queue, headers, now);
+        }
+
+        if (status >= 200 && status < 300) {
+            delivered.add(queue.batch.size());
+            finishBatch(queue);
+        } else if (status == 429) {
+            rateLimited.increment();
+            long retryAfter = seconds(headers.get("Retry-After"));
+            if (retryAfter < 0) {
+                retryAfter = DEFAULT_RETRY_AFTER_NANOS;
+            }
+            if (Boolean.parseBoolean(headers.get("X-RateLimit-Global"))) {
+                globalResetAtNanos = Math.max(globalResetAtNanos, now + retryAfter);
+            } else {
+                queue.bucket.exhaust(retryAfter, now);
+            }
+            schedule(queue, retryAfter);
+        } else if (error != null || status >= 500) {
+            if (++queue.attempts > settings.maxRetries()) {
+                giveUp(queue, error != null ? error.toString() : "HTTP " + status);
+            } else {
+                schedule(queue, backoffNanos(queue.attempts));
+            }
+        } else {
+            // Malformed message or deleted webhook: retrying won't help
+            giveUp(queue, "HTTP " + status);
+        }
+    }
+
+    private void updateBucket(WebhookQueue queue, Headers headers, long now) {
+        String id = headers.get("X-RateLimit-Bucket");
+        if (id != null) {
+            RateLimitBucket shared = bucketsById.putIfAbsent(id, queue.bucket);
+            if (shared != null) {
+                queue.bucket = shared;
+            }
+        }
+        String remaining = headers.get("X-RateLimit-Remaining");
+        long resetAfter = seconds(headers.get("X-RateLimit-Reset-After"));
+        if (remaining != null && resetAfter >= 0) {
+            try {
+                queue.bucket.update(Integer.parseInt(remaining), resetAfter, now);
+            } catch (NumberFormatException e) {
+                // Leave the bucket as it was
+            }
+        }
+    }
+
+    private void giveUp(WebhookQueue queue, String reason) {
+        failed.add(queue.batch.size());
+        logger.warn(
+                "Dropping {} webhook messages for {}: {}",
+                queue.batch.size(),
+                redact(queue.url),
+                reason);
+        finishBatch(queue);
+    }
+
+    private void finishBatch(WebhookQueue queue) {
+        outstanding.addAndGet(-queue.batch.size());
+        queue.batch = null;
+        // Whatever queued up during the request goes out as soon as the bucket allows
+        schedule(queue, 0);
+    }
+
+    /** Exponential backoff with jitter between half and all of the step. */
+    private long backoffNanos(int attempt) {
+        long step =
+                Math.min(
+                        settings.maxBackoff().toNanos(),
+                        settings.initialBackoff().toNanos() << Math.min(attempt - 1, 20));
+        return ThreadLocalRandom.current().nextLong(step / 2, step + 1);
+    }
+
+    /** Parses Discord's seconds (which may have decimals), or -1 if absent or invalid. */
+    private static long seconds(String value) {
+        if (value == null) {
+            return -1;
+        }
+        try {
+            return (long) (Double.parseDouble(value) * 1_000_000_000L);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /** The token is the last path segment and must not end up in logs. */
+    private static String redact(String url) {
+        int lastSlash = url.lastIndexOf('/');
+        return lastSlash > 0 ? url.substring(0, lastSlash) + "/***" : "***";
+    }
+
+    public Stats stats() {
+        return new Stats(
+                enqueued.sum(),
+                requests.sum(),
+                delivered.sum(),
+                rateLimited.sum(),
+                dropped.sum(),
+                failed.sum(),
+                outstanding.get());
+    }
+
+    /**
+     * Stops accepting messages and waits up to {@code timeout} for the queued ones to be sent,
+     * still respecting rate limits.
+     */
+    public void shutdown(Duration timeout) {
+        closing = true;
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (outstanding.get() > 0 && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(20));
+        }
+        if (outstanding.get() > 0) {
+            logger.warn("{} webhook messages were not delivered before shutdown", outstanding.get());
+        }
+        scheduler.shutdownNow();
+        client.dispatcher().executorService().shutdown();
+        client.connectionPool().evictAll();
+    }
+}
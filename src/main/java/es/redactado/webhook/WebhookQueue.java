@@ -0,0 +1,147 @@
+package es.redactado.webhook;
+
+import club.minnced.discord.webhook.send.AllowedMentions;
+import club.minnced.discord.webhook.send.WebhookEmbed;
+import club.minnced.discord.webhook.send.WebhookMessage;
+import club.minnced.discord.webhook.send.WebhookMessageBuilder;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Messages waiting for one webhook URL. Entries are coalesced in order into as few Discord
+ * messages as the size limits allow: text lines are joined into the content, embeds are attached
+ * until the embed count or total embed length is reached.
+ */
+final class WebhookQueue {
+    static final int MAX_CONTENT_LENGTH = 2000;
+    static final int MAX_EMBEDS = 10;
+    static final int MAX_EMBED_TOTAL_LENGTH = 6000;
+
+    /** One entry: either a line of text or an embed. */
+    record Pending(String content, WebhookEmbed embed) {}
+
+    /** A coalesced message and how many entries it carries. */
+    record Batch(WebhookMessage message, int size) {}
+
+    final String url;
+    private final int capacity;
+    private final ArrayDeque<Pending> pending = new ArrayDeque<>();
+    private boolean scheduled;
+
+    // Only touched on the dispatcher thread
+    RateLimitBucket bucket = new RateLimitBucket();
+    Batch batch;
+    int attempts;
+
+    WebhookQueue(String url, int capacity) {
+        this.url = url;
+        this.capacity = capacity;
+    }
+
+    synchronized boolean offer(Pending entry) {
+        if (pending.size() >= capacity) {
+            return false;
+        }
+        pending.add(entry);
+        return true;
+    }
+
+    /** Returns true if no flush was scheduled yet, meaning the caller has to schedule one. */
+    synchronized boolean markScheduled() {
+        if (scheduled) {
+            return false;
+        }
+        scheduled = true;
+        return true;
+    }
+
+    /**
+     * Ends the current flush cycle if nothing is left. Checked under the same lock as {@link
+     * #markScheduled}, so an entry added concurrently is never left without a flush.
+     */
+    synchronized boolean finishIfEmpty() {
+        if (!pending.isEmpty()) {
+            return false;
+        }
+        scheduled = false;
+        return true;
+    }
+
+    synchronized int size() {
+        return pending.size();
+    }
+
+    /** Takes as many entries as fit in one message, or returns null if there are none. */
+    synchronized Batch nextBatch(String username) {
+        StringBuilder content = new StringBuilder();
+        List<WebhookEmbed> embeds = new ArrayList<>();
+        int embedLength = 0;
+        int count = 0;
+
+        while (!pending.isEmpty()) {
+            Pending next = pending.peek();
+            if (next.content() != null) {
+                String text = next.content();
+                int needed = content.isEmpty() ? text.length() : content.length() + 1 + text.length();
+                if (needed > MAX_CONTENT_LENGTH) {
+                    if (!content.isEmpty()) {
+                        break;
+                    }
+                    text = text.substring(0, MAX_CONTENT_LENGTH - 1) + "…";
+                }
+                if (!content.isEmpty()) {
+                    content.append('\n');
+                }
+                content.append(text);
+            } else {
+                int length = embedLength(next.embed());
+                if (embeds.size() == MAX_EMBEDS
+                        || (!embeds.isEmpty() && embedLength + length > MAX_EMBED_TOTAL_LENGTH)) {
+                    break;
+                }
+                embeds.add(next.embed());
+                embedLength += length;
+            }
+            pending.poll();
+            count++;
+        }
+        if (count == 0) {
+            return null;
+        }
+
+        WebhookMessageBuilder message =
+                new WebhookMessageBuilder().setAllowedMentions(AllowedMentions.none());
+        if (username != null) {
+            message.setUsername(username);
+        }
+        if (!content.isEmpty()) {
+            message.setContent(content.toString());
+        }
+        if (!embeds.isEmpty()) {
+            message.addEmbeds(embeds);
+        }
+        return new Batch(message.build(), count);
+    }
+
+    /** The characters Discord counts towards the 6000 per message. */
+    private static int embedLength(WebhookEmbed embed) {
+        int length = 0;
+        if (embed.getTitle() != null) {
+            length += embed.getTitle().getText().length();
+        }
+        if (embed.getDescription() != null) {
+            length += embed.getDescription().length();
+        }
+        if (embed.getAuthor() != null) {
+            length += embed.getAuthor().getName().length();
+        }
+        if (embed.getFooter() != null) {
+            length += embed.getFooter().getText().length();
+        }
+        for (WebhookEmbed.EmbedField field : embed.getFields()) {
+            length += field.getName().length() + field.getValue().length();
+        }
+        return length;
+    }
+}